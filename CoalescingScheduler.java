@@ -0,0 +1,45 @@
+import javax.swing.Timer;
+
+/**
+ * Схлопывание обновлений UI до одного за кадр.
+ *
+ * {@link #request()} вызывается на каждое событие (с EDT) и только взводит таймер; через
+ * интервал кадра action выполняется один раз, сколько бы запросов ни пришло за это время.
+ * Счётчики запросов и выполнений показывают, сколько работы сэкономлено.
+ */
+public final class CoalescingScheduler {
+
+    /** ~60 кадров в секунду. */
+    public static final int FRAME_MS = 16;
+
+    private final Timer timer;
+    private long requests;
+    private long runs;
+
+    public CoalescingScheduler(Runnable action) {
+        this(FRAME_MS, action);
+    }
+
+    public CoalescingScheduler(int frameMs, Runnable action) {
+        timer = new Timer(frameMs, e -> {
+            runs++;
+            action.run();
+        });
+        timer.setRepeats(false);
+        timer.setCoalesce(true);
+    }
+
+    /** Запросить обновление на ближайшем кадре. Вызывать с EDT. */
+    public void request() {
+        requests++;
+        if (!timer.isRunning()) timer.start();
+    }
+
+    public long requests() {
+        return requests;
+    }
+
+    public long runs() {
+        return runs;
+    }
+}
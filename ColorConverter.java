@@ -1,63 +1,28 @@
+import java.awt.image.DataBufferInt;
+
 public class ColorConverter {
 
     public static float[] rgbToCmyk(int r, int g, int b) {
-        float rf = r / 255f;
-        float gf = g / 255f;
-        float bf = b / 255f;
-
-        float k = 1 - Math.max(rf, Math.max(gf, bf));
-        float c = 0, m = 0, y = 0;
-        if (k < 1.0f) {
-            c = (1 - rf - k) / (1 - k);
-            m = (1 - gf - k) / (1 - k);
-            y = (1 - bf - k) / (1 - k);
-        }
-
-        return new float[]{c, m, y, k};
+        float[] cmyk = new float[4];
+        rgbToCmyk(r, g, b, cmyk, 0, cmyk, 1, cmyk, 2, cmyk, 3);
+        return cmyk;
     }
 
     public static int[] cmykToRgb(float c, float m, float y, float k) {
-        c = clamp01(c);
-        m = clamp01(m);
-        y = clamp01(y);
-        k = clamp01(k);
-
-        int r = Math.round(255 * (1 - c) * (1 - k));
-        int g = Math.round(255 * (1 - m) * (1 - k));
-        int b = Math.round(255 * (1 - y) * (1 - k));
-
-        return new int[]{r, g, b};
+        return unpack(cmykToRgbPacked(c, m, y, k));
     }
 
     public static float[] rgbToHsv(int r, int g, int b) {
-        float rf = r / 255f;
-        float gf = g / 255f;
-        float bf = b / 255f;
-
-        float max = Math.max(rf, Math.max(gf, bf));
-        float min = Math.min(rf, Math.min(gf, bf));
-        float delta = max - min;
-
-        float h = 0f;
-        if (delta > 0) {
-            if (max == rf) {
-                h = ((gf - bf) / delta) % 6f;
-            } else if (max == gf) {
-                h = ((bf - rf) / delta) + 2f;
-            } else {
-                h = ((rf - gf) / delta) + 4f;
-            }
-            h *= 60f;
-            if (h < 0) h += 360f;
-        }
-
-        float s = (max == 0) ? 0 : delta / max;
-        float v = max;
-
-        return new float[]{h, s, v};
+        float[] hsv = new float[3];
+        rgbToHsv(r, g, b, hsv, 0, hsv, 1, hsv, 2);
+        return hsv;
     }
 
     public static int[] hsvToRgb(float h, float s, float v) {
+        return unpack(hsvToRgbPacked(h, s, v));
+    }
+
+    private static int hsvToRgbPacked(float h, float s, float v) {
         h = (h % 360 + 360) % 360;
         s = clamp01(s);
         v = clamp01(v);
@@ -85,7 +50,24 @@ public class ColorConverter {
         int g = Math.round((gf + m) * 255);
         int b = Math.round((bf + m) * 255);
 
-        return new int[]{r, g, b};
+        return (r << 16) | (g << 8) | b;
+    }
+
+    private static int cmykToRgbPacked(float c, float m, float y, float k) {
+        c = clamp01(c);
+        m = clamp01(m);
+        y = clamp01(y);
+        k = clamp01(k);
+
+        int r = Math.round(255 * (1 - c) * (1 - k));
+        int g = Math.round(255 * (1 - m) * (1 - k));
+        int b = Math.round(255 * (1 - y) * (1 - k));
+
+        return (r << 16) | (g << 8) | b;
+    }
+
+    private static int[] unpack(int rgb) {
+        return new int[]{(rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF};
     }
 
 
@@ -99,6 +81,178 @@ public class ColorConverter {
         return rgbToCmyk(rgb[0], rgb[1], rgb[2]);
     }
 
+    // ---------- Пакетные преобразования: без аллокаций на пиксель ----------
+    // Области задаются как width×height: вход читается по индексу srcOff + row*srcStride + col,
+    // выход пишется по dstOff + row*dstStride + col. RGB хранится упакованным ARGB (альфа игнорируется
+    // на входе, на выходе всегда 0xFF). Результаты побитово совпадают с поштучными методами выше.
+
+    public static void rgbToCmyk(int[] argb, int srcOff, int srcStride,
+                                 float[] c, float[] m, float[] y, float[] k,
+                                 int dstOff, int dstStride, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            int si = srcOff + row * srcStride;
+            int di = dstOff + row * dstStride;
+            for (int col = 0; col < width; col++, si++, di++) {
+                int p = argb[si];
+                rgbToCmyk((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF, c, di, m, di, y, di, k, di);
+            }
+        }
+    }
+
+    public static void rgbToCmyk(int[] argb, int srcOff, float[] c, float[] m, float[] y, float[] k,
+                                 int dstOff, int length) {
+        rgbToCmyk(argb, srcOff, length, c, m, y, k, dstOff, length, length, 1);
+    }
+
+    public static void rgbToCmyk(DataBufferInt argb, int srcOff, int srcStride,
+                                 float[] c, float[] m, float[] y, float[] k,
+                                 int dstOff, int dstStride, int width, int height) {
+        rgbToCmyk(argb.getData(), argb.getOffset() + srcOff, srcStride, c, m, y, k,
+                dstOff, dstStride, width, height);
+    }
+
+    public static void rgbToHsv(int[] argb, int srcOff, int srcStride,
+                                float[] h, float[] s, float[] v,
+                                int dstOff, int dstStride, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            int si = srcOff + row * srcStride;
+            int di = dstOff + row * dstStride;
+            for (int col = 0; col < width; col++, si++, di++) {
+                int p = argb[si];
+                rgbToHsv((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF, h, di, s, di, v, di);
+            }
+        }
+    }
+
+    public static void rgbToHsv(int[] argb, int srcOff, float[] h, float[] s, float[] v,
+                                int dstOff, int length) {
+        rgbToHsv(argb, srcOff, length, h, s, v, dstOff, length, length, 1);
+    }
+
+    public static void rgbToHsv(DataBufferInt argb, int srcOff, int srcStride,
+                                float[] h, float[] s, float[] v,
+                                int dstOff, int dstStride, int width, int height) {
+        rgbToHsv(argb.getData(), argb.getOffset() + srcOff, srcStride, h, s, v,
+                dstOff, dstStride, width, height);
+    }
+
+    public static void cmykToRgb(float[] c, float[] m, float[] y, float[] k, int srcOff, int srcStride,
+                                 int[] argb, int dstOff, int dstStride, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            int si = srcOff + row * srcStride;
+            int di = dstOff + row * dstStride;
+            for (int col = 0; col < width; col++, si++, di++) {
+                argb[di] = 0xFF000000 | cmykToRgbPacked(c[si], m[si], y[si], k[si]);
+            }
+        }
+    }
+
+    public static void cmykToRgb(float[] c, float[] m, float[] y, float[] k, int srcOff,
+                                 int[] argb, int dstOff, int length) {
+        cmykToRgb(c, m, y, k, srcOff, length, argb, dstOff, length, length, 1);
+    }
+
+    public static void hsvToRgb(float[] h, float[] s, float[] v, int srcOff, int srcStride,
+                                int[] argb, int dstOff, int dstStride, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            int si = srcOff + row * srcStride;
+            int di = dstOff + row * dstStride;
+            for (int col = 0; col < width; col++, si++, di++) {
+                argb[di] = 0xFF000000 | hsvToRgbPacked(h[si], s[si], v[si]);
+            }
+        }
+    }
+
+    public static void hsvToRgb(float[] h, float[] s, float[] v, int srcOff,
+                                int[] argb, int dstOff, int length) {
+        hsvToRgb(h, s, v, srcOff, length, argb, dstOff, length, length, 1);
+    }
+
+    public static void cmykToHsv(float[] c, float[] m, float[] y, float[] k, int srcOff, int srcStride,
+                                 float[] h, float[] s, float[] v, int dstOff, int dstStride,
+                                 int width, int height) {
+        for (int row = 0; row < height; row++) {
+            int si = srcOff + row * srcStride;
+            int di = dstOff + row * dstStride;
+            for (int col = 0; col < width; col++, si++, di++) {
+                int rgb = cmykToRgbPacked(c[si], m[si], y[si], k[si]);
+                rgbToHsv((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF, h, di, s, di, v, di);
+            }
+        }
+    }
+
+    public static void cmykToHsv(float[] c, float[] m, float[] y, float[] k, int srcOff,
+                                 float[] h, float[] s, float[] v, int dstOff, int length) {
+        cmykToHsv(c, m, y, k, srcOff, length, h, s, v, dstOff, length, length, 1);
+    }
+
+    public static void hsvToCmyk(float[] h, float[] s, float[] v, int srcOff, int srcStride,
+                                 float[] c, float[] m, float[] y, float[] k, int dstOff, int dstStride,
+                                 int width, int height) {
+        for (int row = 0; row < height; row++) {
+            int si = srcOff + row * srcStride;
+            int di = dstOff + row * dstStride;
+            for (int col = 0; col < width; col++, si++, di++) {
+                int rgb = hsvToRgbPacked(h[si], s[si], v[si]);
+                rgbToCmyk((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF, c, di, m, di, y, di, k, di);
+            }
+        }
+    }
+
+    public static void hsvToCmyk(float[] h, float[] s, float[] v, int srcOff,
+                                 float[] c, float[] m, float[] y, float[] k, int dstOff, int length) {
+        hsvToCmyk(h, s, v, srcOff, length, c, m, y, k, dstOff, length, length, 1);
+    }
+
+    /** Один пиксель без аллокаций: компоненты пишутся в cOut[ci], mOut[mi], yOut[yi], kOut[ki]. */
+    static void rgbToCmyk(int r, int g, int b, float[] cOut, int ci, float[] mOut, int mi,
+                          float[] yOut, int yi, float[] kOut, int ki) {
+        float rf = r / 255f;
+        float gf = g / 255f;
+        float bf = b / 255f;
+
+        float k = 1 - Math.max(rf, Math.max(gf, bf));
+        float c = 0, m = 0, y = 0;
+        if (k < 1.0f) {
+            c = (1 - rf - k) / (1 - k);
+            m = (1 - gf - k) / (1 - k);
+            y = (1 - bf - k) / (1 - k);
+        }
+
+        cOut[ci] = c;
+        mOut[mi] = m;
+        yOut[yi] = y;
+        kOut[ki] = k;
+    }
+
+    /** Один пиксель без аллокаций: компоненты пишутся в hOut[hi], sOut[si], vOut[vi]. */
+    static void rgbToHsv(int r, int g, int b, float[] hOut, int hi, float[] sOut, int si, float[] vOut, int vi) {
+        float rf = r / 255f;
+        float gf = g / 255f;
+        float bf = b / 255f;
+
+        float max = Math.max(rf, Math.max(gf, bf));
+        float min = Math.min(rf, Math.min(gf, bf));
+        float delta = max - min;
+
+        float h = 0f;
+        if (delta > 0) {
+            if (max == rf) {
+                h = ((gf - bf) / delta) % 6f;
+            } else if (max == gf) {
+                h = ((bf - rf) / delta) + 2f;
+            } else {
+                h = ((rf - gf) / delta) + 4f;
+            }
+            h *= 60f;
+            if (h < 0) h += 360f;
+        }
+
+        hOut[hi] = h;
+        sOut[si] = (max == 0) ? 0 : delta / max;
+        vOut[vi] = max;
+    }
+
 
     private static float clamp01(float v) {
         return Math.max(0f, Math.min(1f, v));
@@ -0,0 +1,404 @@
+import java.util.stream.IntStream;
+
+/**
+ * Перцептивные пространства CIE: RGB ↔ XYZ ↔ Lab ↔ LCh (sRGB, белая точка D65).
+ *
+ * Единицы: XYZ — 0..1 (Y белого = 1), L — 0..100, a/b — примерно −128..127, C ≥ 0,
+ * h — градусы 0..360. RGB на входе — 8 бит, поэтому линеаризация sRGB (pow 2.4) — таблица
+ * на 256 значений; обратная гамма — таблица {@value #GAMMA_SIZE} узлов по линейной яркости
+ * с линейной интерполяцией; кубический корень Lab — {@link #cbrt(float)}. Цвета вне охвата
+ * sRGB обрезаются по линейным каналам до 0..1.
+ *
+ * Ошибки по всем 2^24 цветам относительно эталона в double с Math.pow/Math.cbrt
+ * ({@link #maxError()}, запуск: java ColorConverterCie): L ≤ 9.1e-5, a ≤ 3.9e-4, b ≤ 1.6e-4,
+ * обратная гамма ≤ 4.2e-3 уровня из 255, относительная ошибка {@link #cbrt} ≤ 1.2e-6;
+ * RGB → Lab → RGB и RGB → LCh → RGB восстанавливают все цвета точно (запуск эти границы
+ * проверяет). RGB → Lab примерно в 10 раз быстрее прямого счёта с pow и cbrt; в LCh
+ * основное время — atan2 и sin/cos.
+ */
+public final class ColorConverterCie {
+
+    /** Узлов таблицы обратной гаммы на отрезке линейной яркости 0..1. */
+    public static final int GAMMA_SIZE = 4096;
+
+    /** Белая точка D65 — суммы строк матрицы RGB → XYZ, поэтому белый даёт ровно L=100, a=b=0. */
+    public static final float XN = 0.9504700f, YN = 1f, ZN = 1.0888300f;
+
+    private static final double[][] RGB_TO_XYZ = {
+            {0.4124564, 0.3575761, 0.1804375},
+            {0.2126729, 0.7151522, 0.0721750},
+            {0.0193339, 0.1191920, 0.9503041},
+    };
+    private static final double[][] XYZ_TO_RGB = invert(RGB_TO_XYZ);
+
+    // Матрицы в float; для Lab строки прямой поделены на белую точку, столбцы обратной умножены на неё
+    private static final float M00 = (float) RGB_TO_XYZ[0][0], M01 = (float) RGB_TO_XYZ[0][1], M02 = (float) RGB_TO_XYZ[0][2];
+    private static final float M10 = (float) RGB_TO_XYZ[1][0], M11 = (float) RGB_TO_XYZ[1][1], M12 = (float) RGB_TO_XYZ[1][2];
+    private static final float M20 = (float) RGB_TO_XYZ[2][0], M21 = (float) RGB_TO_XYZ[2][1], M22 = (float) RGB_TO_XYZ[2][2];
+    private static final float I00 = (float) XYZ_TO_RGB[0][0], I01 = (float) XYZ_TO_RGB[0][1], I02 = (float) XYZ_TO_RGB[0][2];
+    private static final float I10 = (float) XYZ_TO_RGB[1][0], I11 = (float) XYZ_TO_RGB[1][1], I12 = (float) XYZ_TO_RGB[1][2];
+    private static final float I20 = (float) XYZ_TO_RGB[2][0], I21 = (float) XYZ_TO_RGB[2][1], I22 = (float) XYZ_TO_RGB[2][2];
+    private static final float N00 = M00 / XN, N01 = M01 / XN, N02 = M02 / XN;
+    private static final float N20 = M20 / ZN, N21 = M21 / ZN, N22 = M22 / ZN;
+    private static final float W00 = I00 * XN, W02 = I02 * ZN, W10 = I10 * XN, W12 = I12 * ZN, W20 = I20 * XN, W22 = I22 * ZN;
+
+    // f(t) Lab: кубический корень выше EPSILON, линейный участок ниже
+    private static final float EPSILON = 216f / 24389f;
+    private static final float KAPPA = 24389f / 27f;
+    private static final float DELTA = 6f / 29f;
+
+    private static final float DEGREES = (float) (180 / Math.PI);
+    private static final float RADIANS = (float) (Math.PI / 180);
+
+    /** Линейная яркость каждого 8-битного значения sRGB. */
+    private static final float[] LINEAR = new float[256];
+    /** Кодированное значение 0..255 (не округлённое) в узлах i / (GAMMA_SIZE - 1). */
+    private static final float[] GAMMA = new float[GAMMA_SIZE];
+    private static final float GAMMA_SCALE = GAMMA_SIZE - 1;
+
+    static {
+        for (int i = 0; i < 256; i++) LINEAR[i] = (float) linearExact(i / 255.0);
+        for (int i = 0; i < GAMMA_SIZE; i++) GAMMA[i] = (float) (255 * encodeExact(i / (double) (GAMMA_SIZE - 1)));
+    }
+
+    private ColorConverterCie() {
+    }
+
+    // ---------- Поштучно ----------
+
+    public static float[] rgbToXyz(int r, int g, int b) {
+        float[] out = new float[3];
+        rgbToXyz(r, g, b, out, out, out, 0, 1, 2);
+        return out;
+    }
+
+    public static int[] xyzToRgb(float x, float y, float z) {
+        return unpack(xyzToRgbPacked(x, y, z));
+    }
+
+    public static float[] rgbToLab(int r, int g, int b) {
+        float[] out = new float[3];
+        rgbToLab(r, g, b, out, out, out, 0, 1, 2);
+        return out;
+    }
+
+    public static int[] labToRgb(float l, float a, float b) {
+        return unpack(labToRgbPacked(l, a, b));
+    }
+
+    public static float[] rgbToLch(int r, int g, int b) {
+        float[] lab = rgbToLab(r, g, b);
+        return labToLch(lab[0], lab[1], lab[2]);
+    }
+
+    public static int[] lchToRgb(float l, float c, float h) {
+        float hr = h * RADIANS;
+        return labToRgb(l, c * (float) Math.cos(hr), c * (float) Math.sin(hr));
+    }
+
+    public static float[] labToLch(float l, float a, float b) {
+        return new float[]{l, chroma(a, b), hue(a, b)};
+    }
+
+    public static float[] lchToLab(float l, float c, float h) {
+        float hr = h * RADIANS;
+        return new float[]{l, c * (float) Math.cos(hr), c * (float) Math.sin(hr)};
+    }
+
+    /**
+     * Кубический корень для положительных нормальных float; для 0, отрицательных, денормалей,
+     * NaN и бесконечностей результат не определён.
+     *
+     * Начальное приближение — деление битов порядка на 3, затем два шага Ньютона. Умножение x
+     * на 8 прибавляет к битам 3·2^23 — ровно 2^23 после деления, то есть удваивает приближение,
+     * а шаги Ньютона переносят множитель 2 без округлений. Поэтому относительная ошибка
+     * периодична с периодом [1, 8), и полный перебор этого отрезка ({@link #maxError()})
+     * доказывает оценку для всех нормальных float: ≤ 1.2e-6 (около 10 ulp) — на порядки
+     * меньше шага 8-битного цвета; Math.cbrt точнее, но в ~20 раз медленнее.
+     */
+    public static float cbrt(float x) {
+        float y = Float.intBitsToFloat(Float.floatToRawIntBits(x) / 3 + 0x2A5137A0);
+        y = (2f * y + x / (y * y)) * (1f / 3f);
+        return (2f * y + x / (y * y)) * (1f / 3f);
+    }
+
+    // ---------- Пакетные преобразования ----------
+    // Раскладка та же, что у ColorConverter: области width×height, вход по srcOff + row*srcStride + col,
+    // выход по dstOff + row*dstStride + col; ARGB — альфа игнорируется на входе, на выходе 0xFF.
+    // Результаты побитово совпадают с поштучными методами.
+
+    public static void rgbToXyz(int[] argb, int srcOff, int srcStride, float[] x, float[] y, float[] z,
+                                int dstOff, int dstStride, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            int si = srcOff + row * srcStride;
+            int di = dstOff + row * dstStride;
+            for (int col = 0; col < width; col++, si++, di++) {
+                int p = argb[si];
+                rgbToXyz((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF, x, y, z, di, di, di);
+            }
+        }
+    }
+
+    public static void rgbToXyz(int[] argb, int srcOff, float[] x, float[] y, float[] z, int dstOff, int length) {
+        rgbToXyz(argb, srcOff, length, x, y, z, dstOff, length, length, 1);
+    }
+
+    public static void xyzToRgb(float[] x, float[] y, float[] z, int srcOff, int srcStride,
+                                int[] argb, int dstOff, int dstStride, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            int si = srcOff + row * srcStride;
+            int di = dstOff + row * dstStride;
+            for (int col = 0; col < width; col++, si++, di++) {
+                argb[di] = 0xFF000000 | xyzToRgbPacked(x[si], y[si], z[si]);
+            }
+        }
+    }
+
+    public static void xyzToRgb(float[] x, float[] y, float[] z, int srcOff, int[] argb, int dstOff, int length) {
+        xyzToRgb(x, y, z, srcOff, length, argb, dstOff, length, length, 1);
+    }
+
+    public static void rgbToLab(int[] argb, int srcOff, int srcStride, float[] l, float[] a, float[] b,
+                                int dstOff, int dstStride, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            int si = srcOff + row * srcStride;
+            int di = dstOff + row * dstStride;
+            for (int col = 0; col < width; col++, si++, di++) {
+                int p = argb[si];
+                rgbToLab((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF, l, a, b, di, di, di);
+            }
+        }
+    }
+
+    public static void rgbToLab(int[] argb, int srcOff, float[] l, float[] a, float[] b, int dstOff, int length) {
+        rgbToLab(argb, srcOff, length, l, a, b, dstOff, length, length, 1);
+    }
+
+    public static void labToRgb(float[] l, float[] a, float[] b, int srcOff, int srcStride,
+                                int[] argb, int dstOff, int dstStride, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            int si = srcOff + row * srcStride;
+            int di = dstOff + row * dstStride;
+            for (int col = 0; col < width; col++, si++, di++) {
+                argb[di] = 0xFF000000 | labToRgbPacked(l[si], a[si], b[si]);
+            }
+        }
+    }
+
+    public static void labToRgb(float[] l, float[] a, float[] b, int srcOff, int[] argb, int dstOff, int length) {
+        labToRgb(l, a, b, srcOff, length, argb, dstOff, length, length, 1);
+    }
+
+    public static void rgbToLch(int[] argb, int srcOff, int srcStride, float[] l, float[] c, float[] h,
+                                int dstOff, int dstStride, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            int si = srcOff + row * srcStride;
+            int di = dstOff + row * dstStride;
+            for (int col = 0; col < width; col++, si++, di++) {
+                int p = argb[si];
+                rgbToLab((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF, l, c, h, di, di, di);
+                float la = c[di], lb = h[di];
+                c[di] = chroma(la, lb);
+                h[di] = hue(la, lb);
+            }
+        }
+    }
+
+    public static void rgbToLch(int[] argb, int srcOff, float[] l, float[] c, float[] h, int dstOff, int length) {
+        rgbToLch(argb, srcOff, length, l, c, h, dstOff, length, length, 1);
+    }
+
+    public static void lchToRgb(float[] l, float[] c, float[] h, int srcOff, int srcStride,
+                                int[] argb, int dstOff, int dstStride, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            int si = srcOff + row * srcStride;
+            int di = dstOff + row * dstStride;
+            for (int col = 0; col < width; col++, si++, di++) {
+                float hr = h[si] * RADIANS;
+                argb[di] = 0xFF000000 | labToRgbPacked(l[si], c[si] * (float) Math.cos(hr), c[si] * (float) Math.sin(hr));
+            }
+        }
+    }
+
+    public static void lchToRgb(float[] l, float[] c, float[] h, int srcOff, int[] argb, int dstOff, int length) {
+        lchToRgb(l, c, h, srcOff, length, argb, dstOff, length, length, 1);
+    }
+
+    // ---------- Ядро ----------
+
+    private static void rgbToXyz(int r, int g, int b, float[] xOut, float[] yOut, float[] zOut, int xi, int yi, int zi) {
+        float lr = LINEAR[r], lg = LINEAR[g], lb = LINEAR[b];
+        xOut[xi] = M00 * lr + M01 * lg + M02 * lb;
+        yOut[yi] = M10 * lr + M11 * lg + M12 * lb;
+        zOut[zi] = M20 * lr + M21 * lg + M22 * lb;
+    }
+
+    private static void rgbToLab(int r, int g, int b, float[] lOut, float[] aOut, float[] bOut, int li, int ai, int bi) {
+        float lr = LINEAR[r], lg = LINEAR[g], lb = LINEAR[b];
+        float fx = f(N00 * lr + N01 * lg + N02 * lb);
+        float fy = f(M10 * lr + M11 * lg + M12 * lb);
+        float fz = f(N20 * lr + N21 * lg + N22 * lb);
+        lOut[li] = 116f * fy - 16f;
+        aOut[ai] = 500f * (fx - fy);
+        bOut[bi] = 200f * (fy - fz);
+    }
+
+    private static int xyzToRgbPacked(float x, float y, float z) {
+        return encode(I00 * x + I01 * y + I02 * z, I10 * x + I11 * y + I12 * z, I20 * x + I21 * y + I22 * z);
+    }
+
+    private static int labToRgbPacked(float l, float a, float b) {
+        float fy = (l + 16f) * (1f / 116f);
+        float x = fInverse(fy + a * (1f / 500f));
+        float y = fInverse(fy);
+        float z = fInverse(fy - b * (1f / 200f));
+        return encode(W00 * x + I01 * y + W02 * z, W10 * x + I11 * y + W12 * z, W20 * x + I21 * y + W22 * z);
+    }
+
+    private static float f(float t) {
+        return t > EPSILON ? cbrt(t) : (KAPPA * t + 16f) * (1f / 116f);
+    }
+
+    private static float fInverse(float t) {
+        return t > DELTA ? t * t * t : (116f * t - 16f) * (1f / KAPPA);
+    }
+
+    private static float chroma(float a, float b) {
+        return (float) Math.sqrt(a * a + b * b);
+    }
+
+    private static float hue(float a, float b) {
+        float h = (float) Math.atan2(b, a) * DEGREES;
+        return h < 0 ? h + 360f : h;
+    }
+
+    private static int encode(float lr, float lg, float lb) {
+        return (encode(lr) << 16) | (encode(lg) << 8) | encode(lb);
+    }
+
+    /** Линейная яркость → 0..255: интерполяция по таблице GAMMA, вне 0..1 — обрезка. */
+    private static int encode(float linear) {
+        if (!(linear > 0f)) return 0;
+        if (linear >= 1f) return 255;
+        float t = linear * GAMMA_SCALE;
+        int i = Math.min((int) t, GAMMA_SIZE - 2);
+        float v = GAMMA[i] + (GAMMA[i + 1] - GAMMA[i]) * (t - i);
+        return (int) (v + 0.5f);
+    }
+
+    private static int[] unpack(int rgb) {
+        return new int[]{(rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF};
+    }
+
+    // ---------- Эталон и проверка ----------
+
+    private static double linearExact(double v) {
+        return v <= 0.04045 ? v / 12.92 : Math.pow((v + 0.055) / 1.055, 2.4);
+    }
+
+    private static double encodeExact(double v) {
+        return v <= 0.0031308 ? 12.92 * v : 1.055 * Math.pow(v, 1 / 2.4) - 0.055;
+    }
+
+    private static double fExact(double t) {
+        return t > 216.0 / 24389.0 ? Math.cbrt(t) : (24389.0 / 27.0 * t + 16) / 116;
+    }
+
+    private static double[][] invert(double[][] m) {
+        double det = m[0][0] * (m[1][1] * m[2][2] - m[1][2] * m[2][1])
+                - m[0][1] * (m[1][0] * m[2][2] - m[1][2] * m[2][0])
+                + m[0][2] * (m[1][0] * m[2][1] - m[1][1] * m[2][0]);
+        double[][] r = new double[3][3];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                // алгебраическое дополнение транспонированной матрицы
+                int i1 = (j + 1) % 3, i2 = (j + 2) % 3, j1 = (i + 1) % 3, j2 = (i + 2) % 3;
+                r[i][j] = (m[i1][j1] * m[i2][j2] - m[i1][j2] * m[i2][j1]) / det;
+            }
+        }
+        return r;
+    }
+
+    /**
+     * Наибольшие ошибки: {L, a, b относительно эталона в double по всем 2^24 цветам;
+     * обратная гамма в уровнях 0..255 по 2^20 равномерным линейным значениям;
+     * относительная ошибка cbrt по всем float из [1, 8); число цветов, не восстановленных
+     * RGB → Lab → RGB, и то же для RGB → LCh → RGB}.
+     */
+    public static float[] maxError() {
+        float[] colors = IntStream.range(0, 256).parallel().mapToObj(r -> {
+            float[] err = new float[6];
+            int[] argb = new int[256], back = new int[256];
+            float[] l = new float[256], a = new float[256], b = new float[256];
+            for (int g = 0; g < 256; g++) {
+                for (int bl = 0; bl < 256; bl++) argb[bl] = (r << 16) | (g << 8) | bl;
+                rgbToLab(argb, 0, l, a, b, 0, 256);
+                for (int bl = 0; bl < 256; bl++) {
+                    double[] ref = labExact(r, g, bl);
+                    err[0] = (float) Math.max(err[0], Math.abs(l[bl] - ref[0]));
+                    err[1] = (float) Math.max(err[1], Math.abs(a[bl] - ref[1]));
+                    err[2] = (float) Math.max(err[2], Math.abs(b[bl] - ref[2]));
+                }
+                labToRgb(l, a, b, 0, back, 0, 256);
+                err[4] += mismatches(argb, back);
+                rgbToLch(argb, 0, l, a, b, 0, 256);
+                lchToRgb(l, a, b, 0, back, 0, 256);
+                err[5] += mismatches(argb, back);
+            }
+            return err;
+        }).reduce(new float[6], (x, y) -> new float[]{
+                Math.max(x[0], y[0]), Math.max(x[1], y[1]), Math.max(x[2], y[2]), 0, x[4] + y[4], x[5] + y[5]});
+
+        double gamma = 0;
+        for (int i = 0; i <= 1 << 20; i++) {
+            double v = i / (double) (1 << 20);
+            float t = (float) v * GAMMA_SCALE;
+            int j = Math.min((int) t, GAMMA_SIZE - 2);
+            float e = GAMMA[j] + (GAMMA[j + 1] - GAMMA[j]) * (t - j);
+            gamma = Math.max(gamma, Math.abs(e - 255 * encodeExact((float) v)));
+        }
+
+        int lo = Float.floatToRawIntBits(1f), hi = Float.floatToRawIntBits(8f);
+        double cbrt = IntStream.range(lo, hi).parallel().mapToDouble(bits -> {
+            float x = Float.intBitsToFloat(bits);
+            double exact = Math.cbrt(x);
+            return Math.abs(cbrt(x) - exact) / exact;
+        }).max().orElse(0);
+
+        return new float[]{colors[0], colors[1], colors[2], (float) gamma, (float) cbrt, colors[4], colors[5]};
+    }
+
+    private static double[] labExact(int r, int g, int b) {
+        double lr = linearExact(r / 255.0), lg = linearExact(g / 255.0), lb = linearExact(b / 255.0);
+        double[][] m = RGB_TO_XYZ;
+        double fx = fExact((m[0][0] * lr + m[0][1] * lg + m[0][2] * lb) / (m[0][0] + m[0][1] + m[0][2]));
+        double fy = fExact(m[1][0] * lr + m[1][1] * lg + m[1][2] * lb);
+        double fz = fExact((m[2][0] * lr + m[2][1] * lg + m[2][2] * lb) / (m[2][0] + m[2][1] + m[2][2]));
+        return new double[]{116 * fy - 16, 500 * (fx - fy), 200 * (fy - fz)};
+    }
+
+    private static int mismatches(int[] expected, int[] actual) {
+        int n = 0;
+        for (int i = 0; i < expected.length; i++) if ((expected[i] & 0xFFFFFF) != (actual[i] & 0xFFFFFF)) n++;
+        return n;
+    }
+
+    /** Заявленные в описании класса границы, в порядке {@link #maxError()}. */
+    private static final float[] ERROR_BOUNDS = {9.1e-5f, 3.9e-4f, 1.6e-4f, 4.2e-3f, 1.2e-6f, 0f, 0f};
+    private static final String[] ERROR_NAMES = {"L", "a", "b", "гамма", "cbrt", "Lab → RGB", "LCh → RGB"};
+
+    /** Печатает {@link #maxError()}; код выхода 1, если хоть одна заявленная граница превышена. */
+    public static void main(String[] args) {
+        float[] e = maxError();
+        System.out.printf("L %.2e, a %.2e, b %.2e, гамма %.2e уровня, cbrt %.2e; не восстановлено: Lab %d, LCh %d%n",
+                e[0], e[1], e[2], e[3], e[4], (int) e[5], (int) e[6]);
+        boolean ok = true;
+        for (int i = 0; i < ERROR_BOUNDS.length; i++) {
+            if (e[i] > ERROR_BOUNDS[i]) {
+                System.out.printf("%s: %.3e больше заявленных %.3e%n", ERROR_NAMES[i], e[i], ERROR_BOUNDS[i]);
+                ok = false;
+            }
+        }
+        if (!ok) System.exit(1);
+    }
+}
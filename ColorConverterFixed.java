@@ -0,0 +1,322 @@
+import java.util.stream.IntStream;
+
+/**
+ * Целочисленная (фиксированная точка) реализация RGB ↔ HSV и RGB ↔ CMYK.
+ *
+ * Единицы: тон — 1/64 градуса (0..{@value #HUE_FULL}), S, V, C, M, Y, K — 16 бит
+ * (0..{@value #UNIT} ≙ 0..1). Ни одного float в расчёте. В прямых RGB → HSV/CMYK нет и
+ * делений: деления на max и delta заменены умножением на обратные из таблицы
+ * {@code RECIP[d] = round(2^32 / d)}. Обратное HSV → RGB делит только на константы
+ * (приведение тона по модулю {@value #HUE_FULL} и номер сектора), а долю сектора берёт из
+ * таблицы в Q16. Результат не зависит от режима JIT и платформы.
+ *
+ * Методы на int-плоскостях — основной быстрый путь; реализация {@link ColorEngine}
+ * ({@link #ENGINE}) переводит float-значения в эти единицы на входе и выходе.
+ *
+ * Отклонение от float-эталона ColorConverter по всем 2^24 цветам ({@link #maxError()},
+ * запуск: java ColorConverterFixed): H ≤ 0.0078° (половина единицы 1/64°),
+ * S ≤ 7.7e-6 и C/M/Y ≤ 7.9e-6 (половина 16-битной единицы плюс округление float у эталона),
+ * V = 0, K ≤ 6e-8; обратные HSV → RGB и CMYK → RGB на прямых результатах эталона
+ * совпадают с эталоном во всех 2^24 случаях. {@link #main(String[])} проверяет эти границы.
+ */
+public final class ColorConverterFixed {
+
+    /** Единиц тона в градусе. */
+    public static final int HUE_ONE_DEGREE = 64;
+    public static final int HUE_FULL = 360 * HUE_ONE_DEGREE;
+    /** 16-битная единица: 1.0 для S, V, C, M, Y, K. */
+    public static final int UNIT = 65535;
+
+    private static final int SECTOR = 60 * HUE_ONE_DEGREE;
+
+    /** round(2^32 / d) для d = 1..255; RECIP[0] не используется. */
+    private static final long[] RECIP = new long[256];
+    /** Доля сектора тона в Q16: round(t * 65536 / SECTOR) для t = 0..SECTOR. */
+    private static final int[] SECTOR_Q16 = new int[SECTOR + 1];
+
+    static {
+        for (int d = 1; d < 256; d++) RECIP[d] = ((1L << 32) + d / 2) / d;
+        for (int t = 0; t <= SECTOR; t++) SECTOR_Q16[t] = (int) (((long) t * 65536 + SECTOR / 2) / SECTOR);
+    }
+
+    public static final ColorEngine ENGINE = new Engine();
+
+    private ColorConverterFixed() {
+    }
+
+    // ---------- Поштучно ----------
+
+    /** out = {h (1/64°), s, v (16 бит)}. */
+    public static void rgbToHsv(int r, int g, int b, int[] out) {
+        int max = Math.max(r, Math.max(g, b));
+        int min = Math.min(r, Math.min(g, b));
+        int delta = max - min;
+        out[0] = delta == 0 ? 0 : hue(r, g, b, max, delta);
+        out[1] = max == 0 ? 0 : ratio(delta, max);
+        out[2] = max * 257;
+    }
+
+    /** out = {c, m, y, k} (16 бит). */
+    public static void rgbToCmyk(int r, int g, int b, int[] out) {
+        int max = Math.max(r, Math.max(g, b));
+        out[3] = (255 - max) * 257;
+        if (max == 0) {
+            out[0] = out[1] = out[2] = 0;
+            return;
+        }
+        out[0] = ratio(max - r, max);
+        out[1] = ratio(max - g, max);
+        out[2] = ratio(max - b, max);
+    }
+
+    /** Упакованный RGB (без альфы); h в 1/64°, любой знак и величина — берётся по модулю. */
+    public static int hsvToRgb(int h, int s, int v) {
+        h %= HUE_FULL;
+        if (h < 0) h += HUE_FULL;
+        s = clampUnit(s);
+        v = clampUnit(v);
+        int sector = h / SECTOR, t = h - sector * SECTOR;
+        long vv = (long) q16(v) * 255;           // максимум канала, Q16 в шкале 0..255
+        long cc = (vv * q16(s)) >> 16;           // хрома
+        long mm = vv - cc;                       // минимум канала
+        long rising = mm + ((cc * SECTOR_Q16[t]) >> 16);
+        long falling = mm + ((cc * SECTOR_Q16[SECTOR - t]) >> 16);
+        long r, g, b;
+        switch (sector) {
+            case 0: r = vv; g = rising; b = mm; break;
+            case 1: r = falling; g = vv; b = mm; break;
+            case 2: r = mm; g = vv; b = rising; break;
+            case 3: r = mm; g = falling; b = vv; break;
+            case 4: r = rising; g = mm; b = vv; break;
+            default: r = vv; g = mm; b = falling; break;
+        }
+        return (round16(r) << 16) | (round16(g) << 8) | round16(b);
+    }
+
+    /** Упакованный RGB (без альфы) из 16-битных C, M, Y, K. */
+    public static int cmykToRgb(int c, int m, int y, int k) {
+        long ik = 65536 - q16(clampUnit(k));
+        int r = (int) ((255L * (65536 - q16(clampUnit(c))) * ik + (1L << 31)) >> 32);
+        int g = (int) ((255L * (65536 - q16(clampUnit(m))) * ik + (1L << 31)) >> 32);
+        int b = (int) ((255L * (65536 - q16(clampUnit(y))) * ik + (1L << 31)) >> 32);
+        return (r << 16) | (g << 8) | b;
+    }
+
+    // ---------- Пакетно, на int-плоскостях ----------
+
+    public static void rgbToHsv(int[] argb, int srcOff, int[] h, int[] s, int[] v, int dstOff, int length) {
+        for (int i = 0; i < length; i++) {
+            int p = argb[srcOff + i];
+            int r = (p >> 16) & 0xFF, g = (p >> 8) & 0xFF, b = p & 0xFF;
+            int max = Math.max(r, Math.max(g, b));
+            int delta = max - Math.min(r, Math.min(g, b));
+            int di = dstOff + i;
+            h[di] = delta == 0 ? 0 : hue(r, g, b, max, delta);
+            s[di] = max == 0 ? 0 : ratio(delta, max);
+            v[di] = max * 257;
+        }
+    }
+
+    public static void hsvToRgb(int[] h, int[] s, int[] v, int srcOff, int[] argb, int dstOff, int length) {
+        for (int i = 0; i < length; i++) {
+            int si = srcOff + i;
+            argb[dstOff + i] = 0xFF000000 | hsvToRgb(h[si], s[si], v[si]);
+        }
+    }
+
+    public static void rgbToCmyk(int[] argb, int srcOff, int[] c, int[] m, int[] y, int[] k, int dstOff, int length) {
+        for (int i = 0; i < length; i++) {
+            int p = argb[srcOff + i];
+            int r = (p >> 16) & 0xFF, g = (p >> 8) & 0xFF, b = p & 0xFF;
+            int max = Math.max(r, Math.max(g, b));
+            int di = dstOff + i;
+            k[di] = (255 - max) * 257;
+            if (max == 0) {
+                c[di] = m[di] = y[di] = 0;
+            } else {
+                c[di] = ratio(max - r, max);
+                m[di] = ratio(max - g, max);
+                y[di] = ratio(max - b, max);
+            }
+        }
+    }
+
+    public static void cmykToRgb(int[] c, int[] m, int[] y, int[] k, int srcOff, int[] argb, int dstOff, int length) {
+        for (int i = 0; i < length; i++) {
+            int si = srcOff + i;
+            argb[dstOff + i] = 0xFF000000 | cmykToRgb(c[si], m[si], y[si], k[si]);
+        }
+    }
+
+    // ---------- Арифметика ----------
+
+    /** Тон в 1/64°: сектор по максимальному каналу (в том же порядке, что у эталона) плюс 3840·num/delta. */
+    private static int hue(int r, int g, int b, int max, int delta) {
+        int base, num;
+        if (max == r) {
+            base = 0;
+            num = g - b;
+        } else if (max == g) {
+            base = 2 * SECTOR;
+            num = b - r;
+        } else {
+            base = 4 * SECTOR;
+            num = r - g;
+        }
+        int h = base + (int) (((long) num * SECTOR * RECIP[delta] + (1L << 31)) >> 32);
+        return h < 0 ? h + HUE_FULL : h;
+    }
+
+    /** round(UNIT · num / den) для 0 ≤ num ≤ den ≤ 255, den > 0. */
+    private static int ratio(int num, int den) {
+        return (int) (((long) num * UNIT * RECIP[den] + (1L << 31)) >> 32);
+    }
+
+    /** 16-битная единица → Q16 (65535 → 65536). */
+    private static int q16(int u) {
+        return u + (u >> 15);
+    }
+
+    private static int round16(long q) {
+        return (int) ((q + 0x8000) >> 16);
+    }
+
+    private static int clampUnit(int u) {
+        return u < 0 ? 0 : (u > UNIT ? UNIT : u);
+    }
+
+    // ---------- Проверка ----------
+
+    /**
+     * Максимальное отклонение от ColorConverter по всем 2^24 цветам:
+     * {h (градусы, по окружности), s, v, c, m, y, k, hsvToRgb, cmykToRgb}. Последние два — в
+     * уровнях 0..255: обе реализации обращают прямые результаты эталона (эта — через {@link #ENGINE}).
+     */
+    public static float[] maxError() {
+        return IntStream.range(0, 256).parallel().mapToObj(r -> {
+            float[] err = new float[9];
+            int[] argb = new int[256], back = new int[256], ref = new int[256];
+            int[] fh = new int[256], fs = new int[256], fv = new int[256];
+            int[] fc = new int[256], fm = new int[256], fy = new int[256], fk = new int[256];
+            float[] h = new float[256], s = new float[256], v = new float[256];
+            float[] c = new float[256], m = new float[256], y = new float[256], k = new float[256];
+            for (int g = 0; g < 256; g++) {
+                for (int b = 0; b < 256; b++) argb[b] = (r << 16) | (g << 8) | b;
+                rgbToHsv(argb, 0, fh, fs, fv, 0, 256);
+                rgbToCmyk(argb, 0, fc, fm, fy, fk, 0, 256);
+                ColorConverter.rgbToHsv(argb, 0, h, s, v, 0, 256);
+                ColorConverter.rgbToCmyk(argb, 0, c, m, y, k, 0, 256);
+                for (int b = 0; b < 256; b++) {
+                    float dh = Math.abs(fh[b] / (float) HUE_ONE_DEGREE - h[b]);
+                    err[0] = Math.max(err[0], Math.min(dh, 360f - dh));
+                    err[1] = Math.max(err[1], Math.abs(fs[b] / (float) UNIT - s[b]));
+                    err[2] = Math.max(err[2], Math.abs(fv[b] / (float) UNIT - v[b]));
+                    err[3] = Math.max(err[3], Math.abs(fc[b] / (float) UNIT - c[b]));
+                    err[4] = Math.max(err[4], Math.abs(fm[b] / (float) UNIT - m[b]));
+                    err[5] = Math.max(err[5], Math.abs(fy[b] / (float) UNIT - y[b]));
+                    err[6] = Math.max(err[6], Math.abs(fk[b] / (float) UNIT - k[b]));
+                }
+                ColorConverter.hsvToRgb(h, s, v, 0, ref, 0, 256);
+                ENGINE.hsvToRgb(h, s, v, 0, back, 0, 256);
+                err[7] = Math.max(err[7], maxChannelDiff(ref, back));
+                ColorConverter.cmykToRgb(c, m, y, k, 0, ref, 0, 256);
+                ENGINE.cmykToRgb(c, m, y, k, 0, back, 0, 256);
+                err[8] = Math.max(err[8], maxChannelDiff(ref, back));
+            }
+            return err;
+        }).reduce(new float[9], (a, b) -> {
+            float[] mx = new float[9];
+            for (int i = 0; i < 9; i++) mx[i] = Math.max(a[i], b[i]);
+            return mx;
+        });
+    }
+
+    /** Заявленные в описании класса границы, в порядке {@link #maxError()}. */
+    private static final float[] ERROR_BOUNDS = {0.0078f, 7.7e-6f, 0f, 7.9e-6f, 7.9e-6f, 7.9e-6f, 6e-8f, 0f, 0f};
+    private static final String[] ERROR_NAMES = {"H", "S", "V", "C", "M", "Y", "K", "HSV→RGB", "CMYK→RGB"};
+
+    private static int maxChannelDiff(int[] a, int[] b) {
+        int d = 0;
+        for (int i = 0; i < a.length; i++) {
+            for (int shift = 0; shift < 24; shift += 8) {
+                d = Math.max(d, Math.abs(((a[i] >> shift) & 0xFF) - ((b[i] >> shift) & 0xFF)));
+            }
+        }
+        return d;
+    }
+
+    /** Печатает {@link #maxError()}; код выхода 1, если хоть одна заявленная граница превышена. */
+    public static void main(String[] args) {
+        float[] e = maxError();
+        System.out.printf("H %.4f°, S %.2e, V %.2e, C %.2e, M %.2e, Y %.2e, K %.2e, HSV→RGB %d, CMYK→RGB %d%n",
+                e[0], e[1], e[2], e[3], e[4], e[5], e[6], (int) e[7], (int) e[8]);
+        boolean ok = true;
+        for (int i = 0; i < ERROR_BOUNDS.length; i++) {
+            if (e[i] > ERROR_BOUNDS[i]) {
+                System.out.printf("%s: %.3e больше заявленных %.3e%n", ERROR_NAMES[i], e[i], ERROR_BOUNDS[i]);
+                ok = false;
+            }
+        }
+        if (!ok) System.exit(1);
+    }
+
+    /** {@link ColorEngine} поверх целочисленных методов: перевод из float и обратно на границе. */
+    private static final class Engine implements ColorEngine {
+        private static final float TO_DEGREES = 1f / HUE_ONE_DEGREE;
+        private static final float FROM_UNIT = 1f / UNIT;
+
+        @Override
+        public String name() {
+            return "fixed";
+        }
+
+        @Override
+        public void rgbToHsv(int[] argb, int srcOff, float[] h, float[] s, float[] v, int dstOff, int length) {
+            int[] out = new int[3];
+            for (int i = 0; i < length; i++) {
+                int p = argb[srcOff + i];
+                ColorConverterFixed.rgbToHsv((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF, out);
+                int di = dstOff + i;
+                h[di] = out[0] * TO_DEGREES;
+                s[di] = out[1] * FROM_UNIT;
+                v[di] = out[2] * FROM_UNIT;
+            }
+        }
+
+        @Override
+        public void hsvToRgb(float[] h, float[] s, float[] v, int srcOff, int[] argb, int dstOff, int length) {
+            for (int i = 0; i < length; i++) {
+                int si = srcOff + i;
+                argb[dstOff + i] = 0xFF000000 | ColorConverterFixed.hsvToRgb(
+                        toFixed(h[si], HUE_ONE_DEGREE), toFixed(s[si], UNIT), toFixed(v[si], UNIT));
+            }
+        }
+
+        @Override
+        public void rgbToCmyk(int[] argb, int srcOff, float[] c, float[] m, float[] y, float[] k, int dstOff, int length) {
+            int[] out = new int[4];
+            for (int i = 0; i < length; i++) {
+                int p = argb[srcOff + i];
+                ColorConverterFixed.rgbToCmyk((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF, out);
+                int di = dstOff + i;
+                c[di] = out[0] * FROM_UNIT;
+                m[di] = out[1] * FROM_UNIT;
+                y[di] = out[2] * FROM_UNIT;
+                k[di] = out[3] * FROM_UNIT;
+            }
+        }
+
+        @Override
+        public void cmykToRgb(float[] c, float[] m, float[] y, float[] k, int srcOff, int[] argb, int dstOff, int length) {
+            for (int i = 0; i < length; i++) {
+                int si = srcOff + i;
+                argb[dstOff + i] = 0xFF000000 | ColorConverterFixed.cmykToRgb(
+                        toFixed(c[si], UNIT), toFixed(m[si], UNIT), toFixed(y[si], UNIT), toFixed(k[si], UNIT));
+            }
+        }
+
+        private static int toFixed(float value, int unit) {
+            return (int) Math.floor(value * unit + 0.5f);
+        }
+    }
+}
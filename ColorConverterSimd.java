@@ -0,0 +1,77 @@
+/**
+ * Построчное преобразование RGB ↔ HSV и RGB ↔ CMYK для целых изображений.
+ *
+ * Если JVM запущена с --add-modules jdk.incubator.vector, строки считаются векторными
+ * ядрами {@link ColorVectorKernels}; иначе (или при -Dcolor.simd.disable=true) —
+ * скалярными пакетными методами ColorConverter. Раскладка буферов та же, что у
+ * пакетных методов ColorConverter.
+ */
+public final class ColorConverterSimd {
+
+    public static final boolean VECTOR_AVAILABLE = detect();
+
+    private ColorConverterSimd() {
+    }
+
+    private static boolean detect() {
+        if (Boolean.getBoolean("color.simd.disable")) return false;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) return false;
+        try {
+            return ColorVectorKernels.lanes() > 1;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    public static void rgbToHsv(int[] argb, int srcOff, float[] h, float[] s, float[] v, int dstOff, int length) {
+        if (VECTOR_AVAILABLE) ColorVectorKernels.rgbToHsv(argb, srcOff, h, s, v, dstOff, length);
+        else ColorConverter.rgbToHsv(argb, srcOff, h, s, v, dstOff, length);
+    }
+
+    public static void rgbToHsv(int[] argb, int srcOff, int srcStride,
+                                float[] h, float[] s, float[] v,
+                                int dstOff, int dstStride, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            rgbToHsv(argb, srcOff + row * srcStride, h, s, v, dstOff + row * dstStride, width);
+        }
+    }
+
+    public static void hsvToRgb(float[] h, float[] s, float[] v, int srcOff, int[] argb, int dstOff, int length) {
+        if (VECTOR_AVAILABLE) ColorVectorKernels.hsvToRgb(h, s, v, srcOff, argb, dstOff, length);
+        else ColorConverter.hsvToRgb(h, s, v, srcOff, argb, dstOff, length);
+    }
+
+    public static void hsvToRgb(float[] h, float[] s, float[] v, int srcOff, int srcStride,
+                                int[] argb, int dstOff, int dstStride, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            hsvToRgb(h, s, v, srcOff + row * srcStride, argb, dstOff + row * dstStride, width);
+        }
+    }
+
+    public static void rgbToCmyk(int[] argb, int srcOff, float[] c, float[] m, float[] y, float[] k,
+                                 int dstOff, int length) {
+        if (VECTOR_AVAILABLE) ColorVectorKernels.rgbToCmyk(argb, srcOff, c, m, y, k, dstOff, length);
+        else ColorConverter.rgbToCmyk(argb, srcOff, c, m, y, k, dstOff, length);
+    }
+
+    public static void rgbToCmyk(int[] argb, int srcOff, int srcStride,
+                                 float[] c, float[] m, float[] y, float[] k,
+                                 int dstOff, int dstStride, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            rgbToCmyk(argb, srcOff + row * srcStride, c, m, y, k, dstOff + row * dstStride, width);
+        }
+    }
+
+    public static void cmykToRgb(float[] c, float[] m, float[] y, float[] k, int srcOff,
+                                 int[] argb, int dstOff, int length) {
+        if (VECTOR_AVAILABLE) ColorVectorKernels.cmykToRgb(c, m, y, k, srcOff, argb, dstOff, length);
+        else ColorConverter.cmykToRgb(c, m, y, k, srcOff, argb, dstOff, length);
+    }
+
+    public static void cmykToRgb(float[] c, float[] m, float[] y, float[] k, int srcOff, int srcStride,
+                                 int[] argb, int dstOff, int dstStride, int width, int height) {
+        for (int row = 0; row < height; row++) {
+            cmykToRgb(c, m, y, k, srcOff + row * srcStride, argb, dstOff + row * dstStride, width);
+        }
+    }
+}
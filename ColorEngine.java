@@ -0,0 +1,95 @@
+/**
+ * Пакетные преобразования RGB ↔ HSV и RGB ↔ CMYK одной строкой — общий интерфейс для
+ * взаимозаменяемых реализаций.
+ *
+ * Раскладка та же, что у пакетных методов {@link ColorConverter}: RGB — упакованный ARGB
+ * (альфа на входе игнорируется, на выходе 0xFF), H — градусы 0..360, остальное — 0..1.
+ * Реализации:
+ * <ul>
+ *   <li>{@link #FLOAT} — ColorConverter, эталон;</li>
+ *   <li>{@link #SIMD} — {@link ColorConverterSimd}: векторные ядра, если доступен модуль
+ *       jdk.incubator.vector, иначе тот же эталон;</li>
+ *   <li>{@link #FIXED} — {@link ColorConverterFixed}: целочисленная арифметика, побитово
+ *       воспроизводима; отклонения от эталона — в его описании.</li>
+ * </ul>
+ * {@link #DEFAULT} выбирается свойством -Dcolor.engine=float|simd|fixed.
+ */
+public interface ColorEngine {
+
+    String name();
+
+    void rgbToHsv(int[] argb, int srcOff, float[] h, float[] s, float[] v, int dstOff, int length);
+
+    void hsvToRgb(float[] h, float[] s, float[] v, int srcOff, int[] argb, int dstOff, int length);
+
+    void rgbToCmyk(int[] argb, int srcOff, float[] c, float[] m, float[] y, float[] k, int dstOff, int length);
+
+    void cmykToRgb(float[] c, float[] m, float[] y, float[] k, int srcOff, int[] argb, int dstOff, int length);
+
+    ColorEngine FLOAT = new ColorEngine() {
+        @Override
+        public String name() {
+            return "float";
+        }
+
+        @Override
+        public void rgbToHsv(int[] argb, int srcOff, float[] h, float[] s, float[] v, int dstOff, int length) {
+            ColorConverter.rgbToHsv(argb, srcOff, h, s, v, dstOff, length);
+        }
+
+        @Override
+        public void hsvToRgb(float[] h, float[] s, float[] v, int srcOff, int[] argb, int dstOff, int length) {
+            ColorConverter.hsvToRgb(h, s, v, srcOff, argb, dstOff, length);
+        }
+
+        @Override
+        public void rgbToCmyk(int[] argb, int srcOff, float[] c, float[] m, float[] y, float[] k, int dstOff, int length) {
+            ColorConverter.rgbToCmyk(argb, srcOff, c, m, y, k, dstOff, length);
+        }
+
+        @Override
+        public void cmykToRgb(float[] c, float[] m, float[] y, float[] k, int srcOff, int[] argb, int dstOff, int length) {
+            ColorConverter.cmykToRgb(c, m, y, k, srcOff, argb, dstOff, length);
+        }
+    };
+
+    ColorEngine SIMD = new ColorEngine() {
+        @Override
+        public String name() {
+            return ColorConverterSimd.VECTOR_AVAILABLE ? "simd" : "simd (скалярный запасной путь)";
+        }
+
+        @Override
+        public void rgbToHsv(int[] argb, int srcOff, float[] h, float[] s, float[] v, int dstOff, int length) {
+            ColorConverterSimd.rgbToHsv(argb, srcOff, h, s, v, dstOff, length);
+        }
+
+        @Override
+        public void hsvToRgb(float[] h, float[] s, float[] v, int srcOff, int[] argb, int dstOff, int length) {
+            ColorConverterSimd.hsvToRgb(h, s, v, srcOff, argb, dstOff, length);
+        }
+
+        @Override
+        public void rgbToCmyk(int[] argb, int srcOff, float[] c, float[] m, float[] y, float[] k, int dstOff, int length) {
+            ColorConverterSimd.rgbToCmyk(argb, srcOff, c, m, y, k, dstOff, length);
+        }
+
+        @Override
+        public void cmykToRgb(float[] c, float[] m, float[] y, float[] k, int srcOff, int[] argb, int dstOff, int length) {
+            ColorConverterSimd.cmykToRgb(c, m, y, k, srcOff, argb, dstOff, length);
+        }
+    };
+
+    ColorEngine FIXED = ColorConverterFixed.ENGINE;
+
+    ColorEngine DEFAULT = byName(System.getProperty("color.engine", "float"));
+
+    static ColorEngine byName(String name) {
+        switch (name) {
+            case "float": return FLOAT;
+            case "simd": return SIMD;
+            case "fixed": return FIXED;
+            default: throw new IllegalArgumentException("неизвестная реализация: " + name + " (float|simd|fixed)");
+        }
+    }
+}
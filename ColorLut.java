@@ -0,0 +1,407 @@
+import java.util.stream.IntStream;
+
+/**
+ * Табличное ускорение RGB → HSV / RGB → CMYK поверх {@link ColorConverter}.
+ *
+ * Таблица строится лениво (при первом обращении в режиме LUT) и параллельно.
+ * Вид таблицы выбирается по бюджету памяти:
+ * - полная (2^24 входов, H/S/C/M/Y хранятся 16-битными, V и K точны) — ~168 МБ;
+ * - сетка с шагом step (делитель 255) и трилинейной интерполяцией между узлами.
+ *   Ячейки, где интерполяция плохо обусловлена (ахроматический угол, разброс тона больше
+ *   {@link #MAX_HUE_SPREAD} или разброс S/C/M/Y больше {@link #MAX_SPREAD}), помечаются
+ *   и считаются точно. Если бюджет меньше самой грубой сетки — всегда точный режим.
+ *
+ * Максимальные ошибки относительно ColorConverter по всем 16.7M цветам ({@link #maxError()}):
+ * полная таблица — H ≤ 0.0028°, S/C/M/Y ≤ 7.7e-6, V/K = 0;
+ * сетка step=3 (~12.8 МБ, 2.5% ячеек точно) — H ≤ 0.42°, S ≤ 0.0112, C/M/Y ≤ 0.0106, V/K = 0;
+ * сетка step=5 (~2.8 МБ, 9.2% ячеек точно) — H ≤ 0.45°, S ≤ 0.0120, C/M/Y ≤ 0.0115, V/K = 0.
+ * Запуск java ColorLut проверяет все три границы.
+ */
+public class ColorLut {
+
+    public enum Mode { EXACT, LUT }
+
+    public static final long FULL_TABLE_BYTES = 5L * 2 * (1 << 24);
+    public static final float MAX_HUE_SPREAD = 10f;
+    public static final float MAX_SPREAD = 0.05f;
+
+    private static final int[] GRID_STEPS = {3, 5}; // на более грубой сетке почти все ячейки «плохие»
+    /** Заявленные границы {@link #maxError()}: полная таблица, затем сетки GRID_STEPS. */
+    private static final float[][] ERROR_BOUNDS = {
+            {0.0028f, 7.7e-6f, 0f, 7.7e-6f, 7.7e-6f, 7.7e-6f, 0f},
+            {0.42f, 0.0112f, 0f, 0.0106f, 0.0106f, 0.0106f, 0f},
+            {0.45f, 0.0120f, 0f, 0.0115f, 0.0115f, 0.0115f, 0f},
+    };
+    private static final String[] ERROR_NAMES = {"H", "S", "V", "C", "M", "Y", "K"};
+    private static final float HUE_SCALE = 65536f / 360f;
+    private static final float[] MAX_TO_FLOAT = new float[256];
+
+    static {
+        for (int i = 0; i < 256; i++) MAX_TO_FLOAT[i] = i / 255f;
+    }
+
+    private final long budgetBytes;
+    private volatile Mode mode;
+    private volatile Table table;
+
+    public ColorLut(long budgetBytes) {
+        this(budgetBytes, Mode.LUT);
+    }
+
+    public ColorLut(long budgetBytes, Mode mode) {
+        this.budgetBytes = budgetBytes;
+        this.mode = mode;
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+    }
+
+    /** Объём выбранной таблицы в байтах (таблица при этом не строится). */
+    public long tableBytes() {
+        if (budgetBytes >= FULL_TABLE_BYTES) return FULL_TABLE_BYTES;
+        int step = gridStep(budgetBytes);
+        return step > 0 ? GridTable.bytes(step) : 0;
+    }
+
+    /** out = {h, s, v}, как у {@link ColorConverter#rgbToHsv(int, int, int)}. */
+    public void rgbToHsv(int r, int g, int b, float[] out) {
+        Table t = mode == Mode.LUT ? table() : null;
+        if (t == null) {
+            ColorConverter.rgbToHsv(r, g, b, out, 0, out, 1, out, 2);
+        } else {
+            t.hsv(r, g, b, out, 0, out, 1, out, 2);
+        }
+    }
+
+    /** out = {c, m, y, k}, как у {@link ColorConverter#rgbToCmyk(int, int, int)}. */
+    public void rgbToCmyk(int r, int g, int b, float[] out) {
+        Table t = mode == Mode.LUT ? table() : null;
+        if (t == null) {
+            ColorConverter.rgbToCmyk(r, g, b, out, 0, out, 1, out, 2, out, 3);
+        } else {
+            t.cmyk(r, g, b, out, 0, out, 1, out, 2, out, 3);
+        }
+    }
+
+    public void rgbToHsv(int[] argb, int srcOff, float[] h, float[] s, float[] v, int dstOff, int length) {
+        Table t = mode == Mode.LUT ? table() : null;
+        if (t == null) {
+            ColorConverter.rgbToHsv(argb, srcOff, h, s, v, dstOff, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            int p = argb[srcOff + i];
+            int di = dstOff + i;
+            t.hsv((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF, h, di, s, di, v, di);
+        }
+    }
+
+    public void rgbToCmyk(int[] argb, int srcOff, float[] c, float[] m, float[] y, float[] k,
+                          int dstOff, int length) {
+        Table t = mode == Mode.LUT ? table() : null;
+        if (t == null) {
+            ColorConverter.rgbToCmyk(argb, srcOff, c, m, y, k, dstOff, length);
+            return;
+        }
+        for (int i = 0; i < length; i++) {
+            int p = argb[srcOff + i];
+            int di = dstOff + i;
+            t.cmyk((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF, c, di, m, di, y, di, k, di);
+        }
+    }
+
+    /** Доля ячеек сетки, которые считаются точно (0 для полной таблицы). */
+    public double exactCellFraction() {
+        Table t = table();
+        if (!(t instanceof GridTable)) return 0;
+        GridTable g = (GridTable) t;
+        return g.exactCells() / Math.pow(g.n - 1, 3);
+    }
+
+    /**
+     * Максимальная абсолютная ошибка по всем 2^24 цветам относительно ColorConverter:
+     * {h, s, v, c, m, y, k}. Ошибка тона считается по окружности.
+     */
+    public float[] maxError() {
+        Table t = table();
+        if (t == null) return new float[7];
+        return IntStream.range(0, 256).parallel().mapToObj(r -> {
+            float[] err = new float[7];
+            float[] hsv = new float[3];
+            float[] cmyk = new float[4];
+            for (int g = 0; g < 256; g++) {
+                for (int b = 0; b < 256; b++) {
+                    t.hsv(r, g, b, hsv, 0, hsv, 1, hsv, 2);
+                    t.cmyk(r, g, b, cmyk, 0, cmyk, 1, cmyk, 2, cmyk, 3);
+                    float[] eh = ColorConverter.rgbToHsv(r, g, b);
+                    float[] ec = ColorConverter.rgbToCmyk(r, g, b);
+                    float dh = Math.abs(hsv[0] - eh[0]);
+                    err[0] = Math.max(err[0], Math.min(dh, 360f - dh));
+                    for (int i = 1; i < 3; i++) err[i] = Math.max(err[i], Math.abs(hsv[i] - eh[i]));
+                    for (int i = 0; i < 4; i++) err[3 + i] = Math.max(err[3 + i], Math.abs(cmyk[i] - ec[i]));
+                }
+            }
+            return err;
+        }).reduce(new float[7], (a, b) -> {
+            float[] m = new float[7];
+            for (int i = 0; i < 7; i++) m[i] = Math.max(a[i], b[i]);
+            return m;
+        });
+    }
+
+    /** Печатает {@link #maxError()} для каждого вида таблицы; код выхода 1, если заявленная граница превышена. */
+    public static void main(String[] args) {
+        boolean ok = true;
+        for (int t = 0; t < ERROR_BOUNDS.length; t++) {
+            long budget = t == 0 ? FULL_TABLE_BYTES : GridTable.bytes(GRID_STEPS[t - 1]);
+            String name = t == 0 ? "полная" : "step=" + GRID_STEPS[t - 1];
+            float[] e = new ColorLut(budget).maxError();
+            System.out.printf("%s: H %.4f°, S %.2e, V %.2e, C %.2e, M %.2e, Y %.2e, K %.2e%n",
+                    name, e[0], e[1], e[2], e[3], e[4], e[5], e[6]);
+            for (int i = 0; i < e.length; i++) {
+                if (e[i] > ERROR_BOUNDS[t][i]) {
+                    System.out.printf("%s, %s: %.3e больше заявленных %.3e%n", name, ERROR_NAMES[i], e[i], ERROR_BOUNDS[t][i]);
+                    ok = false;
+                }
+            }
+        }
+        if (!ok) System.exit(1);
+    }
+
+    private Table table() {
+        Table t = table;
+        if (t == null) {
+            synchronized (this) {
+                t = table;
+                if (t == null) {
+                    if (budgetBytes >= FULL_TABLE_BYTES) {
+                        t = new FullTable();
+                    } else {
+                        int step = gridStep(budgetBytes);
+                        if (step == 0) return null; // бюджет слишком мал — точный режим
+                        t = new GridTable(step);
+                    }
+                    table = t;
+                }
+            }
+        }
+        return t;
+    }
+
+    private static int gridStep(long budget) {
+        for (int step : GRID_STEPS) {
+            if (GridTable.bytes(step) <= budget) return step;
+        }
+        return 0;
+    }
+
+    private static int max3(int r, int g, int b) {
+        return Math.max(r, Math.max(g, b));
+    }
+
+    private interface Table {
+        void hsv(int r, int g, int b, float[] h, int hi, float[] s, int si, float[] v, int vi);
+
+        void cmyk(int r, int g, int b, float[] c, int ci, float[] m, int mi, float[] y, int yi, float[] k, int ki);
+    }
+
+    /** Полная таблица: по 16 бит на H, S, C, M, Y; V и K восстанавливаются точно из max(r,g,b). */
+    private static final class FullTable implements Table {
+        private final char[] h = new char[1 << 24];
+        private final char[] s = new char[1 << 24];
+        private final char[] c = new char[1 << 24];
+        private final char[] m = new char[1 << 24];
+        private final char[] y = new char[1 << 24];
+
+        FullTable() {
+            IntStream.range(0, 256).parallel().forEach(r -> {
+                for (int g = 0; g < 256; g++) {
+                    for (int b = 0; b < 256; b++) {
+                        int i = (r << 16) | (g << 8) | b;
+                        float[] hsv = ColorConverter.rgbToHsv(r, g, b);
+                        float[] cmyk = ColorConverter.rgbToCmyk(r, g, b);
+                        h[i] = (char) Math.round(hsv[0] * HUE_SCALE);
+                        s[i] = unit16(hsv[1]);
+                        c[i] = unit16(cmyk[0]);
+                        m[i] = unit16(cmyk[1]);
+                        y[i] = unit16(cmyk[2]);
+                    }
+                }
+            });
+        }
+
+        private static char unit16(float v) {
+            return (char) Math.round(v * 65535f);
+        }
+
+        @Override
+        public void hsv(int r, int g, int b, float[] hOut, int hi, float[] sOut, int si, float[] vOut, int vi) {
+            int i = (r << 16) | (g << 8) | b;
+            hOut[hi] = h[i] / HUE_SCALE;
+            sOut[si] = s[i] / 65535f;
+            vOut[vi] = MAX_TO_FLOAT[max3(r, g, b)];
+        }
+
+        @Override
+        public void cmyk(int r, int g, int b, float[] cOut, int ci, float[] mOut, int mi,
+                         float[] yOut, int yi, float[] kOut, int ki) {
+            int i = (r << 16) | (g << 8) | b;
+            cOut[ci] = c[i] / 65535f;
+            mOut[mi] = m[i] / 65535f;
+            yOut[yi] = y[i] / 65535f;
+            kOut[ki] = 1 - MAX_TO_FLOAT[max3(r, g, b)];
+        }
+    }
+
+    /**
+     * Сетка (255/step + 1)^3 узлов с трилинейной интерполяцией.
+     * Шаг делит 255, поэтому узлы совпадают с точными значениями, а доли — кратны 1/step.
+     */
+    private static final class GridTable implements Table {
+        private final int n;
+        private final int[] cell = new int[256];
+        private final float[] frac = new float[256];
+        private final float[] h, s, c, m, y;
+        private final long[] exact; // ячейки, которые считаются без таблицы
+
+        static long bytes(int step) {
+            long n = 255 / step + 1;
+            return n * n * n * 5 * 4 + ((n - 1) * (n - 1) * (n - 1) + 63) / 64 * 8;
+        }
+
+        GridTable(int step) {
+            n = 255 / step + 1;
+            for (int v = 0; v < 256; v++) {
+                int q = Math.min(v / step, n - 2);
+                cell[v] = q;
+                frac[v] = (v - q * step) / (float) step;
+            }
+            int nodes = n * n * n;
+            h = new float[nodes];
+            s = new float[nodes];
+            c = new float[nodes];
+            m = new float[nodes];
+            y = new float[nodes];
+            IntStream.range(0, n).parallel().forEach(ri -> {
+                for (int gi = 0; gi < n; gi++) {
+                    for (int bi = 0; bi < n; bi++) {
+                        int i = (ri * n + gi) * n + bi;
+                        float[] hsv = ColorConverter.rgbToHsv(ri * step, gi * step, bi * step);
+                        float[] cmyk = ColorConverter.rgbToCmyk(ri * step, gi * step, bi * step);
+                        h[i] = hsv[0];
+                        s[i] = hsv[1];
+                        c[i] = cmyk[0];
+                        m[i] = cmyk[1];
+                        y[i] = cmyk[2];
+                    }
+                }
+            });
+
+            int cells = (n - 1) * (n - 1) * (n - 1);
+            exact = new long[(cells + 63) / 64];
+            for (int ri = 0; ri < n - 1; ri++) {
+                for (int gi = 0; gi < n - 1; gi++) {
+                    for (int bi = 0; bi < n - 1; bi++) {
+                        if (illConditioned(ri, gi, bi)) {
+                            int ci = (ri * (n - 1) + gi) * (n - 1) + bi;
+                            exact[ci >>> 6] |= 1L << ci;
+                        }
+                    }
+                }
+            }
+        }
+
+        private boolean illConditioned(int ri, int gi, int bi) {
+            int i0 = (ri * n + gi) * n + bi;
+            for (int corner = 1; corner < 8; corner++) {
+                int i = ((ri + (corner >> 2)) * n + gi + ((corner >> 1) & 1)) * n + bi + (corner & 1);
+                if (s[i] == 0 || s[i0] == 0) return true;
+                float d = Math.abs(h[i] - h[i0]);
+                if (Math.min(d, 360f - d) > MAX_HUE_SPREAD) return true;
+                if (Math.abs(s[i] - s[i0]) > MAX_SPREAD || Math.abs(c[i] - c[i0]) > MAX_SPREAD
+                        || Math.abs(m[i] - m[i0]) > MAX_SPREAD || Math.abs(y[i] - y[i0]) > MAX_SPREAD) return true;
+            }
+            return false;
+        }
+
+        int exactCells() {
+            int count = 0;
+            for (long word : exact) count += Long.bitCount(word);
+            return count;
+        }
+
+        private boolean isExact(int ri, int gi, int bi) {
+            int ci = (ri * (n - 1) + gi) * (n - 1) + bi;
+            return (exact[ci >>> 6] & (1L << ci)) != 0;
+        }
+
+        @Override
+        public void hsv(int r, int g, int b, float[] hOut, int hi, float[] sOut, int si, float[] vOut, int vi) {
+            int ri = cell[r], gi = cell[g], bi = cell[b];
+            if (isExact(ri, gi, bi)) {
+                ColorConverter.rgbToHsv(r, g, b, hOut, hi, sOut, si, vOut, vi);
+                return;
+            }
+            float fr = frac[r], fg = frac[g], fb = frac[b];
+            int i = (ri * n + gi) * n + bi;
+            float hue = lerpHue(i, fr, fg, fb);
+            hOut[hi] = hue < 0 ? hue + 360f : (hue >= 360f ? hue - 360f : hue);
+            sOut[si] = lerp(s, i, fr, fg, fb);
+            vOut[vi] = MAX_TO_FLOAT[max3(r, g, b)];
+        }
+
+        @Override
+        public void cmyk(int r, int g, int b, float[] cOut, int ci, float[] mOut, int mi,
+                         float[] yOut, int yi, float[] kOut, int ki) {
+            int ri = cell[r], gi = cell[g], bi = cell[b];
+            if (isExact(ri, gi, bi)) {
+                ColorConverter.rgbToCmyk(r, g, b, cOut, ci, mOut, mi, yOut, yi, kOut, ki);
+                return;
+            }
+            float fr = frac[r], fg = frac[g], fb = frac[b];
+            int i = (ri * n + gi) * n + bi;
+            cOut[ci] = lerp(c, i, fr, fg, fb);
+            mOut[mi] = lerp(m, i, fr, fg, fb);
+            yOut[yi] = lerp(y, i, fr, fg, fb);
+            kOut[ki] = 1 - MAX_TO_FLOAT[max3(r, g, b)];
+        }
+
+        private float lerp(float[] t, int i, float fr, float fg, float fb) {
+            int dg = n, dr = n * n;
+            float c00 = t[i] + (t[i + 1] - t[i]) * fb;
+            float c01 = t[i + dg] + (t[i + dg + 1] - t[i + dg]) * fb;
+            float c10 = t[i + dr] + (t[i + dr + 1] - t[i + dr]) * fb;
+            float c11 = t[i + dr + dg] + (t[i + dr + dg + 1] - t[i + dr + dg]) * fb;
+            float c0 = c00 + (c01 - c00) * fg;
+            float c1 = c10 + (c11 - c10) * fg;
+            return c0 + (c1 - c0) * fr;
+        }
+
+        /** Тон интерполируется по окружности: углы ячейки разворачиваются относительно первого. */
+        private float lerpHue(int i, float fr, float fg, float fb) {
+            int dg = n, dr = n * n;
+            float h0 = h[i];
+            float c00 = h0 + (unwrap(h0, h[i + 1]) - h0) * fb;
+            float a = unwrap(h0, h[i + dg]);
+            float c01 = a + (unwrap(h0, h[i + dg + 1]) - a) * fb;
+            float b = unwrap(h0, h[i + dr]);
+            float c10 = b + (unwrap(h0, h[i + dr + 1]) - b) * fb;
+            float d = unwrap(h0, h[i + dr + dg]);
+            float c11 = d + (unwrap(h0, h[i + dr + dg + 1]) - d) * fb;
+            float c0 = c00 + (c01 - c00) * fg;
+            float c1 = c10 + (c11 - c10) * fg;
+            return c0 + (c1 - c0) * fr;
+        }
+
+        private static float unwrap(float ref, float hue) {
+            if (hue - ref > 180f) return hue - 360f;
+            if (ref - hue > 180f) return hue + 360f;
+            return hue;
+        }
+    }
+}
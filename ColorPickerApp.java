@@ -3,6 +3,10 @@ import java.awt.*;
 
 public class ColorPickerApp extends JFrame {
 
+    // Модель — текущий цвет, заменяется целиком на каждое событие; виджеты подтягиваются
+    // к ней не чаще раза за кадр. internalUpdate гасит события от собственных setValue.
+    private ColorState state;
+    private final CoalescingScheduler frames = new CoalescingScheduler(this::render);
     private boolean internalUpdate = false;
 
     private JSlider rSlider, gSlider, bSlider;
@@ -14,26 +18,35 @@ public class ColorPickerApp extends JFrame {
     private JSlider hSlider, sSlider, vSlider;
     private JTextField hField, sField, vField;
 
+    private JSlider labLSlider, labASlider, labBSlider, lchCSlider, lchHSlider;
+    private JTextField labLField, labAField, labBField, lchCField, lchHField;
+
     private JPanel colorDisplay;
+    private ColorPickerPanel palette;
+    private final JLabel stats = new JLabel(" ");
 
     public ColorPickerApp() {
         super("Цветовой конвертер");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout(10, 10));
 
-        ColorPickerPanel palette = new ColorPickerPanel(360, 100, this::updateFromColor);
+        palette = new ColorPickerPanel(360, 100, this::updateFromColor);
         add(palette, BorderLayout.NORTH);
 
-        JPanel blocksPanel = new JPanel(new GridLayout(1, 3, 10, 0));
+        JPanel blocksPanel = new JPanel(new GridLayout(1, 4, 10, 0));
         blocksPanel.add(createRGBPanel());
         blocksPanel.add(createCMYKPanel());
         blocksPanel.add(createHSVPanel());
+        blocksPanel.add(createLabPanel());
         add(blocksPanel, BorderLayout.CENTER);
 
         colorDisplay = new JPanel();
         colorDisplay.setPreferredSize(new Dimension(100, 100));
         colorDisplay.setBorder(BorderFactory.createTitledBorder("Текущий цвет"));
-        add(colorDisplay, BorderLayout.SOUTH);
+        JPanel bottom = new JPanel(new BorderLayout());
+        bottom.add(colorDisplay, BorderLayout.CENTER);
+        bottom.add(stats, BorderLayout.SOUTH);
+        add(bottom, BorderLayout.SOUTH);
 
         pack();
         setLocationRelativeTo(null);
@@ -114,6 +127,38 @@ public class ColorPickerApp extends JFrame {
         return panel;
     }
 
+    // L общий: его ползунок пересчитывает из Lab, C и h — из LCh
+    private JPanel createLabPanel() {
+        JPanel panel = new JPanel(new GridLayout(5, 1));
+        panel.setBorder(BorderFactory.createTitledBorder("Lab / LCh"));
+
+        labLSlider = createSlider(0, 100);
+        labASlider = createSlider(-128, 127);
+        labBSlider = createSlider(-128, 127);
+        lchCSlider = createSlider(0, 150);
+        lchHSlider = createSlider(0, 360);
+
+        labLField = createTextField();
+        labAField = createTextField();
+        labBField = createTextField();
+        lchCField = createTextField();
+        lchHField = createTextField();
+
+        panel.add(createLabeledSlider("L", labLSlider, labLField));
+        panel.add(createLabeledSlider("a", labASlider, labAField));
+        panel.add(createLabeledSlider("b", labBSlider, labBField));
+        panel.add(createLabeledSlider("C", lchCSlider, lchCField));
+        panel.add(createLabeledSlider("h", lchHSlider, lchHField));
+
+        addSync(labLSlider, labLField, () -> updateFromLab());
+        addSync(labASlider, labAField, () -> updateFromLab());
+        addSync(labBSlider, labBField, () -> updateFromLab());
+        addSync(lchCSlider, lchCField, () -> updateFromLch());
+        addSync(lchHSlider, lchHField, () -> updateFromLch());
+
+        return panel;
+    }
+
 
     private JSlider createSlider(int min, int max) {
         JSlider slider = new JSlider(min, max);
@@ -137,10 +182,7 @@ public class ColorPickerApp extends JFrame {
 
     private void addSync(JSlider slider, JTextField field, Runnable onChange) {
         slider.addChangeListener(e -> {
-            if (!internalUpdate) {
-                field.setText(String.valueOf(slider.getValue()));
-                onChange.run();
-            }
+            if (!internalUpdate) onChange.run();
         });
 
         field.addActionListener(e -> {
@@ -157,88 +199,76 @@ public class ColorPickerApp extends JFrame {
     }
 
 
-    private void setColor(Color color, String sourceModel) {
-        if (internalUpdate) return;
-        internalUpdate = true;
-
-        int r = color.getRed();
-        int g = color.getGreen();
-        int b = color.getBlue();
-
-        // RGB
-        if (!sourceModel.equals("RGB")) {
-            rSlider.setValue(r);
-            gSlider.setValue(g);
-            bSlider.setValue(b);
-            rField.setText(String.valueOf(r));
-            gField.setText(String.valueOf(g));
-            bField.setText(String.valueOf(b));
-        }
-
-        // CMYK
-        if (!sourceModel.equals("CMYK")) {
-            float[] cmyk = ColorConverter.rgbToCmyk(r, g, b);
-            int C = Math.round(cmyk[0] * 100);
-            int M = Math.round(cmyk[1] * 100);
-            int Y = Math.round(cmyk[2] * 100);
-            int K = Math.round(cmyk[3] * 100);
-
-            cSlider.setValue(C);
-            mSlider.setValue(M);
-            ySlider.setValue(Y);
-            kSlider.setValue(K);
-
-            cField.setText(String.valueOf(C));
-            mField.setText(String.valueOf(M));
-            yField.setText(String.valueOf(Y));
-            kField.setText(String.valueOf(K));
-        }
-
-        // HSV
-        if (!sourceModel.equals("HSV")) {
-            float[] hsv = ColorConverter.rgbToHsv(r, g, b);
-            int H = Math.round(hsv[0]);
-            int S = Math.round(hsv[1] * 100);
-            int V = Math.round(hsv[2] * 100);
-
-            hSlider.setValue(H);
-            sSlider.setValue(S);
-            vSlider.setValue(V);
+    /** Новое состояние модели; виджеты обновятся на ближайшем кадре. */
+    private void update(ColorState next) {
+        state = next;
+        frames.request();
+    }
 
-            hField.setText(String.valueOf(H));
-            sField.setText(String.valueOf(S));
-            vField.setText(String.valueOf(V));
+    /** Переносит последнее состояние на виджеты — один раз за кадр, сколько бы событий ни пришло. */
+    private void render() {
+        ColorState st = state;
+        internalUpdate = true;
+        try {
+            show(rSlider, rField, st.r);
+            show(gSlider, gField, st.g);
+            show(bSlider, bField, st.b);
+
+            show(cSlider, cField, st.c);
+            show(mSlider, mField, st.m);
+            show(ySlider, yField, st.y);
+            show(kSlider, kField, st.k);
+
+            show(hSlider, hField, st.h);
+            show(sSlider, sField, st.s);
+            show(vSlider, vField, st.v);
+
+            show(labLSlider, labLField, st.labL);
+            show(labASlider, labAField, st.labA);
+            show(labBSlider, labBField, st.labB);
+            show(lchCSlider, lchCField, st.lchC);
+            show(lchHSlider, lchHField, st.lchH);
+
+            // палитра показывает плоскость H×S при текущей яркости и маркер выбранного цвета
+            palette.setBrightness(st.v / 100f);
+            palette.setSelection(st.h / 360f, st.s / 100f);
+
+            colorDisplay.setBackground(st.color());
+        } finally {
+            internalUpdate = false;
         }
+        stats.setText("Событий: " + frames.requests() + ", обновлений виджетов: " + frames.runs());
+    }
 
-        colorDisplay.setBackground(color);
-        internalUpdate = false;
+    // Ползунок и поле меняются, только если значение другое: лишний setValue — лишние события и перерисовка
+    private static void show(JSlider slider, JTextField field, int value) {
+        if (slider.getValue() != value) slider.setValue(value);
+        String text = String.valueOf(value);
+        if (!text.equals(field.getText())) field.setText(text);
     }
 
     private void updateFromRGB() {
-        setColor(new Color(rSlider.getValue(), gSlider.getValue(), bSlider.getValue()), "RGB");
+        update(ColorState.fromRgb(rSlider.getValue(), gSlider.getValue(), bSlider.getValue()));
     }
 
     private void updateFromCMYK() {
-        float c = cSlider.getValue() / 100f;
-        float m = mSlider.getValue() / 100f;
-        float y = ySlider.getValue() / 100f;
-        float k = kSlider.getValue() / 100f;
-
-        int[] rgb = ColorConverter.cmykToRgb(c, m, y, k);
-        setColor(new Color(rgb[0], rgb[1], rgb[2]), "CMYK");
+        update(ColorState.fromCmyk(cSlider.getValue(), mSlider.getValue(), ySlider.getValue(), kSlider.getValue()));
     }
 
     private void updateFromHSV() {
-        float h = hSlider.getValue();
-        float s = sSlider.getValue() / 100f;
-        float v = vSlider.getValue() / 100f;
+        update(ColorState.fromHsv(hSlider.getValue(), sSlider.getValue(), vSlider.getValue()));
+    }
+
+    private void updateFromLab() {
+        update(ColorState.fromLab(labLSlider.getValue(), labASlider.getValue(), labBSlider.getValue()));
+    }
 
-        int[] rgb = ColorConverter.hsvToRgb(h, s, v);
-        setColor(new Color(rgb[0], rgb[1], rgb[2]), "HSV");
+    private void updateFromLch() {
+        update(ColorState.fromLch(labLSlider.getValue(), lchCSlider.getValue(), lchHSlider.getValue()));
     }
 
     private void updateFromColor(Color color) {
-        setColor(color, "ColorPicker");
+        update(ColorState.fromColor(color));
     }
 
     public static void main(String[] args) {
@@ -2,21 +2,32 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 
+/**
+ * Палитра оттенок × насыщенность при заданной яркости V.
+ *
+ * Поле рисуется один раз в BufferedImage — прямо в его int[] растр, по пикселю, — и
+ * перестраивается только при смене размера области или яркости; paintComponent лишь
+ * копирует готовое изображение и рисует маркер выбранного цвета поверх.
+ */
 public class ColorPickerPanel extends JPanel {
 
     public interface ColorSelectionListener {
         void colorSelected(Color color);
     }
 
-    private final int width;
-    private final int height;
     private final ColorSelectionListener listener;
-    private final int cellSize = 3; // размер "пикселя" палитры
+
+    private float brightness = 1f;
+    // выбранный цвет в координатах палитры: оттенок и насыщенность 0..1, отрицательные — не задан
+    private float selHue = -1f, selSaturation = -1f;
+
+    private BufferedImage field;
+    private float fieldBrightness;
 
     public ColorPickerPanel(int width, int height, ColorSelectionListener listener) {
-        this.width = width;
-        this.height = height;
         this.listener = listener;
 
         setPreferredSize(new Dimension(width, height));
@@ -25,29 +36,76 @@ public class ColorPickerPanel extends JPanel {
         addMouseListener(new MouseAdapter() {
             @Override
             public void mouseClicked(MouseEvent e) {
-                int x = e.getX();
-                int y = e.getY();
-                float hue = (float) x / width;
-                float saturation = 1f - (float) y / height;
-                if (saturation < 0) saturation = 0;
-                if (saturation > 1) saturation = 1;
-                Color c = Color.getHSBColor(hue, saturation, 1f);
+                Rectangle area = fieldArea();
+                if (area.isEmpty()) return;
+                float hue = (float) (e.getX() - area.x) / area.width;
+                float saturation = 1f - (float) (e.getY() - area.y) / area.height;
+                hue = Math.max(0f, Math.min(1f, hue));
+                saturation = Math.max(0f, Math.min(1f, saturation));
+                setSelection(hue, saturation);
+                Color c = Color.getHSBColor(hue, saturation, brightness);
                 if (listener != null) listener.colorSelected(c);
             }
         });
     }
 
+    /** Яркость поля 0..1; поле перерисовывается только если она изменилась. */
+    public void setBrightness(float v) {
+        if (v == brightness) return;
+        brightness = v;
+        repaint();
+    }
+
+    public float getBrightness() {
+        return brightness;
+    }
+
+    /** Положение маркера: оттенок и насыщенность 0..1. */
+    public void setSelection(float hue, float saturation) {
+        if (hue == selHue && saturation == selSaturation) return;
+        selHue = hue;
+        selSaturation = saturation;
+        repaint();
+    }
+
     @Override
     protected void paintComponent(Graphics g) {
         super.paintComponent(g);
-        for (int x = 0; x < width; x += cellSize) {
-            for (int y = 0; y < height; y += cellSize) {
-                float hue = (float) x / width;
-                float saturation = 1f - (float) y / height;
-                Color color = Color.getHSBColor(hue, saturation, 1f);
-                g.setColor(color);
-                g.fillRect(x, y, cellSize, cellSize);
+        Rectangle area = fieldArea();
+        if (area.isEmpty()) return;
+        g.drawImage(field(area.width, area.height), area.x, area.y, null);
+
+        if (selHue >= 0) {
+            int x = area.x + Math.round(selHue * (area.width - 1));
+            int y = area.y + Math.round((1f - selSaturation) * (area.height - 1));
+            // светлое поле — тёмный маркер, и наоборот
+            g.setColor(brightness > 0.5f ? Color.BLACK : Color.WHITE);
+            g.drawOval(x - 4, y - 4, 8, 8);
+        }
+    }
+
+    /** Область поля внутри рамки, по текущему размеру компонента. */
+    private Rectangle fieldArea() {
+        Insets in = getInsets();
+        return new Rectangle(in.left, in.top,
+                Math.max(0, getWidth() - in.left - in.right), Math.max(0, getHeight() - in.top - in.bottom));
+    }
+
+    private BufferedImage field(int w, int h) {
+        if (field != null && field.getWidth() == w && field.getHeight() == h && fieldBrightness == brightness) {
+            return field;
+        }
+        if (field == null || field.getWidth() != w || field.getHeight() != h) {
+            field = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        }
+        int[] px = ((DataBufferInt) field.getRaster().getDataBuffer()).getData();
+        for (int y = 0; y < h; y++) {
+            float saturation = 1f - (float) y / h;
+            for (int x = 0; x < w; x++) {
+                px[y * w + x] = Color.HSBtoRGB((float) x / w, saturation, brightness);
             }
         }
+        fieldBrightness = brightness;
+        return field;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,258 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Исчерпывающая проверка круговых преобразований и их скорости — одной командой.
+ * <pre>
+ *   java --add-modules jdk.incubator.vector ColorRoundTrip [--threads N] [--lut-bytes N] [фильтр]
+ * </pre>
+ * Все 2^24 цвета RGB параллельно проходят каждый путь туда и обратно: RGB → HSV → RGB и
+ * RGB → CMYK → RGB для каждой реализации {@link ColorEngine} (float, simd, fixed) и для
+ * прямых таблиц {@link ColorLut} с обратным float-преобразованием, плюс цепочка
+ * RGB → HSV → CMYK → HSV → RGB через hsvToCmyk/cmykToHsv. Фильтр — подстрока имени пути.
+ *
+ * Ошибка цвета — наибольшее расхождение канала с исходным, в уровнях 0..255. По каждому
+ * пути печатаются максимум, среднее, гистограмма (0, 1, …, 7, ≥ 8) и худшие входы, а также
+ * скорость: преобразований в секунду на ядро (шаг «туда» или «обратно» — одно
+ * преобразование). Скорость меряется отдельно от точности и в отдельной JVM на путь, как
+ * у форков JMH: иначе профиль JIT, набранный на прежних путях, замедляет следующие в разы.
+ * Там те же 2^24 цвета проходят путь без подсчёта ошибок {@link #ROUNDS} раз и берётся
+ * лучший проход — первые служат прогревом.
+ */
+public final class ColorRoundTrip {
+
+    private static final int BUCKETS = 9;
+    private static final int WORST = 5;
+    private static final int ROW = 256;
+    private static final int ROUNDS = 5;
+
+    /** Контрольная сумма замеров — чтобы JIT не выбросил преобразования без потребителя. */
+    private static volatile int sink;
+
+    /** Путь: строка ARGB → строка ARGB после преобразований; буферы — свои у каждого потока. */
+    private interface Path {
+        void run(int[] in, int[] out, Scratch t);
+    }
+
+    private static final class Scratch {
+        final float[] a = new float[ROW], b = new float[ROW], c = new float[ROW], d = new float[ROW];
+        final float[] e = new float[ROW], f = new float[ROW], g = new float[ROW];
+    }
+
+    private static final class Case {
+        final String name;
+        final int steps;
+        final Path path;
+
+        Case(String name, int steps, Path path) {
+            this.name = name;
+            this.steps = steps;
+            this.path = path;
+        }
+    }
+
+    /** Статистика одного пути; сливается из частей по красному каналу. */
+    private static final class Stats {
+        final long[] histogram = new long[BUCKETS];
+        long sum;
+        int max;
+        final int[] worstRgb = new int[WORST], worstOut = new int[WORST], worstErr = new int[WORST];
+        int worstCount;
+
+        void add(int rgb, int out, int err) {
+            histogram[Math.min(err, BUCKETS - 1)]++;
+            sum += err;
+            max = Math.max(max, err);
+            if (err > 0) offer(rgb, out, err);
+        }
+
+        /** Держит WORST худших по убыванию ошибки; при равенстве — первые по порядку RGB. */
+        void offer(int rgb, int out, int err) {
+            if (worstCount == WORST && err <= worstErr[WORST - 1]) return;
+            int i = Math.min(worstCount, WORST - 1);
+            while (i > 0 && (worstErr[i - 1] < err || (worstErr[i - 1] == err && worstRgb[i - 1] > rgb))) {
+                worstErr[i] = worstErr[i - 1];
+                worstRgb[i] = worstRgb[i - 1];
+                worstOut[i] = worstOut[i - 1];
+                i--;
+            }
+            worstErr[i] = err;
+            worstRgb[i] = rgb;
+            worstOut[i] = out;
+            if (worstCount < WORST) worstCount++;
+        }
+
+        Stats merge(Stats o) {
+            Stats m = new Stats();
+            for (int i = 0; i < BUCKETS; i++) m.histogram[i] = histogram[i] + o.histogram[i];
+            m.sum = sum + o.sum;
+            m.max = Math.max(max, o.max);
+            for (int i = 0; i < worstCount; i++) m.offer(worstRgb[i], worstOut[i], worstErr[i]);
+            for (int i = 0; i < o.worstCount; i++) m.offer(o.worstRgb[i], o.worstOut[i], o.worstErr[i]);
+            return m;
+        }
+    }
+
+    private ColorRoundTrip() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        long lutBytes = 16L << 20;
+        String filter = "";
+        int timeOnly = -1;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--threads")) threads = Integer.parseInt(args[++i]);
+            else if (args[i].equals("--lut-bytes")) lutBytes = Long.parseLong(args[++i]);
+            else if (args[i].equals("--time")) timeOnly = Integer.parseInt(args[++i]);
+            else filter = args[i];
+        }
+        ColorLut lut = new ColorLut(lutBytes);
+        if (timeOnly >= 0) {
+            // дочерняя JVM замера: печатает только время прохода
+            Case c = cases(lut).get(timeOnly);
+            if (c.name.startsWith("lut")) lut.rgbToHsv(0, 0, 0, new float[3]); // таблица строится вне замера
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            System.out.println(pool.submit(() -> time(c)).get());
+            pool.shutdown();
+            return;
+        }
+        System.out.printf(Locale.ROOT, "Потоков: %d; simd: %s; LUT: %.1f МиБ%n",
+                threads, ColorConverterSimd.VECTOR_AVAILABLE ? "векторные ядра" : "нет (скалярный путь)",
+                lut.tableBytes() / (1024.0 * 1024.0));
+
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            List<Case> cases = cases(lut);
+            for (int i = 0; i < cases.size(); i++) {
+                Case c = cases.get(i);
+                if (!c.name.contains(filter)) continue;
+                Stats s = pool.submit(() -> sweep(c, 0, 256)).get();
+                report(c, s, timeForked(i, threads, lutBytes), threads);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static List<Case> cases(ColorLut lut) {
+        List<Case> cases = new ArrayList<>();
+        for (ColorEngine e : new ColorEngine[]{ColorEngine.FLOAT, ColorEngine.SIMD, ColorEngine.FIXED}) {
+            String n = e == ColorEngine.SIMD ? "simd" : e.name();
+            cases.add(new Case(n + " RGB→HSV→RGB", 2, (in, out, t) -> {
+                e.rgbToHsv(in, 0, t.a, t.b, t.c, 0, ROW);
+                e.hsvToRgb(t.a, t.b, t.c, 0, out, 0, ROW);
+            }));
+            cases.add(new Case(n + " RGB→CMYK→RGB", 2, (in, out, t) -> {
+                e.rgbToCmyk(in, 0, t.a, t.b, t.c, t.d, 0, ROW);
+                e.cmykToRgb(t.a, t.b, t.c, t.d, 0, out, 0, ROW);
+            }));
+        }
+        cases.add(new Case("float RGB→HSV→CMYK→HSV→RGB", 4, (in, out, t) -> {
+            ColorConverter.rgbToHsv(in, 0, t.a, t.b, t.c, 0, ROW);
+            ColorConverter.hsvToCmyk(t.a, t.b, t.c, 0, t.d, t.e, t.f, t.g, 0, ROW);
+            ColorConverter.cmykToHsv(t.d, t.e, t.f, t.g, 0, t.a, t.b, t.c, 0, ROW);
+            ColorConverter.hsvToRgb(t.a, t.b, t.c, 0, out, 0, ROW);
+        }));
+        cases.add(new Case("lut RGB→HSV→RGB", 2, (in, out, t) -> {
+            lut.rgbToHsv(in, 0, t.a, t.b, t.c, 0, ROW);
+            ColorConverter.hsvToRgb(t.a, t.b, t.c, 0, out, 0, ROW);
+        }));
+        cases.add(new Case("lut RGB→CMYK→RGB", 2, (in, out, t) -> {
+            lut.rgbToCmyk(in, 0, t.a, t.b, t.c, t.d, 0, ROW);
+            ColorConverter.cmykToRgb(t.a, t.b, t.c, t.d, 0, out, 0, ROW);
+        }));
+        return cases;
+    }
+
+    /** Цвета с красным каналом в [r0, r1) — по задаче на значение красного. */
+    private static Stats sweep(Case c, int r0, int r1) {
+        return IntStream.range(r0, r1).parallel()
+                .mapToObj(r -> sweepRed(c, r, new int[ROW], new int[ROW], new Scratch()))
+                .reduce(new Stats(), Stats::merge);
+    }
+
+    /**
+     * Буферы строк — параметрами: если метод с длинным циклом создаёт их сам, C2 компилирует
+     * его так, что float-путь HSV идёт на порядок медленнее, и замер показывает обвязку.
+     */
+    private static Stats sweepRed(Case c, int r, int[] in, int[] out, Scratch t) {
+        Stats s = new Stats();
+        for (int g = 0; g < 256; g++) {
+            for (int b = 0; b < ROW; b++) in[b] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            c.path.run(in, out, t);
+            for (int b = 0; b < ROW; b++) {
+                int p = in[b], q = out[b];
+                int err = Math.max(Math.abs(((p >> 16) & 0xFF) - ((q >> 16) & 0xFF)),
+                        Math.max(Math.abs(((p >> 8) & 0xFF) - ((q >> 8) & 0xFF)), Math.abs((p & 0xFF) - (q & 0xFF))));
+                s.add(p & 0xFFFFFF, q & 0xFFFFFF, err);
+            }
+        }
+        return s;
+    }
+
+    /** Время пути index из {@link #time}, запущенного в новой JVM с теми же флагами и classpath. */
+    private static long timeForked(int index, int threads, long lutBytes) throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(ProcessHandle.current().info().command().orElse("java"));
+        cmd.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(ColorRoundTrip.class.getName());
+        cmd.addAll(List.of("--threads", String.valueOf(threads), "--lut-bytes", String.valueOf(lutBytes),
+                "--time", String.valueOf(index)));
+        Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(p.getInputStream()))) {
+            for (String line; (line = r.readLine()) != null; ) lines.add(line);
+        }
+        // последняя строка — время; выше может быть только предупреждение об incubator-модуле
+        if (p.waitFor() != 0 || lines.isEmpty()) throw new IllegalStateException("замер в отдельной JVM не удался: " + lines);
+        return Long.parseLong(lines.get(lines.size() - 1).trim());
+    }
+
+    /** Лучшее из {@link #ROUNDS} время прохода всех цветов без статистики, нс. */
+    private static long time(Case c) {
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long t = System.nanoTime();
+            sink += IntStream.range(0, 256).parallel().map(r -> convertRed(c, r, new int[ROW], new int[ROW], new Scratch())).sum();
+            best = Math.min(best, System.nanoTime() - t);
+        }
+        return best;
+    }
+
+    private static int convertRed(Case c, int r, int[] in, int[] out, Scratch t) {
+        int check = 0;
+        for (int g = 0; g < 256; g++) {
+            for (int b = 0; b < ROW; b++) in[b] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            c.path.run(in, out, t);
+            check += out[g & (ROW - 1)];
+        }
+        return check;
+    }
+
+    private static void report(Case c, Stats s, long ns, int threads) {
+        long n = 1L << 24;
+        double perCore = (double) n * c.steps / (ns / 1e9) / threads;
+        System.out.printf(Locale.ROOT, "%n%s: макс %d, среднее %.5f, %.1f млн преобр./с на ядро (проход %.2f с)%n",
+                c.name, s.max, (double) s.sum / n, perCore / 1e6, ns / 1e9);
+        StringBuilder h = new StringBuilder("  гистограмма:");
+        for (int i = 0; i < BUCKETS; i++) {
+            if (s.histogram[i] == 0) continue;
+            h.append(' ').append(i == BUCKETS - 1 ? "≥" + i : String.valueOf(i)).append(": ").append(s.histogram[i]);
+        }
+        System.out.println(h);
+        for (int i = 0; i < s.worstCount; i++) {
+            System.out.printf(Locale.ROOT, "  #%06X → #%06X (ошибка %d)%n", s.worstRgb[i], s.worstOut[i], s.worstErr[i]);
+        }
+        if (s.worstCount == 0) System.out.println("  все цвета восстановлены точно");
+    }
+}
@@ -0,0 +1,98 @@
+import java.awt.Color;
+
+/**
+ * Текущий цвет ColorPickerApp во всех трёх моделях сразу — так, как он показан на ползунках.
+ *
+ * Неизменяемый: каждое изменение — новый объект, модель заменяется одним присваиванием.
+ * Ползунки модели, которую правил пользователь, не «прыгают» из-за округления RGB.
+ */
+public final class ColorState {
+
+    public final int r, g, b;       // 0..255
+    public final int c, m, y, k;    // проценты 0..100
+    public final int h;             // градусы 0..360
+    public final int s, v;          // проценты 0..100
+    public final int labL;          // 0..100
+    public final int labA, labB;    // примерно −128..127
+    public final int lchC;          // 0..150
+    public final int lchH;          // градусы 0..360
+
+    private ColorState(int r, int g, int b, int[] cmyk, int[] hsv) {
+        this(r, g, b, cmyk, hsv, labOf(r, g, b));
+    }
+
+    private ColorState(int r, int g, int b, int[] cmyk, int[] hsv, int[] lab) {
+        this.r = r;
+        this.g = g;
+        this.b = b;
+        this.c = cmyk[0];
+        this.m = cmyk[1];
+        this.y = cmyk[2];
+        this.k = cmyk[3];
+        this.h = hsv[0];
+        this.s = hsv[1];
+        this.v = hsv[2];
+        this.labL = lab[0];
+        this.labA = lab[1];
+        this.labB = lab[2];
+        this.lchC = lab[3];
+        this.lchH = lab[4];
+    }
+
+    public static ColorState fromRgb(int r, int g, int b) {
+        return new ColorState(r, g, b, cmykOf(r, g, b), hsvOf(r, g, b));
+    }
+
+    public static ColorState fromCmyk(int c, int m, int y, int k) {
+        int[] rgb = ColorConverter.cmykToRgb(c / 100f, m / 100f, y / 100f, k / 100f);
+        return new ColorState(rgb[0], rgb[1], rgb[2], new int[]{c, m, y, k}, hsvOf(rgb[0], rgb[1], rgb[2]));
+    }
+
+    public static ColorState fromHsv(int h, int s, int v) {
+        int[] rgb = ColorConverter.hsvToRgb(h, s / 100f, v / 100f);
+        return new ColorState(rgb[0], rgb[1], rgb[2], cmykOf(rgb[0], rgb[1], rgb[2]), new int[]{h, s, v});
+    }
+
+    /** Lab задан пользователем, LCh выводится из него же, а не из округлённого RGB. */
+    public static ColorState fromLab(int l, int a, int b) {
+        int[] rgb = ColorConverterCie.labToRgb(l, a, b);
+        float[] lch = ColorConverterCie.labToLch(l, a, b);
+        int[] lab = {l, a, b, Math.round(lch[1]), Math.round(lch[2])};
+        return new ColorState(rgb[0], rgb[1], rgb[2], cmykOf(rgb[0], rgb[1], rgb[2]), hsvOf(rgb[0], rgb[1], rgb[2]), lab);
+    }
+
+    /** LCh задан пользователем, a/b выводятся из него. */
+    public static ColorState fromLch(int l, int c, int h) {
+        int[] rgb = ColorConverterCie.lchToRgb(l, c, h);
+        float[] ab = ColorConverterCie.lchToLab(l, c, h);
+        int[] lab = {l, Math.round(ab[1]), Math.round(ab[2]), c, h};
+        return new ColorState(rgb[0], rgb[1], rgb[2], cmykOf(rgb[0], rgb[1], rgb[2]), hsvOf(rgb[0], rgb[1], rgb[2]), lab);
+    }
+
+    /** Цвет из палитры: все модели выводятся из RGB. */
+    public static ColorState fromColor(Color color) {
+        int r = color.getRed(), g = color.getGreen(), b = color.getBlue();
+        return new ColorState(r, g, b, cmykOf(r, g, b), hsvOf(r, g, b));
+    }
+
+    public Color color() {
+        return new Color(r, g, b);
+    }
+
+    private static int[] cmykOf(int r, int g, int b) {
+        float[] cmyk = ColorConverter.rgbToCmyk(r, g, b);
+        return new int[]{Math.round(cmyk[0] * 100), Math.round(cmyk[1] * 100), Math.round(cmyk[2] * 100), Math.round(cmyk[3] * 100)};
+    }
+
+    /** {L, a, b, C, h}. */
+    private static int[] labOf(int r, int g, int b) {
+        float[] lab = ColorConverterCie.rgbToLab(r, g, b);
+        float[] lch = ColorConverterCie.labToLch(lab[0], lab[1], lab[2]);
+        return new int[]{Math.round(lab[0]), Math.round(lab[1]), Math.round(lab[2]), Math.round(lch[1]), Math.round(lch[2])};
+    }
+
+    private static int[] hsvOf(int r, int g, int b) {
+        float[] hsv = ColorConverter.rgbToHsv(r, g, b);
+        return new int[]{Math.round(hsv[0]), Math.round(hsv[1] * 100), Math.round(hsv[2] * 100)};
+    }
+}
@@ -0,0 +1,169 @@
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Векторные (jdk.incubator.vector) ядра преобразования строк пикселей.
+ * Напрямую не вызывать: класс загружается только через {@link ColorConverterSimd},
+ * который проверяет наличие модуля (--add-modules jdk.incubator.vector).
+ *
+ * Арифметика повторяет ColorConverter операция в операцию, ветвления заменены масками.
+ * Результаты побитово совпадают со скалярным кодом.
+ */
+final class ColorVectorKernels {
+
+    private static final VectorSpecies<Float> F = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> I = IntVector.SPECIES_PREFERRED;
+    private static final float TWO_23 = 0x1.0p23f;
+    private static final int TWO_23_BITS = Float.floatToIntBits(TWO_23);
+
+    private ColorVectorKernels() {
+    }
+
+    static int lanes() {
+        return Math.min(F.length(), I.length());
+    }
+
+    static void rgbToHsv(int[] argb, int srcOff, float[] h, float[] s, float[] v, int dstOff, int length) {
+        int bound = vectorBound(length);
+        int i = 0;
+        for (; i < bound; i += F.length()) {
+            IntVector p = IntVector.fromArray(I, argb, srcOff + i);
+            FloatVector rf = channel(p, 16).div(255f);
+            FloatVector gf = channel(p, 8).div(255f);
+            FloatVector bf = channel(p, 0).div(255f);
+
+            FloatVector max = rf.max(gf.max(bf));
+            FloatVector min = rf.min(gf.min(bf));
+            FloatVector delta = max.sub(min);
+
+            // |(g - b) / delta| ≤ 1, поэтому «% 6» из скалярного кода здесь тождественно
+            FloatVector hr = gf.sub(bf).div(delta);
+            FloatVector hg = bf.sub(rf).div(delta).add(2f);
+            FloatVector hb = rf.sub(gf).div(delta).add(4f);
+            FloatVector hue = hb.blend(hg, max.eq(gf)).blend(hr, max.eq(rf)).mul(60f);
+            hue = hue.add(360f, hue.lt(0f));
+            hue = FloatVector.zero(F).blend(hue, delta.compare(VectorOperators.GT, 0f));
+
+            FloatVector sat = delta.div(max).blend(0f, max.eq(0f));
+
+            hue.intoArray(h, dstOff + i);
+            sat.intoArray(s, dstOff + i);
+            max.intoArray(v, dstOff + i);
+        }
+        ColorConverter.rgbToHsv(argb, srcOff + i, h, s, v, dstOff + i, length - i);
+    }
+
+    static void hsvToRgb(float[] h, float[] s, float[] v, int srcOff, int[] argb, int dstOff, int length) {
+        int bound = vectorBound(length);
+        int i = 0;
+        for (; i < bound; i += F.length()) {
+            FloatVector hue = FloatVector.fromArray(F, h, srcOff + i);
+            hue = rem(rem(hue, 360f).add(360f), 360f);
+            FloatVector sat = clamp01(FloatVector.fromArray(F, s, srcOff + i));
+            FloatVector val = clamp01(FloatVector.fromArray(F, v, srcOff + i));
+
+            FloatVector c = val.mul(sat);
+            FloatVector x = c.mul(rem(hue.div(60f), 2f).sub(1f).abs().neg().add(1f));
+            FloatVector m = val.sub(c);
+            FloatVector zero = FloatVector.zero(F);
+
+            // шесть секторов тона: начинаем с последнего и «накрываем» масками h < 300, 240, ...
+            VectorMask<Float> lt300 = hue.lt(300f), lt240 = hue.lt(240f), lt180 = hue.lt(180f);
+            VectorMask<Float> lt120 = hue.lt(120f), lt60 = hue.lt(60f);
+            FloatVector rf = c.blend(x, lt300).blend(zero, lt240).blend(x, lt120).blend(c, lt60);
+            FloatVector gf = zero.blend(x, lt240).blend(c, lt180).blend(x, lt60);
+            FloatVector bf = x.blend(c, lt300).blend(x, lt180).blend(zero, lt120);
+
+            IntVector r = round(rf.add(m).mul(255f));
+            IntVector g = round(gf.add(m).mul(255f));
+            IntVector b = round(bf.add(m).mul(255f));
+            pack(r, g, b).intoArray(argb, dstOff + i);
+        }
+        ColorConverter.hsvToRgb(h, s, v, srcOff + i, argb, dstOff + i, length - i);
+    }
+
+    static void rgbToCmyk(int[] argb, int srcOff, float[] c, float[] m, float[] y, float[] k,
+                          int dstOff, int length) {
+        int bound = vectorBound(length);
+        int i = 0;
+        for (; i < bound; i += F.length()) {
+            IntVector p = IntVector.fromArray(I, argb, srcOff + i);
+            FloatVector rf = channel(p, 16).div(255f);
+            FloatVector gf = channel(p, 8).div(255f);
+            FloatVector bf = channel(p, 0).div(255f);
+
+            FloatVector kk = rf.max(gf.max(bf)).neg().add(1f);
+            FloatVector inv = kk.neg().add(1f);
+            VectorMask<Float> chromatic = kk.lt(1f);
+            FloatVector zero = FloatVector.zero(F);
+
+            zero.blend(rf.neg().add(1f).sub(kk).div(inv), chromatic).intoArray(c, dstOff + i);
+            zero.blend(gf.neg().add(1f).sub(kk).div(inv), chromatic).intoArray(m, dstOff + i);
+            zero.blend(bf.neg().add(1f).sub(kk).div(inv), chromatic).intoArray(y, dstOff + i);
+            kk.intoArray(k, dstOff + i);
+        }
+        ColorConverter.rgbToCmyk(argb, srcOff + i, c, m, y, k, dstOff + i, length - i);
+    }
+
+    static void cmykToRgb(float[] c, float[] m, float[] y, float[] k, int srcOff,
+                          int[] argb, int dstOff, int length) {
+        int bound = vectorBound(length);
+        int i = 0;
+        for (; i < bound; i += F.length()) {
+            FloatVector kk = clamp01(FloatVector.fromArray(F, k, srcOff + i)).neg().add(1f);
+            FloatVector cc = clamp01(FloatVector.fromArray(F, c, srcOff + i)).neg().add(1f);
+            FloatVector mm = clamp01(FloatVector.fromArray(F, m, srcOff + i)).neg().add(1f);
+            FloatVector yy = clamp01(FloatVector.fromArray(F, y, srcOff + i)).neg().add(1f);
+
+            IntVector r = round(cc.mul(255f).mul(kk));
+            IntVector g = round(mm.mul(255f).mul(kk));
+            IntVector b = round(yy.mul(255f).mul(kk));
+            pack(r, g, b).intoArray(argb, dstOff + i);
+        }
+        ColorConverter.cmykToRgb(c, m, y, k, srcOff + i, argb, dstOff + i, length - i);
+    }
+
+    private static int vectorBound(int length) {
+        return F.length() == I.length() ? F.loopBound(length) : 0;
+    }
+
+    private static FloatVector channel(IntVector argb, int shift) {
+        return (FloatVector) argb.lanewise(VectorOperators.LSHR, shift).and(0xFF)
+                .convert(VectorOperators.I2F, 0);
+    }
+
+    private static FloatVector clamp01(FloatVector v) {
+        return v.min(1f).max(0f);
+    }
+
+    /** x % d: x - d * trunc(x / d). */
+    private static FloatVector rem(FloatVector x, float d) {
+        return x.sub(trunc(x.div(d)).mul(d));
+    }
+
+    // Округления сделаны через 2^23 без F2I: в JDK 17 векторное F2I не интринсифицировано
+
+    private static FloatVector trunc(FloatVector x) {
+        FloatVector a = x.abs();
+        FloatVector r = a.add(TWO_23).sub(TWO_23);
+        r = r.sub(1f, r.compare(VectorOperators.GT, a)).blend(a, a.compare(VectorOperators.GE, TWO_23));
+        return r.blend(r.neg(), x.lt(0f));
+    }
+
+    /** Math.round для 0 ≤ v < 2^22: округление к чётному, затем половины — вверх. */
+    private static IntVector round(FloatVector v) {
+        FloatVector r = v.add(TWO_23).sub(TWO_23);
+        r = r.add(1f, v.sub(r).compare(VectorOperators.GE, 0.5f));
+        return r.add(TWO_23).reinterpretAsInts().sub(TWO_23_BITS);
+    }
+
+    private static IntVector pack(IntVector r, IntVector g, IntVector b) {
+        return r.lanewise(VectorOperators.LSHL, 16)
+                .or(g.lanewise(VectorOperators.LSHL, 8))
+                .or(b)
+                .or(0xFF000000);
+    }
+}
@@ -0,0 +1,318 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Цветокоррекция целого изображения через HSV и CMYK — та же математика, что у ползунков
+ * ColorPickerApp, но на каждом пикселе.
+ * <pre>
+ *   ImageAdjustment a = ImageAdjustment.create().hueShift(30).saturation(1.2f).inkLimit(2.8f);
+ *   BufferedImage out = a.apply(photo);
+ *   BufferedImage[] cmyk = a.plates(photo);   // C, M, Y, K — серые изображения
+ * </pre>
+ * Цепочка неизменяема: каждый метод возвращает новую. Соседние шаги одного пространства
+ * сворачиваются при добавлении: сдвиги тона складываются, множители S и V перемножаются
+ * (обрезка по 1 учитывается точно: min(min(s·a, 1)·b, 1) = min(s·a·b, b, 1)), множители
+ * каналов CMYK — так же, два лимита краски — в меньший. Свёрнутая цепочка — несколько
+ * этапов, каждый переводит строку в своё пространство и обратно один раз; все этапы идут
+ * одним проходом по изображению. Переход между этапами — через 8-битный RGB, как если бы
+ * коррекции применялись к изображению по очереди; внутри этапа промежуточного округления нет.
+ *
+ * Строки читаются прямо из массива растра (INT_RGB/INT_ARGB), полосы строк обрабатываются
+ * параллельно. Преобразования — {@link ColorEngine} ({@link ColorEngine#DEFAULT}, можно
+ * заменить {@link #using(ColorEngine)}). Альфа сохраняется.
+ */
+public final class ImageAdjustment {
+
+    public static final int CYAN = 0, MAGENTA = 1, YELLOW = 2, BLACK = 3;
+
+    private static final int BAND_ROWS = 32;
+
+    /** Свёрнутый этап: правит строку ARGB на месте. */
+    private abstract static class Stage {
+        abstract void apply(int[] row, int n, Scratch t, ColorEngine engine);
+    }
+
+    /** h' = h + shift, s' = min(s·sK, sCap), v' = min(v·vK, vCap). */
+    private static final class HsvStage extends Stage {
+        final float shift, sK, sCap, vK, vCap;
+
+        HsvStage(float shift, float sK, float sCap, float vK, float vCap) {
+            this.shift = shift;
+            this.sK = sK;
+            this.sCap = sCap;
+            this.vK = vK;
+            this.vCap = vCap;
+        }
+
+        @Override
+        void apply(int[] row, int n, Scratch t, ColorEngine engine) {
+            engine.rgbToHsv(row, 0, t.a, t.b, t.c, 0, n);
+            for (int i = 0; i < n; i++) {
+                float h = t.a[i] + shift;
+                t.a[i] = h >= 360f ? h - 360f : h;
+                t.b[i] = Math.min(t.b[i] * sK, sCap);
+                t.c[i] = Math.min(t.c[i] * vK, vCap);
+            }
+            engine.hsvToRgb(t.a, t.b, t.c, 0, row, 0, n);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "HSV[h%+.1f°, s×%.3g≤%.3g, v×%.3g≤%.3g]", shift, sK, sCap, vK, vCap);
+        }
+    }
+
+    /** Шаги CMYK по порядку: множители каналов (k, cap) или лимит суммы. */
+    private static final class CmykStage extends Stage {
+        final List<float[]> ops; // {k0..k3, cap0..cap3} или {limit}
+
+        CmykStage(List<float[]> ops) {
+            this.ops = ops;
+        }
+
+        @Override
+        void apply(int[] row, int n, Scratch t, ColorEngine engine) {
+            float[][] ch = {t.a, t.b, t.c, t.d};
+            engine.rgbToCmyk(row, 0, t.a, t.b, t.c, t.d, 0, n);
+            for (float[] op : ops) {
+                if (op.length == 8) {
+                    for (int j = 0; j < 4; j++) {
+                        float[] p = ch[j];
+                        float k = op[j], cap = op[4 + j];
+                        if (k == 1f && cap >= 1f) continue;
+                        for (int i = 0; i < n; i++) p[i] = Math.min(p[i] * k, cap);
+                    }
+                } else {
+                    limit(t, n, op[0]);
+                }
+            }
+            engine.cmykToRgb(t.a, t.b, t.c, t.d, 0, row, 0, n);
+        }
+
+        /** Сумма C+M+Y+K не больше limit: K сохраняется, C/M/Y уменьшаются пропорционально. */
+        private static void limit(Scratch t, int n, float limit) {
+            for (int i = 0; i < n; i++) {
+                float cmy = t.a[i] + t.b[i] + t.c[i];
+                if (cmy + t.d[i] <= limit) continue;
+                float k = Math.min(t.d[i], limit);
+                float f = cmy > 0 ? (limit - k) / cmy : 0;
+                t.a[i] *= f;
+                t.b[i] *= f;
+                t.c[i] *= f;
+                t.d[i] = k;
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder("CMYK[");
+            for (float[] op : ops) {
+                if (sb.length() > 5) sb.append(", ");
+                if (op.length == 8) {
+                    sb.append(String.format(Locale.ROOT, "×(%.3g %.3g %.3g %.3g)", op[0], op[1], op[2], op[3]));
+                } else {
+                    sb.append(String.format(Locale.ROOT, "лимит %.0f%%", op[0] * 100));
+                }
+            }
+            return sb.append(']').toString();
+        }
+    }
+
+    private static final class Scratch {
+        final int[] alpha;
+        final float[] a, b, c, d;
+
+        Scratch(int w) {
+            alpha = new int[w];
+            a = new float[w];
+            b = new float[w];
+            c = new float[w];
+            d = new float[w];
+        }
+    }
+
+    private final List<Stage> stages;
+    private final ColorEngine engine;
+
+    private ImageAdjustment(List<Stage> stages, ColorEngine engine) {
+        this.stages = stages;
+        this.engine = engine;
+    }
+
+    /** Пустая цепочка: apply копирует изображение. */
+    public static ImageAdjustment create() {
+        return new ImageAdjustment(Collections.emptyList(), ColorEngine.DEFAULT);
+    }
+
+    public ImageAdjustment using(ColorEngine engine) {
+        return new ImageAdjustment(stages, engine);
+    }
+
+    /** Сдвиг тона на degrees (любого знака). */
+    public ImageAdjustment hueShift(float degrees) {
+        float d = degrees % 360f;
+        return hsv(d < 0 ? d + 360f : d, 1f, 1f);
+    }
+
+    /** S ← min(S·factor, 1). */
+    public ImageAdjustment saturation(float factor) {
+        return hsv(0f, nonNegative(factor), 1f);
+    }
+
+    /** V ← min(V·factor, 1). */
+    public ImageAdjustment value(float factor) {
+        return hsv(0f, 1f, nonNegative(factor));
+    }
+
+    /** Каналы CMYK ← min(канал·factor, 1); 0 убирает краску, 1 оставляет канал как есть. */
+    public ImageAdjustment inkScale(float c, float m, float y, float k) {
+        float[] op = {nonNegative(c), nonNegative(m), nonNegative(y), nonNegative(k), 1f, 1f, 1f, 1f};
+        return cmyk(op);
+    }
+
+    /** Оставить только канал channel ({@link #CYAN}…{@link #BLACK}): цветоделение на одну краску. */
+    public ImageAdjustment separate(int channel) {
+        if (channel < CYAN || channel > BLACK) throw new IllegalArgumentException("канал 0..3: " + channel);
+        float[] k = new float[4];
+        k[channel] = 1f;
+        return inkScale(k[0], k[1], k[2], k[3]);
+    }
+
+    /** Лимит суммарного покрытия краской, 0..4 (2.8 — 280%): K сохраняется, C/M/Y уменьшаются. */
+    public ImageAdjustment inkLimit(float total) {
+        if (!(total >= 0f && total <= 4f)) throw new IllegalArgumentException("лимит краски 0..4: " + total);
+        return cmyk(new float[]{total});
+    }
+
+    private ImageAdjustment hsv(float shift, float s, float v) {
+        List<Stage> next = new ArrayList<>(stages);
+        Stage last = next.isEmpty() ? null : next.get(next.size() - 1);
+        if (last instanceof HsvStage) {
+            HsvStage p = (HsvStage) last;
+            float h = p.shift + shift;
+            next.set(next.size() - 1, new HsvStage(h >= 360f ? h - 360f : h,
+                    p.sK * s, Math.min(p.sCap * s, 1f), p.vK * v, Math.min(p.vCap * v, 1f)));
+        } else {
+            next.add(new HsvStage(shift, s, 1f, v, 1f));
+        }
+        return new ImageAdjustment(Collections.unmodifiableList(next), engine);
+    }
+
+    private ImageAdjustment cmyk(float[] op) {
+        List<Stage> next = new ArrayList<>(stages);
+        Stage last = next.isEmpty() ? null : next.get(next.size() - 1);
+        List<float[]> ops = last instanceof CmykStage ? new ArrayList<>(((CmykStage) last).ops) : new ArrayList<>();
+        float[] prev = ops.isEmpty() ? null : ops.get(ops.size() - 1);
+        if (prev != null && prev.length == op.length) {
+            float[] merged = prev.clone();
+            if (op.length == 8) {
+                for (int j = 0; j < 4; j++) {
+                    merged[j] = prev[j] * op[j];
+                    merged[4 + j] = Math.min(prev[4 + j] * op[j], 1f);
+                }
+            } else {
+                merged[0] = Math.min(prev[0], op[0]);
+            }
+            ops.set(ops.size() - 1, merged);
+        } else {
+            ops.add(op);
+        }
+        CmykStage stage = new CmykStage(Collections.unmodifiableList(ops));
+        if (last instanceof CmykStage) next.set(next.size() - 1, stage);
+        else next.add(stage);
+        return new ImageAdjustment(Collections.unmodifiableList(next), engine);
+    }
+
+    private static float nonNegative(float factor) {
+        if (!(factor >= 0f)) throw new IllegalArgumentException("множитель должен быть ≥ 0: " + factor);
+        return factor;
+    }
+
+    /** Новое изображение INT_ARGB (если у источника есть альфа) или INT_RGB. */
+    public BufferedImage apply(BufferedImage src) {
+        int w = src.getWidth(), h = src.getHeight();
+        boolean alpha = src.getColorModel().hasAlpha();
+        BufferedImage out = new BufferedImage(w, h, alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int[] dst = ((DataBufferInt) out.getRaster().getDataBuffer()).getData();
+        int mask = alpha ? 0xFFFFFFFF : 0x00FFFFFF;
+        forBands(src, (y, row, n, t) -> {
+            for (int x = 0, i = y * w; x < n; x++, i++) dst[i] = (row[x] & 0x00FFFFFF | t.alpha[x]) & mask;
+        });
+        return out;
+    }
+
+    /**
+     * Печатные формы после коррекции: четыре TYPE_BYTE_GRAY — C, M, Y, K, — посчитанные тем же
+     * проходом. Краска тёмная, как на оттиске: уровень = round(255·(1 − канал)).
+     */
+    public BufferedImage[] plates(BufferedImage src) {
+        int w = src.getWidth(), h = src.getHeight();
+        BufferedImage[] plates = new BufferedImage[4];
+        byte[][] d = new byte[4][];
+        for (int j = 0; j < 4; j++) {
+            plates[j] = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_GRAY);
+            d[j] = ((DataBufferByte) plates[j].getRaster().getDataBuffer()).getData();
+        }
+        forBands(src, (y, row, n, t) -> {
+            engine.rgbToCmyk(row, 0, t.a, t.b, t.c, t.d, 0, n);
+            float[][] ch = {t.a, t.b, t.c, t.d};
+            for (int j = 0; j < 4; j++) {
+                byte[] p = d[j];
+                float[] c = ch[j];
+                for (int x = 0, i = y * w; x < n; x++, i++) p[i] = (byte) Math.round(255 * (1 - c[x]));
+            }
+        });
+        return plates;
+    }
+
+    private interface RowSink {
+        void accept(int y, int[] row, int n, Scratch t);
+    }
+
+    /** Полосы по BAND_ROWS строк параллельно; строка проходит все этапы и уходит в sink. */
+    private void forBands(BufferedImage src, RowSink sink) {
+        int w = src.getWidth(), h = src.getHeight();
+        int bands = (h + BAND_ROWS - 1) / BAND_ROWS;
+        IntStream.range(0, bands).parallel().forEach(band -> {
+            Scratch t = new Scratch(w);
+            int[] row = new int[w];
+            for (int y = band * BAND_ROWS, end = Math.min(h, y + BAND_ROWS); y < end; y++) {
+                argbRow(src, y, row);
+                for (int x = 0; x < w; x++) t.alpha[x] = row[x] & 0xFF000000;
+                for (Stage s : stages) s.apply(row, w, t, engine);
+                sink.accept(y, row, w, t);
+            }
+        });
+    }
+
+    /** Строка y как getRGB; для INT_RGB/INT_ARGB — прямо из массива растра. */
+    private static void argbRow(BufferedImage img, int y, int[] row) {
+        int w = img.getWidth();
+        int type = img.getType();
+        if ((type == BufferedImage.TYPE_INT_RGB || type == BufferedImage.TYPE_INT_ARGB)
+                && img.getRaster().getSampleModel() instanceof SinglePixelPackedSampleModel
+                && img.getRaster().getParent() == null) {
+            DataBufferInt db = (DataBufferInt) img.getRaster().getDataBuffer();
+            int stride = ((SinglePixelPackedSampleModel) img.getRaster().getSampleModel()).getScanlineStride();
+            int alpha = type == BufferedImage.TYPE_INT_RGB ? 0xFF000000 : 0;
+            int[] d = db.getData();
+            int base = db.getOffset() + y * stride;
+            for (int x = 0; x < w; x++) row[x] = alpha | d[base + x];
+            return;
+        }
+        img.getRGB(0, y, w, 1, row, 0, w);
+    }
+
+    /** Свёрнутые этапы по порядку. */
+    @Override
+    public String toString() {
+        return stages.isEmpty() ? "без коррекций" : stages.toString() + " (" + engine.name() + ")";
+    }
+}
@@ -0,0 +1,71 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Доступ к классам проекта из бенчмарков.
+ *
+ * Классы проекта лежат в пакете по умолчанию, а JMH не принимает бенчмарки в пакете по
+ * умолчанию, и из именованного пакета их не импортировать. Поэтому вызовы идут через
+ * MethodHandle в static final полях: JIT сворачивает такой invokeExact в прямой вызов,
+ * так что накладных расходов в замерах нет. Lookup приватный — все классы в одном
+ * безымянном модуле, так что доступны и package-private методы на плоскостях.
+ */
+final class App {
+
+    private App() {
+    }
+
+    /** Тип класса проекта по имени (для аргументов method/virtual). */
+    static Class<?> type(String name) {
+        try {
+            return Class.forName(name);
+        } catch (ClassNotFoundException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static MethodHandle method(String owner, String name, Class<?> ret, Class<?>... params) {
+        try {
+            Class<?> c = type(owner);
+            MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(c, MethodHandles.lookup());
+            return expose(lookup.findStatic(c, name, MethodType.methodType(ret, params)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static MethodHandle virtual(String owner, String name, Class<?> ret, Class<?>... params) {
+        try {
+            Class<?> c = type(owner);
+            return expose(MethodHandles.publicLookup().findVirtual(c, name, MethodType.methodType(ret, params)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    static MethodHandle constructor(String owner, Class<?>... params) {
+        try {
+            Class<?> c = type(owner);
+            return expose(MethodHandles.publicLookup().findConstructor(c, MethodType.methodType(void.class, params)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /** Типы проекта в сигнатуре заменяются на Object — иначе invokeExact не написать. */
+    private static MethodHandle expose(MethodHandle h) {
+        MethodType t = h.type();
+        for (int i = 0; i < t.parameterCount(); i++) {
+            if (isAppType(t.parameterType(i))) t = t.changeParameterType(i, Object.class);
+        }
+        if (isAppType(t.returnType())) t = t.changeReturnType(Object.class);
+        return h.asType(t);
+    }
+
+    private static boolean isAppType(Class<?> c) {
+        return !c.isPrimitive() && !c.isArray() && c.getClassLoader() != null;
+    }
+}
@@ -0,0 +1,256 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.image.DataBufferInt;
+import java.lang.invoke.MethodHandle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Все методы ColorConverter: поштучные (нс на цвет, вход — 1024 случайных цвета по кругу)
+ * и пакетные 1-D, 2-D (подобласть со stride) и DataBufferInt на pixels пикселях.
+ * Пакетные результаты — нс на пиксель через OperationsPerInvocation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ColorConverterBench {
+
+    private static final int SCALAR = 1024;
+    private static final int PIXELS = 512 * 512;
+    private static final int SIDE = 512, SUB = 384; // 2-D: подобласть SUB×SUB в растре SIDE×SIDE
+
+    private static final String CC = "ColorConverter";
+
+    private static final MethodHandle RGB_TO_CMYK = App.method(CC, "rgbToCmyk", float[].class, int.class, int.class, int.class);
+    private static final MethodHandle CMYK_TO_RGB = App.method(CC, "cmykToRgb", int[].class, float.class, float.class, float.class, float.class);
+    private static final MethodHandle RGB_TO_HSV = App.method(CC, "rgbToHsv", float[].class, int.class, int.class, int.class);
+    private static final MethodHandle HSV_TO_RGB = App.method(CC, "hsvToRgb", int[].class, float.class, float.class, float.class);
+    private static final MethodHandle CMYK_TO_HSV = App.method(CC, "cmykToHsv", float[].class, float.class, float.class, float.class, float.class);
+    private static final MethodHandle HSV_TO_CMYK = App.method(CC, "hsvToCmyk", float[].class, float.class, float.class, float.class);
+
+    private static final MethodHandle RGB_TO_CMYK_1D = App.method(CC, "rgbToCmyk", void.class,
+            int[].class, int.class, float[].class, float[].class, float[].class, float[].class, int.class, int.class);
+    private static final MethodHandle CMYK_TO_RGB_1D = App.method(CC, "cmykToRgb", void.class,
+            float[].class, float[].class, float[].class, float[].class, int.class, int[].class, int.class, int.class);
+    private static final MethodHandle RGB_TO_HSV_1D = App.method(CC, "rgbToHsv", void.class,
+            int[].class, int.class, float[].class, float[].class, float[].class, int.class, int.class);
+    private static final MethodHandle HSV_TO_RGB_1D = App.method(CC, "hsvToRgb", void.class,
+            float[].class, float[].class, float[].class, int.class, int[].class, int.class, int.class);
+    private static final MethodHandle CMYK_TO_HSV_1D = App.method(CC, "cmykToHsv", void.class,
+            float[].class, float[].class, float[].class, float[].class, int.class,
+            float[].class, float[].class, float[].class, int.class, int.class);
+    private static final MethodHandle HSV_TO_CMYK_1D = App.method(CC, "hsvToCmyk", void.class,
+            float[].class, float[].class, float[].class, int.class,
+            float[].class, float[].class, float[].class, float[].class, int.class, int.class);
+
+    private static final MethodHandle RGB_TO_CMYK_2D = App.method(CC, "rgbToCmyk", void.class,
+            int[].class, int.class, int.class, float[].class, float[].class, float[].class, float[].class,
+            int.class, int.class, int.class, int.class);
+    private static final MethodHandle CMYK_TO_RGB_2D = App.method(CC, "cmykToRgb", void.class,
+            float[].class, float[].class, float[].class, float[].class, int.class, int.class,
+            int[].class, int.class, int.class, int.class, int.class);
+    private static final MethodHandle RGB_TO_HSV_2D = App.method(CC, "rgbToHsv", void.class,
+            int[].class, int.class, int.class, float[].class, float[].class, float[].class,
+            int.class, int.class, int.class, int.class);
+    private static final MethodHandle HSV_TO_RGB_2D = App.method(CC, "hsvToRgb", void.class,
+            float[].class, float[].class, float[].class, int.class, int.class,
+            int[].class, int.class, int.class, int.class, int.class);
+    private static final MethodHandle CMYK_TO_HSV_2D = App.method(CC, "cmykToHsv", void.class,
+            float[].class, float[].class, float[].class, float[].class, int.class, int.class,
+            float[].class, float[].class, float[].class, int.class, int.class, int.class, int.class);
+    private static final MethodHandle HSV_TO_CMYK_2D = App.method(CC, "hsvToCmyk", void.class,
+            float[].class, float[].class, float[].class, int.class, int.class,
+            float[].class, float[].class, float[].class, float[].class, int.class, int.class, int.class, int.class);
+
+    private static final MethodHandle RGB_TO_CMYK_DB = App.method(CC, "rgbToCmyk", void.class,
+            DataBufferInt.class, int.class, int.class, float[].class, float[].class, float[].class, float[].class,
+            int.class, int.class, int.class, int.class);
+    private static final MethodHandle RGB_TO_HSV_DB = App.method(CC, "rgbToHsv", void.class,
+            DataBufferInt.class, int.class, int.class, float[].class, float[].class, float[].class,
+            int.class, int.class, int.class, int.class);
+
+    int[] argb;
+    DataBufferInt buffer;
+    float[] c, m, y, k, h, s, v;
+    int[] outArgb;
+    float[] o1, o2, o3, o4;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        argb = new int[PIXELS];
+        for (int i = 0; i < PIXELS; i++) argb[i] = 0xFF000000 | rnd.nextInt(1 << 24);
+        buffer = new DataBufferInt(argb, PIXELS);
+        c = new float[PIXELS]; m = new float[PIXELS]; y = new float[PIXELS]; k = new float[PIXELS];
+        h = new float[PIXELS]; s = new float[PIXELS]; v = new float[PIXELS];
+        for (int i = 0; i < PIXELS; i++) {
+            c[i] = rnd.nextFloat(); m[i] = rnd.nextFloat(); y[i] = rnd.nextFloat(); k[i] = rnd.nextFloat();
+            h[i] = rnd.nextFloat() * 360f; s[i] = rnd.nextFloat(); v[i] = rnd.nextFloat();
+        }
+        outArgb = new int[PIXELS];
+        o1 = new float[PIXELS]; o2 = new float[PIXELS]; o3 = new float[PIXELS]; o4 = new float[PIXELS];
+    }
+
+    // ---------- Поштучные ----------
+
+    @Benchmark
+    @OperationsPerInvocation(SCALAR)
+    public void rgbToCmyk(Blackhole bh) throws Throwable {
+        for (int i = 0; i < SCALAR; i++) {
+            int p = argb[i];
+            bh.consume((float[]) RGB_TO_CMYK.invokeExact((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SCALAR)
+    public void cmykToRgb(Blackhole bh) throws Throwable {
+        for (int i = 0; i < SCALAR; i++) bh.consume((int[]) CMYK_TO_RGB.invokeExact(c[i], m[i], y[i], k[i]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SCALAR)
+    public void rgbToHsv(Blackhole bh) throws Throwable {
+        for (int i = 0; i < SCALAR; i++) {
+            int p = argb[i];
+            bh.consume((float[]) RGB_TO_HSV.invokeExact((p >> 16) & 0xFF, (p >> 8) & 0xFF, p & 0xFF));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SCALAR)
+    public void hsvToRgb(Blackhole bh) throws Throwable {
+        for (int i = 0; i < SCALAR; i++) bh.consume((int[]) HSV_TO_RGB.invokeExact(h[i], s[i], v[i]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SCALAR)
+    public void cmykToHsv(Blackhole bh) throws Throwable {
+        for (int i = 0; i < SCALAR; i++) bh.consume((float[]) CMYK_TO_HSV.invokeExact(c[i], m[i], y[i], k[i]));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SCALAR)
+    public void hsvToCmyk(Blackhole bh) throws Throwable {
+        for (int i = 0; i < SCALAR; i++) bh.consume((float[]) HSV_TO_CMYK.invokeExact(h[i], s[i], v[i]));
+    }
+
+    // ---------- Пакетные 1-D ----------
+
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public float[] rgbToCmykBulk() throws Throwable {
+        RGB_TO_CMYK_1D.invokeExact(argb, 0, o1, o2, o3, o4, 0, PIXELS);
+        return o4;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public int[] cmykToRgbBulk() throws Throwable {
+        CMYK_TO_RGB_1D.invokeExact(c, m, y, k, 0, outArgb, 0, PIXELS);
+        return outArgb;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public float[] rgbToHsvBulk() throws Throwable {
+        RGB_TO_HSV_1D.invokeExact(argb, 0, o1, o2, o3, 0, PIXELS);
+        return o3;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public int[] hsvToRgbBulk() throws Throwable {
+        HSV_TO_RGB_1D.invokeExact(h, s, v, 0, outArgb, 0, PIXELS);
+        return outArgb;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public float[] cmykToHsvBulk() throws Throwable {
+        CMYK_TO_HSV_1D.invokeExact(c, m, y, k, 0, o1, o2, o3, 0, PIXELS);
+        return o3;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public float[] hsvToCmykBulk() throws Throwable {
+        HSV_TO_CMYK_1D.invokeExact(h, s, v, 0, o1, o2, o3, o4, 0, PIXELS);
+        return o4;
+    }
+
+    // ---------- Пакетные 2-D: подобласть SUB×SUB растра SIDE×SIDE ----------
+
+    @Benchmark
+    @OperationsPerInvocation(SUB * SUB)
+    public float[] rgbToCmykRegion() throws Throwable {
+        RGB_TO_CMYK_2D.invokeExact(argb, 0, SIDE, o1, o2, o3, o4, 0, SIDE, SUB, SUB);
+        return o4;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SUB * SUB)
+    public int[] cmykToRgbRegion() throws Throwable {
+        CMYK_TO_RGB_2D.invokeExact(c, m, y, k, 0, SIDE, outArgb, 0, SIDE, SUB, SUB);
+        return outArgb;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SUB * SUB)
+    public float[] rgbToHsvRegion() throws Throwable {
+        RGB_TO_HSV_2D.invokeExact(argb, 0, SIDE, o1, o2, o3, 0, SIDE, SUB, SUB);
+        return o3;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SUB * SUB)
+    public int[] hsvToRgbRegion() throws Throwable {
+        HSV_TO_RGB_2D.invokeExact(h, s, v, 0, SIDE, outArgb, 0, SIDE, SUB, SUB);
+        return outArgb;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SUB * SUB)
+    public float[] cmykToHsvRegion() throws Throwable {
+        CMYK_TO_HSV_2D.invokeExact(c, m, y, k, 0, SIDE, o1, o2, o3, 0, SIDE, SUB, SUB);
+        return o3;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SUB * SUB)
+    public float[] hsvToCmykRegion() throws Throwable {
+        HSV_TO_CMYK_2D.invokeExact(h, s, v, 0, SIDE, o1, o2, o3, o4, 0, SIDE, SUB, SUB);
+        return o4;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SUB * SUB)
+    public float[] rgbToCmykDataBuffer() throws Throwable {
+        RGB_TO_CMYK_DB.invokeExact(buffer, 0, SIDE, o1, o2, o3, o4, 0, SIDE, SUB, SUB);
+        return o4;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SUB * SUB)
+    public float[] rgbToHsvDataBuffer() throws Throwable {
+        RGB_TO_HSV_DB.invokeExact(buffer, 0, SIDE, o1, o2, o3, 0, SIDE, SUB, SUB);
+        return o3;
+    }
+}
@@ -0,0 +1,135 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Быстрые пути к тем же пакетным преобразованиям: ColorConverterSimd (векторные ядра;
+ * с -Dcolor.simd.disable=true — скалярный откат) и ColorLut в режимах EXACT/LUT при
+ * разном бюджете таблицы. Сравнивать с *Bulk из {@link ColorConverterBench}, нс на пиксель.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx1g"})
+public class ColorFastPathBench {
+
+    private static final int PIXELS = 512 * 512;
+
+    private static final String SIMD = "ColorConverterSimd";
+    private static final String LUT = "ColorLut";
+
+    private static final MethodHandle SIMD_RGB_TO_HSV = App.method(SIMD, "rgbToHsv", void.class,
+            int[].class, int.class, float[].class, float[].class, float[].class, int.class, int.class);
+    private static final MethodHandle SIMD_HSV_TO_RGB = App.method(SIMD, "hsvToRgb", void.class,
+            float[].class, float[].class, float[].class, int.class, int[].class, int.class, int.class);
+    private static final MethodHandle SIMD_RGB_TO_CMYK = App.method(SIMD, "rgbToCmyk", void.class,
+            int[].class, int.class, float[].class, float[].class, float[].class, float[].class, int.class, int.class);
+    private static final MethodHandle SIMD_CMYK_TO_RGB = App.method(SIMD, "cmykToRgb", void.class,
+            float[].class, float[].class, float[].class, float[].class, int.class, int[].class, int.class, int.class);
+
+    private static final MethodHandle LUT_NEW = App.constructor(LUT, long.class, App.type(LUT + "$Mode"));
+    private static final MethodHandle LUT_RGB_TO_HSV = App.virtual(LUT, "rgbToHsv", void.class,
+            int[].class, int.class, float[].class, float[].class, float[].class, int.class, int.class);
+    private static final MethodHandle LUT_RGB_TO_CMYK = App.virtual(LUT, "rgbToCmyk", void.class,
+            int[].class, int.class, float[].class, float[].class, float[].class, float[].class, int.class, int.class);
+
+    /** Параметры только у LUT-замеров: SIMD-замеры не размножаются по ним. */
+    @State(Scope.Thread)
+    public static class Lut {
+        /** Бюджет таблицы в МиБ: 160 — полная таблица, 8 и 1 — сетки с интерполяцией. */
+        @Param({"160", "8", "1"})
+        public int lutMiB;
+
+        @Param({"EXACT", "LUT"})
+        public String lutMode;
+
+        Object lut;
+
+        @Setup
+        public void setup() throws Throwable {
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            Object mode = Enum.valueOf((Class) App.type(LUT + "$Mode"), lutMode);
+            lut = (Object) LUT_NEW.invokeExact((long) lutMiB << 20, mode);
+            // таблица строится лениво — первый вызов вне замера
+            LUT_RGB_TO_HSV.invokeExact(lut, new int[1], 0, new float[1], new float[1], new float[1], 0, 1);
+        }
+    }
+
+    int[] argb, outArgb;
+    float[] c, m, y, k, h, s, v;
+    float[] o1, o2, o3, o4;
+
+    @Setup
+    public void setup() {
+        Random rnd = new Random(42);
+        argb = new int[PIXELS];
+        for (int i = 0; i < PIXELS; i++) argb[i] = 0xFF000000 | rnd.nextInt(1 << 24);
+        c = new float[PIXELS]; m = new float[PIXELS]; y = new float[PIXELS]; k = new float[PIXELS];
+        h = new float[PIXELS]; s = new float[PIXELS]; v = new float[PIXELS];
+        for (int i = 0; i < PIXELS; i++) {
+            c[i] = rnd.nextFloat(); m[i] = rnd.nextFloat(); y[i] = rnd.nextFloat(); k[i] = rnd.nextFloat();
+            h[i] = rnd.nextFloat() * 360f; s[i] = rnd.nextFloat(); v[i] = rnd.nextFloat();
+        }
+        outArgb = new int[PIXELS];
+        o1 = new float[PIXELS]; o2 = new float[PIXELS]; o3 = new float[PIXELS]; o4 = new float[PIXELS];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public float[] simdRgbToHsv() throws Throwable {
+        SIMD_RGB_TO_HSV.invokeExact(argb, 0, o1, o2, o3, 0, PIXELS);
+        return o3;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public int[] simdHsvToRgb() throws Throwable {
+        SIMD_HSV_TO_RGB.invokeExact(h, s, v, 0, outArgb, 0, PIXELS);
+        return outArgb;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public float[] simdRgbToCmyk() throws Throwable {
+        SIMD_RGB_TO_CMYK.invokeExact(argb, 0, o1, o2, o3, o4, 0, PIXELS);
+        return o4;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public int[] simdCmykToRgb() throws Throwable {
+        SIMD_CMYK_TO_RGB.invokeExact(c, m, y, k, 0, outArgb, 0, PIXELS);
+        return outArgb;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public float[] lutRgbToHsv(Lut state) throws Throwable {
+        LUT_RGB_TO_HSV.invokeExact(state.lut, argb, 0, o1, o2, o3, 0, PIXELS);
+        return o3;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(PIXELS)
+    public float[] lutRgbToCmyk(Lut state) throws Throwable {
+        LUT_RGB_TO_CMYK.invokeExact(state.lut, argb, 0, o1, o2, o3, o4, 0, PIXELS);
+        return o4;
+    }
+}
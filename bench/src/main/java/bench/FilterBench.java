@@ -0,0 +1,84 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Фильтры ImageProcessingApp через публичные обёртки ImageFilters — тот же путь, что у
+ * кнопок GUI (BufferedImage на входе и выходе), на квадратных изображениях size×size.
+ * Морфология — в {@link MorphologyBench}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx6g"})
+public class FilterBench {
+
+    private static final String F = "ImageFilters";
+
+    private static final MethodHandle GRAY = App.method(F, "grayImage", BufferedImage.class, BufferedImage.class);
+    private static final MethodHandle SOBEL = App.method(F, "sobelGradient", BufferedImage.class, BufferedImage.class);
+    private static final MethodHandle LAPLACIAN = App.method(F, "laplacian", BufferedImage.class, BufferedImage.class);
+    private static final MethodHandle CANNY = App.method(F, "canny", BufferedImage.class,
+            BufferedImage.class, int.class, int.class, int.class);
+    private static final MethodHandle BOX_BLUR = App.method(F, "boxBlur", BufferedImage.class, BufferedImage.class, int.class);
+
+    @Param({"512", "2048", "8192"})
+    public int size;
+
+    /** Окно сглаживания — параметр только у Canny и бокс-фильтра. */
+    @State(Scope.Benchmark)
+    public static class Smoothing {
+        @Param({"3", "15"})
+        public int blur;
+    }
+
+    BufferedImage rgb, gray;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        rgb = Images.rgb(size, size);
+        gray = (BufferedImage) GRAY.invokeExact(rgb);
+    }
+
+    @Benchmark
+    public BufferedImage grayImage() throws Throwable {
+        return (BufferedImage) GRAY.invokeExact(rgb);
+    }
+
+    @Benchmark
+    public BufferedImage sobel() throws Throwable {
+        return (BufferedImage) SOBEL.invokeExact(gray);
+    }
+
+    @Benchmark
+    public BufferedImage laplacian() throws Throwable {
+        return (BufferedImage) LAPLACIAN.invokeExact(gray);
+    }
+
+    @Benchmark
+    public BufferedImage canny(Smoothing sm) throws Throwable {
+        return (BufferedImage) CANNY.invokeExact(gray, 40, 100, sm.blur);
+    }
+
+    @Benchmark
+    public BufferedImage boxBlur(Smoothing sm) throws Throwable {
+        return (BufferedImage) BOX_BLUR.invokeExact(gray, sm.blur);
+    }
+}
@@ -0,0 +1,52 @@
+package bench;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.SplittableRandom;
+
+/** Входные данные для бенчмарков фильтров. */
+final class Images {
+
+    private Images() {
+    }
+
+    /**
+     * Детерминированное TYPE_INT_RGB w×h: плавные волны плюс шум и редкие выбросы 0/255 —
+     * чтобы у Canny были и сильные, и слабые края, а морфология не вырождалась.
+     */
+    static BufferedImage rgb(int w, int h) {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        int[] d = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+        SplittableRandom rnd = new SplittableRandom(7);
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                int v = (int) (128 + 100 * Math.sin(x * 0.021) * Math.cos(y * 0.017)) + rnd.nextInt(41) - 20;
+                if (rnd.nextInt(64) == 0) v = rnd.nextBoolean() ? 255 : 0;
+                v = Math.max(0, Math.min(255, v));
+                d[y * w + x] = (v << 16) | (((v * 3) & 0xFF) << 8) | (255 - v);
+            }
+        }
+        return img;
+    }
+
+    /** Имя операции в GUI по короткому параметру бенчмарка. */
+    static String operation(String op) {
+        switch (op) {
+            case "erode": return "Эрозия";
+            case "dilate": return "Дилатация";
+            case "open": return "Открытие";
+            case "close": return "Закрытие";
+            default: throw new IllegalArgumentException(op);
+        }
+    }
+
+    /** Форма SE в GUI по короткому параметру бенчмарка. */
+    static String shape(String shape) {
+        switch (shape) {
+            case "cross": return "Крест";
+            case "rect": return "Прямоугольник";
+            case "ellipse": return "Эллипс";
+            default: throw new IllegalArgumentException(shape);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.image.BufferedImage;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Морфология ImageProcessingApp: все операции × формы SE × размеры SE × размеры изображения.
+ * Полная матрица большая (3·3·4·4 = 144 точки) — для выборки используйте -p, например
+ * {@code -p size=2048 -p shape=ellipse}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector", "-Xmx6g"})
+public class MorphologyBench {
+
+    private static final String F = "ImageFilters";
+
+    private static final MethodHandle GRAY = App.method(F, "grayImage", BufferedImage.class, BufferedImage.class);
+    private static final MethodHandle MORPHOLOGY = App.method(F, "morphology", BufferedImage.class,
+            BufferedImage.class, String.class, String.class, int.class);
+
+    @Param({"512", "2048", "8192"})
+    public int size;
+
+    @Param({"cross", "rect", "ellipse"})
+    public String shape;
+
+    @Param({"3", "7", "15", "31"})
+    public int seSize;
+
+    @Param({"erode", "dilate", "open", "close"})
+    public String op;
+
+    BufferedImage gray;
+    String opName, shapeName;
+
+    @Setup(Level.Trial)
+    public void setup() throws Throwable {
+        gray = (BufferedImage) GRAY.invokeExact(Images.rgb(size, size));
+        opName = Images.operation(op);
+        shapeName = Images.shape(shape);
+    }
+
+    @Benchmark
+    public BufferedImage morphology() throws Throwable {
+        return (BufferedImage) MORPHOLOGY.invokeExact(gray, opName, shapeName, seSize);
+    }
+}
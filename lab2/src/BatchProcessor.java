@@ -0,0 +1,313 @@
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Пакетная обработка без GUI:
+ * <pre>
+ *   java BatchProcessor &lt;каталог|glob&gt; &lt;цепочка&gt; &lt;выходной каталог&gt; [--workers N] [--io N] [--queue N]
+ *   java BatchProcessor photos/ closing:ellipse:7,canny:40:100 out/
+ *   java BatchProcessor 'photos/**.jpg' sobel out/ --workers 8
+ * </pre>
+ * Цепочка — см. {@link OpChain}; результат пишется в PNG по тому же пути относительно
+ * общего каталога входов (для glob с подкаталогами структура повторяется), см. {@link #outputs}.
+ *
+ * Конвейер из трёх стадий: декодирование (io потоков) → обработка (workers потоков) →
+ * кодирование и запись (io потоков). Стадии связаны очередями ограниченной длины: если
+ * запись отстаёт, обработка блокируется на put, а за ней и чтение, так что в памяти
+ * одновременно не больше workers + 2·(io + queue) изображений. Параллельность — по
+ * файлам; полосы внутри кадра при workers > 1 не распараллеливаются (потоки обработки
+ * работают с TileScheduler на один поток через {@link TileScheduler#using}), чтобы ядра
+ * не делились между кадрами и полосами. Общий TileScheduler при этом не меняется.
+ *
+ * На каждый файл печатается строка с временем стадий, в конце — итог и пропускная
+ * способность. Код выхода 1, если хоть один файл не обработан.
+ */
+public final class BatchProcessor {
+
+    /** Файл на конвейере; время стадий в наносекундах. */
+    private static final class Job {
+        final Path in, out;
+        BufferedImage image;
+        byte[] levels;
+        int w, h;
+        long decodeNs, processNs, encodeNs;
+        long queuedAt; // 0 — ещё не ставилось между стадиями
+        long waitNs;
+        Throwable error;
+
+        Job(Path in, Path out) {
+            this.in = in;
+            this.out = out;
+        }
+    }
+
+    /** Маркер конца очереди. */
+    private static final Job END = new Job(null, null);
+
+    private final OpChain chain;
+    private final Path outDir;
+    private final int workers, io, queue;
+
+    private final AtomicInteger done = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private long totalPixels, decodeNs, processNs, encodeNs, waitNs;
+
+    public BatchProcessor(OpChain chain, Path outDir, int workers, int io, int queue) {
+        if (workers < 1 || io < 1 || queue < 1) throw new IllegalArgumentException("workers, io и queue должны быть ≥ 1");
+        this.chain = chain;
+        this.outDir = outDir;
+        this.workers = workers;
+        this.io = io;
+        this.queue = queue;
+    }
+
+    public static void main(String[] args) {
+        List<String> positional = new ArrayList<>();
+        int cores = Runtime.getRuntime().availableProcessors();
+        int workers = cores, io = Math.max(1, cores / 4), queue = -1;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--workers": workers = Integer.parseInt(args[++i]); break;
+                    case "--io":      io = Integer.parseInt(args[++i]); break;
+                    case "--queue":   queue = Integer.parseInt(args[++i]); break;
+                    default:
+                        if (args[i].startsWith("--")) throw new IllegalArgumentException("неизвестный ключ " + args[i]);
+                        positional.add(args[i]);
+                }
+            }
+            if (positional.size() != 3) throw new IllegalArgumentException("нужны вход, цепочка и выходной каталог");
+            OpChain chain = OpChain.parse(positional.get(1));
+            List<Path> files = listInputs(positional.get(0));
+            if (files.isEmpty()) throw new IllegalArgumentException("нет входных файлов: " + positional.get(0));
+            Path out = Paths.get(positional.get(2));
+            Files.createDirectories(out);
+            BatchProcessor batch = new BatchProcessor(chain, out, workers, io, queue > 0 ? queue : workers);
+            System.exit(batch.run(files) == 0 ? 0 : 1);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            System.err.println("Использование: BatchProcessor <каталог|glob> <цепочка> <выходной каталог>"
+                    + " [--workers N] [--io N] [--queue N]");
+            System.err.println("Цепочка, например: closing:ellipse:7,canny:40:100");
+            System.exit(2);
+        } catch (IOException e) {
+            System.err.println("Ошибка ввода-вывода: " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Каталог — все файлы в нём (без подкаталогов), которые читает ImageIO по расширению.
+     * Иначе аргумент — glob: каталог до первого символа шаблона обходится рекурсивно.
+     */
+    static List<Path> listInputs(String arg) throws IOException {
+        Path dir = Paths.get(arg);
+        Set<String> suffixes = new HashSet<>();
+        for (String s : ImageIO.getReaderFileSuffixes()) suffixes.add(s.toLowerCase(Locale.ROOT));
+        if (Files.isDirectory(dir)) {
+            try (Stream<Path> s = Files.list(dir)) {
+                return s.filter(Files::isRegularFile)
+                        .filter(p -> suffixes.contains(suffix(p)))
+                        .sorted()
+                        .collect(Collectors.toList());
+            }
+        }
+        int meta = 0;
+        while (meta < arg.length() && "*?[{".indexOf(arg.charAt(meta)) < 0) meta++;
+        int slash = Math.max(arg.lastIndexOf('/', meta), arg.lastIndexOf(java.io.File.separatorChar, meta));
+        Path root = slash < 0 ? Paths.get(".") : Paths.get(arg.substring(0, slash + 1));
+        if (meta == arg.length()) return Files.isRegularFile(dir) ? List.of(dir) : List.of();
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + arg.substring(slash + 1));
+        try (Stream<Path> s = Files.walk(root)) {
+            return s.filter(Files::isRegularFile)
+                    .filter(p -> matcher.matches(root.relativize(p)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Выход для каждого входа: путь от общего каталога входов внутри outDir, расширение
+     * заменено на .png. Если так совпадут два входа (x.jpg и x.tif в одном каталоге), оба
+     * сохраняют своё расширение: x.jpg.png и x.tif.png.
+     */
+    static List<Path> outputs(List<Path> files, Path outDir) {
+        List<Path> abs = files.stream().map(p -> p.toAbsolutePath().normalize()).collect(Collectors.toList());
+        Path base = abs.isEmpty() ? null : abs.get(0).getParent();
+        for (Path p : abs) {
+            while (base != null && !p.startsWith(base)) base = base.getParent();
+        }
+        List<String> rel = new ArrayList<>(abs.size());
+        Map<String, Integer> count = new HashMap<>();
+        for (Path p : abs) {
+            String r = (base == null ? p.getFileName() : base.relativize(p)).toString();
+            rel.add(r);
+            count.merge(stem(r) + ".png", 1, Integer::sum);
+        }
+        List<Path> out = new ArrayList<>(rel.size());
+        for (String r : rel) {
+            String png = stem(r) + ".png";
+            out.add(outDir.resolve(count.get(png) > 1 ? r + ".png" : png));
+        }
+        return out;
+    }
+
+    /** Путь без расширения имени файла. */
+    private static String stem(String path) {
+        int dot = path.lastIndexOf('.');
+        return dot > path.lastIndexOf(File.separatorChar) + 1 ? path.substring(0, dot) : path;
+    }
+
+    private static String suffix(Path p) {
+        String name = p.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    /** Обрабатывает files; возвращает число неудачных. */
+    public int run(List<Path> files) {
+        TileScheduler shared = TileScheduler.getDefault();
+        TileScheduler perFile = workers > 1 ? new TileScheduler(1, shared.getTileRows(), shared.getSequentialCutoff()) : shared;
+        System.out.printf("%d файлов, цепочка %s, workers=%d io=%d queue=%d%n", files.size(), chain, workers, io, queue);
+        BlockingQueue<Job> pending = new ArrayBlockingQueue<>(files.size() + io);
+        BlockingQueue<Job> decoded = new ArrayBlockingQueue<>(queue);
+        BlockingQueue<Job> processed = new ArrayBlockingQueue<>(queue);
+        List<Path> outs = outputs(files, outDir);
+        for (int i = 0; i < files.size(); i++) pending.add(new Job(files.get(i), outs.get(i)));
+
+        long start = System.nanoTime();
+        List<Thread> readers = start(io, "decode", () -> stage(pending, decoded, this::decode));
+        List<Thread> procs = start(workers, "process",
+                () -> TileScheduler.using(perFile, () -> stage(decoded, processed, this::process)));
+        List<Thread> writers = start(io, "encode", () -> stage(processed, null, this::encode));
+        try {
+            for (int i = 0; i < io; i++) pending.put(END);
+            join(readers);
+            for (int i = 0; i < workers; i++) decoded.put(END);
+            join(procs);
+            for (int i = 0; i < io; i++) processed.put(END);
+            join(writers);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long wall = System.nanoTime() - start;
+
+        int ok = done.get(), bad = failed.get();
+        double sec = wall / 1e9;
+        System.out.printf("Итого: %d обработано, %d с ошибкой за %.2f с%n", ok, bad, sec);
+        System.out.printf("Пропускная способность: %.2f файл/с, %.1f Мпикс/с%n", ok / sec, totalPixels / 1e6 / sec);
+        if (ok > 0) {
+            System.out.printf("Среднее на файл: чтение %.1f мс, обработка %.1f мс, запись %.1f мс, ожидание в очереди %.1f мс%n",
+                    decodeNs / 1e6 / ok, processNs / 1e6 / ok, encodeNs / 1e6 / ok, waitNs / 1e6 / ok);
+        }
+        return bad;
+    }
+
+    private interface StageBody {
+        void run(Job job) throws Exception;
+    }
+
+    /** Берёт задания из in до END; ошибочные не передаются дальше, а сразу учитываются. */
+    private void stage(BlockingQueue<Job> in, BlockingQueue<Job> out, StageBody body) {
+        try {
+            while (true) {
+                Job job = in.take();
+                if (job == END) return;
+                if (job.queuedAt != 0) job.waitNs += System.nanoTime() - job.queuedAt;
+                try {
+                    body.run(job);
+                } catch (Throwable t) {
+                    job.error = t;
+                    job.image = null;
+                    job.levels = null;
+                    report(job);
+                    continue;
+                }
+                if (out != null) {
+                    job.queuedAt = System.nanoTime();
+                    out.put(job); // блокируется, если следующая стадия отстаёт
+                } else {
+                    report(job);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void decode(Job job) throws IOException {
+        long t = System.nanoTime();
+        BufferedImage img = ImageIO.read(job.in.toFile());
+        if (img == null) throw new IOException("формат не распознан");
+        job.w = img.getWidth();
+        job.h = img.getHeight();
+        job.image = img;
+        job.decodeNs = System.nanoTime() - t;
+    }
+
+    private void process(Job job) {
+        long t = System.nanoTime();
+        byte[] gray = ImageFilters.grayLevels(job.image);
+        job.image = null;
+        job.levels = chain.apply(gray, job.w, job.h);
+        job.processNs = System.nanoTime() - t;
+    }
+
+    private void encode(Job job) throws IOException {
+        long t = System.nanoTime();
+        BufferedImage img = GrayRaster.toImage(job.levels, job.w, job.h);
+        job.levels = null;
+        Files.createDirectories(job.out.getParent());
+        if (!ImageIO.write(img, "PNG", job.out.toFile())) throw new IOException("нет PNG-кодека");
+        job.encodeNs = System.nanoTime() - t;
+    }
+
+    private synchronized void report(Job job) {
+        if (job.error != null) {
+            failed.incrementAndGet();
+            System.err.printf("%s: ошибка: %s%n", job.in, job.error);
+            return;
+        }
+        done.incrementAndGet();
+        totalPixels += (long) job.w * job.h;
+        decodeNs += job.decodeNs;
+        processNs += job.processNs;
+        encodeNs += job.encodeNs;
+        waitNs += job.waitNs;
+        System.out.printf("%s  %dx%d  чтение %.1f мс  обработка %.1f мс  запись %.1f мс  очередь %.1f мс%n",
+                job.in, job.w, job.h, job.decodeNs / 1e6, job.processNs / 1e6, job.encodeNs / 1e6, job.waitNs / 1e6);
+    }
+
+    private static List<Thread> start(int n, String name, Runnable body) {
+        List<Thread> threads = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Thread t = new Thread(body, "batch-" + name + "-" + i);
+            t.start();
+            threads.add(t);
+        }
+        return threads;
+    }
+
+    private static void join(List<Thread> threads) throws InterruptedException {
+        for (Thread t : threads) t.join();
+    }
+}
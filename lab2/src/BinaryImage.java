@@ -0,0 +1,254 @@
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Бинарное изображение: 64 пикселя в long, строка — {@code stride} слов, пиксель x — бит
+ * x % 64 слова x / 64 (младший бит — левый пиксель). Биты за шириной в последнем слове
+ * строки всегда 0. Памяти в 8 раз меньше, чем у плоскости уровней.
+ *
+ * Морфология с любым SE (в том числе из {@link ImageFilters#makeSE}) — словами: строка SE —
+ * набор отрезков [a, b] смещений, и min (max) по отрезку длины L — это AND (OR) строки
+ * с её сдвигами, удваивая длину: log2(L) сдвигов вместо L. Совпадающие строки SE
+ * считаются один раз; строки результата — AND (OR) горизонтальных результатов по строкам
+ * SE, которые держатся в кольце на k строк. Край — зажим координат, как в ImageFilters:
+ * строка дополняется копиями крайних пикселей, строки за краем — копиями крайней.
+ *
+ * Большой диск (от {@link DistanceTransform#DISK_SIZE}) считается через
+ * преобразование расстояний — за время, не зависящее от радиуса.
+ *
+ * ImageFilters сам переходит сюда, если вход морфологии — строго 0/255 (после порога
+ * или Canny); результат совпадает с полутоновым путём пиксель в пиксель.
+ */
+public final class BinaryImage {
+
+    public final int width, height;
+    final int stride;
+    final long[] bits;
+
+    private BinaryImage(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.stride = (width + 63) >>> 6;
+        this.bits = new long[stride * height];
+    }
+
+    /** Пустое (все 0) изображение w×h. */
+    static BinaryImage blank(int w, int h) {
+        return new BinaryImage(w, h);
+    }
+
+    /** Порог серого изображения: пиксель установлен, если уровень ≥ threshold. */
+    public static BinaryImage threshold(BufferedImage gray, int threshold) {
+        return threshold(GrayRaster.levels(gray), gray.getWidth(), gray.getHeight(), threshold);
+    }
+
+    static BinaryImage threshold(byte[] levels, int w, int h, int threshold) {
+        BinaryImage b = new BinaryImage(w, h);
+        TileScheduler.getDefault().forBands(w, h, 0, band -> {
+            for (int y = band.y0; y < band.y1; y++) {
+                for (int x = 0, i = y * w; x < w; x++, i++) {
+                    if ((levels[i] & 0xFF) >= threshold) b.bits[y * b.stride + (x >>> 6)] |= 1L << x;
+                }
+            }
+        });
+        return b;
+    }
+
+    /** Упаковка плоскости уровней; null, если в ней есть что-то кроме 0 и 255. */
+    static BinaryImage pack(byte[] levels, int w, int h) {
+        BinaryImage b = new BinaryImage(w, h);
+        int bad = TileScheduler.getDefault().reduce(w, h, 0, 0, Math::max, band -> {
+            for (int y = band.y0; y < band.y1; y++) {
+                int i = y * w, o = y * b.stride;
+                for (int x0 = 0; x0 < w; x0 += 64, o++) {
+                    long word = 0;
+                    int other = 0; // (v + 1) & 0xFE — 0 только для 0 и 255 (-1)
+                    for (int x = 0, n = Math.min(64, w - x0); x < n; x++, i++) {
+                        int v = levels[i];
+                        other |= (v + 1) & 0xFE;
+                        word |= (long) (v & 1) << x;
+                    }
+                    if (other != 0) return 1;
+                    b.bits[o] = word;
+                }
+            }
+            return 0;
+        });
+        return bad == 0 ? b : null;
+    }
+
+    /** dst[y*w + x] ← 255 или 0. */
+    void unpack(byte[] dst) {
+        int w = width;
+        TileScheduler.getDefault().forBands(w, height, 0, band -> {
+            for (int y = band.y0; y < band.y1; y++) {
+                int i = y * w, o = y * stride;
+                for (int x0 = 0; x0 < w; x0 += 64, o++) {
+                    long word = bits[o];
+                    for (int x = 0, n = Math.min(64, w - x0); x < n; x++, i++) dst[i] = (byte) -(int) ((word >>> x) & 1);
+                }
+            }
+        });
+    }
+
+    /** TYPE_BYTE_GRAY с уровнями 0 и 255. */
+    public BufferedImage toImage() {
+        byte[] out = new byte[width * height];
+        unpack(out);
+        return GrayRaster.toImage(out, width, height);
+    }
+
+    public boolean get(int x, int y) {
+        return ((bits[y * stride + (x >>> 6)] >>> x) & 1) != 0;
+    }
+
+    public BinaryImage erode(boolean[][] se) {
+        return morph(this, se, true);
+    }
+
+    public BinaryImage dilate(boolean[][] se) {
+        return morph(this, se, false);
+    }
+
+    public BinaryImage open(boolean[][] se) {
+        return erode(se).dilate(se);
+    }
+
+    public BinaryImage close(boolean[][] se) {
+        return dilate(se).erode(se);
+    }
+
+    /** Эрозия диском makeSE("Эллипс", 2·radius + 1): маленький — словами, большой — через расстояния. */
+    public BinaryImage erodeDisk(int radius) {
+        return disk(radius, true);
+    }
+
+    public BinaryImage dilateDisk(int radius) {
+        return disk(radius, false);
+    }
+
+    private BinaryImage disk(int radius, boolean min) {
+        if (radius < 0) throw new IllegalArgumentException("radius < 0");
+        int size = 2 * radius + 1;
+        if (size >= DistanceTransform.DISK_SIZE) return DistanceTransform.disk(this, radius, min);
+        return morph(this, ImageFilters.makeSE("Эллипс", size), min);
+    }
+
+    // ---------- Морфология ----------
+
+    /** Эрозия (min=true) или дилатация; SE — маска k×k с центром k/2, как в ImageFilters. */
+    static BinaryImage morph(BinaryImage src, boolean[][] se, boolean min) {
+        if (se.length >= DistanceTransform.DISK_SIZE && DistanceTransform.isDisk(se)) {
+            return DistanceTransform.disk(src, se.length / 2, min);
+        }
+        int k = se.length, half = k / 2;
+        int w = src.width, h = src.height, stride = src.stride;
+        // строки SE → различные наборы отрезков; пустые строки не участвуют
+        List<int[]> patterns = new ArrayList<>();
+        int[] patternOf = new int[k];
+        for (int j = 0; j < k; j++) {
+            int[] runs = runs(se[j], k, half);
+            patternOf[j] = -1;
+            if (runs.length == 0) continue;
+            for (int p = 0; p < patterns.size() && patternOf[j] < 0; p++) {
+                if (Arrays.equals(patterns.get(p), runs)) patternOf[j] = p;
+            }
+            if (patternOf[j] < 0) {
+                patternOf[j] = patterns.size();
+                patterns.add(runs);
+            }
+        }
+        int np = patterns.size();
+        BinaryImage dst = new BinaryImage(w, h);
+        long fill = min ? -1L : 0L;
+        long tail = (w & 63) == 0 ? -1L : (1L << w) - 1;
+        int padded = w + 2 * half;
+        int pw = ((padded + 63) >>> 6) + (k >>> 6) + 2; // запас слов для чтения за концом при сдвигах
+        TileScheduler.getDefault().forBands(w, h, half, band -> {
+            long[] row = new long[pw], run = new long[pw];
+            long[][][] ring = new long[k][np][stride]; // горизонтальные результаты строки по шаблонам
+            int[] ringRow = new int[k];
+            Arrays.fill(ringRow, -1);
+            for (int y = band.y0; y < band.y1; y++) {
+                int o = y * stride;
+                Arrays.fill(dst.bits, o, o + stride, fill);
+                for (int j = 0; j < k; j++) {
+                    int p = patternOf[j];
+                    if (p < 0) continue;
+                    int sr = Math.min(Math.max(y + j - half, 0), h - 1);
+                    int slot = sr % k;
+                    if (ringRow[slot] != sr) {
+                        padRow(src, sr, half, row);
+                        for (int q = 0; q < np; q++) horizontal(row, patterns.get(q), half, min, run, ring[slot][q]);
+                        ringRow[slot] = sr;
+                    }
+                    long[] hr = ring[slot][p];
+                    if (min) for (int i = 0; i < stride; i++) dst.bits[o + i] &= hr[i];
+                    else for (int i = 0; i < stride; i++) dst.bits[o + i] |= hr[i];
+                }
+                dst.bits[o + stride - 1] &= tail;
+            }
+        });
+        return dst;
+    }
+
+    /** Отрезки установленных элементов строки SE как пары смещений {a0, b0, a1, b1, ...}. */
+    private static int[] runs(boolean[] seRow, int k, int half) {
+        int[] r = new int[k + 1];
+        int n = 0;
+        for (int i = 0; i < k; i++) {
+            if (!seRow[i] || (i > 0 && seRow[i - 1])) continue;
+            int e = i;
+            while (e + 1 < k && seRow[e + 1]) e++;
+            r[n++] = i - half;
+            r[n++] = e - half;
+        }
+        return Arrays.copyOf(r, n);
+    }
+
+    /** out ← строка sr, сдвинутая на half вправо, с half копиями крайних пикселей с обеих сторон. */
+    private static void padRow(BinaryImage src, int sr, int half, long[] out) {
+        int w = src.width, o = sr * src.stride;
+        Arrays.fill(out, 0L);
+        int q = half >>> 6, s = half & 63;
+        for (int i = 0; i < src.stride; i++) {
+            long v = src.bits[o + i];
+            out[i + q] |= v << s;
+            if (s != 0) out[i + q + 1] |= v >>> (64 - s);
+        }
+        if (src.get(0, sr)) setRange(out, 0, half);
+        if (src.get(w - 1, sr)) setRange(out, half + w, half + w + half);
+    }
+
+    private static void setRange(long[] a, int from, int to) {
+        for (int x = from; x < to; x++) a[x >>> 6] |= 1L << x;
+    }
+
+    /**
+     * hr[x] ← op по отрезкам op_{d ∈ [a, b]} row[x + half + d] для x в [0, w), где op —
+     * AND (min) или OR (max). Внутри отрезка — удвоением: run[x] = op row[x..x+m−1].
+     */
+    private static void horizontal(long[] row, int[] runs, int half, boolean min, long[] run, long[] hr) {
+        Arrays.fill(hr, min ? -1L : 0L);
+        for (int r = 0; r < runs.length; r += 2) {
+            int a = runs[r], len = runs[r + 1] - a + 1;
+            System.arraycopy(row, 0, run, 0, row.length);
+            int m = 1;
+            for (; 2 * m <= len; m *= 2) combineShifted(run, m, min, run, run.length - 1 - (m >>> 6));
+            if (m < len) combineShifted(run, len - m, min, run, run.length - 1 - ((len - m) >>> 6));
+            combineShifted(run, half + a, min, hr, hr.length);
+        }
+    }
+
+    /** dst[i] ←op (src >> shift)[i] для i < n; src читается до i + shift/64 + 1 — в пределах запаса. */
+    private static void combineShifted(long[] src, int shift, boolean min, long[] dst, int n) {
+        int q = shift >>> 6, s = shift & 63;
+        for (int i = 0; i < n; i++) {
+            long v = s == 0 ? src[i + q] : (src[i + q] >>> s) | (src[i + q + 1] << (64 - s));
+            if (min) dst[i] &= v;
+            else dst[i] |= v;
+        }
+    }
+}
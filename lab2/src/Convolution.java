@@ -0,0 +1,569 @@
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Свёртка плоскости уровней с произвольным ядром — общий движок для Собеля, Лапласиана
+ * и Гаусса.
+ *
+ * Ядро прикладывается как есть, центром к пикселю (корреляция, как во всех фильтрах
+ * ImageFilters): out(x, y) = Σ k[j][i] · src(x + i − cx, y + j − cy). Путь выбирается по ядру:
+ * <ul>
+ *   <li>ранг 1 (k = col · rowᵀ) — два одномерных прохода, вертикальный и горизонтальный;
+ *       одномерное ядро из одинаковых весов — скользящей суммой, O(1) на пиксель;</li>
+ *   <li>прочие с числом ненулевых весов меньше {@link #FFT_TAPS} — прямое суммирование
+ *       по весам;</li>
+ *   <li>крупные несепарабельные — БПФ по блокам (overlap-save): блок N×N, N — степень двойки,
+ *       даёт (N − kh + 1)×(N − kw + 1) пикселей результата.</li>
+ * </ul>
+ * Для целочисленного ядра отклик — точное целое (в float до 2^24), на любом пути: результат
+ * БПФ округляется. Поэтому операторы на движке совпадают с прежними целочисленными циклами.
+ *
+ * Край: {@link Border#CLAMP} — повтор крайних пикселей, {@link Border#INTERIOR} — отклик
+ * только там, где ядро целиком внутри изображения, рамка — 0. Считается полосами строк
+ * через {@link TileScheduler}; ореол полосы — половина высоты ядра.
+ */
+public final class Convolution {
+
+    /** Порог числа ненулевых весов несепарабельного ядра, с которого выгоднее БПФ (-Dimage.fftTaps). */
+    public static final int FFT_TAPS = Integer.getInteger("image.fftTaps", 144);
+
+    /**
+     * Строк отклика за один вызов у потребителей полосы: буфер CHUNK_ROWS × w
+     * остаётся в кэше, а не растёт с высотой полосы.
+     */
+    static final int CHUNK_ROWS = 16;
+
+    public enum Border { CLAMP, INTERIOR }
+
+    /** Ядро нечётных размеров с весами в порядке строк; разложение ранга 1 ищется при создании. */
+    public static final class Kernel {
+        public final int width, height;
+        final float[] weights;
+        final boolean integer;
+        final float[] col, row; // k[j][i] = col[j] · row[i], если сепарабельно; иначе null
+        final int[] iweights, icol, irow; // те же веса в int у целочисленного ядра; иначе null
+        final int taps;
+        private volatile double[] spectrum; // re, im перевёрнутого ядра для БПФ — при первом вызове
+
+        private Kernel(int width, int height, double[] k) {
+            if (width % 2 == 0 || height % 2 == 0) throw new IllegalArgumentException("размеры ядра должны быть нечётными: " + width + "×" + height);
+            this.width = width;
+            this.height = height;
+            this.weights = new float[k.length];
+            boolean integer = true;
+            int taps = 0;
+            for (int t = 0; t < k.length; t++) {
+                weights[t] = (float) k[t];
+                integer &= k[t] == Math.rint(k[t]);
+                if (k[t] != 0) taps++;
+            }
+            this.integer = integer;
+            this.taps = taps;
+            float[][] f = factor(k, width, height, integer);
+            this.col = f == null ? null : f[0];
+            this.row = f == null ? null : f[1];
+            this.iweights = integer ? ints(weights) : null;
+            this.icol = integer && col != null ? ints(col) : null;
+            this.irow = integer && row != null ? ints(row) : null;
+        }
+
+        private Kernel(float[] col, float[] row) {
+            this.width = row.length;
+            this.height = col.length;
+            if (width % 2 == 0 || height % 2 == 0) throw new IllegalArgumentException("размеры ядра должны быть нечётными: " + width + "×" + height);
+            this.weights = new float[width * height];
+            boolean integer = true;
+            int taps = 0;
+            for (int j = 0; j < height; j++) {
+                for (int i = 0; i < width; i++) {
+                    float v = col[j] * row[i];
+                    weights[j * width + i] = v;
+                    if (v != 0) taps++;
+                }
+            }
+            for (float v : col) integer &= v == Math.rint(v);
+            for (float v : row) integer &= v == Math.rint(v);
+            this.integer = integer;
+            this.taps = taps;
+            this.col = col.clone();
+            this.row = row.clone();
+            this.iweights = integer ? ints(weights) : null;
+            this.icol = integer ? ints(col) : null;
+            this.irow = integer ? ints(row) : null;
+        }
+
+        private static int[] ints(float[] v) {
+            int[] r = new int[v.length];
+            for (int i = 0; i < v.length; i++) r[i] = (int) v[i];
+            return r;
+        }
+
+        public static Kernel of(int[][] k) {
+            double[][] d = new double[k.length][];
+            for (int j = 0; j < k.length; j++) {
+                d[j] = new double[k[j].length];
+                for (int i = 0; i < k[j].length; i++) d[j][i] = k[j][i];
+            }
+            return of(d);
+        }
+
+        public static Kernel of(double[][] k) {
+            int h = k.length, w = k[0].length;
+            double[] flat = new double[w * h];
+            for (int j = 0; j < h; j++) {
+                if (k[j].length != w) throw new IllegalArgumentException("строки ядра разной длины");
+                System.arraycopy(k[j], 0, flat, j * w, w);
+            }
+            return new Kernel(w, h, flat);
+        }
+
+        /** Ядро col · rowᵀ без поиска разложения. */
+        public static Kernel separable(float[] col, float[] row) {
+            return new Kernel(col, row);
+        }
+
+        /** Сумма по окну (2·(r/2)+1)² с весом 1 — бокс-фильтр без деления. */
+        public static Kernel box(int r) {
+            float[] ones = new float[2 * (r / 2) + 1];
+            Arrays.fill(ones, 1f);
+            return new Kernel(ones, ones);
+        }
+
+        /** Нормированный Гаусс с радиусом ⌈3σ⌉. */
+        public static Kernel gaussian(double sigma) {
+            if (!(sigma > 0)) throw new IllegalArgumentException("sigma должна быть > 0: " + sigma);
+            int r = (int) Math.ceil(3 * sigma);
+            double[] g = new double[2 * r + 1];
+            double sum = 0;
+            for (int i = -r; i <= r; i++) sum += g[i + r] = Math.exp(-i * i / (2 * sigma * sigma));
+            float[] f = new float[g.length];
+            for (int i = 0; i < g.length; i++) f[i] = (float) (g[i] / sum);
+            return new Kernel(f, f);
+        }
+
+        public boolean isSeparable() {
+            return col != null;
+        }
+
+        /** Путь, которым пойдёт свёртка: separable, direct или fft. */
+        public String path() {
+            return col != null ? "separable" : taps < FFT_TAPS ? "direct" : "fft";
+        }
+
+        /** Сторона блока БПФ: степень двойки ≥ max(64, 2·сторона ядра). */
+        int fftSize() {
+            return Integer.highestOneBit(Math.max(64, 2 * Math.max(width, height)) - 1) << 1;
+        }
+
+        /** Строк за вызов у потребителя полосы: у БПФ — не меньше полезной высоты блока. */
+        int chunkRows() {
+            return col == null && taps >= FFT_TAPS ? Math.max(CHUNK_ROWS, fftSize() - height + 1) : CHUNK_ROWS;
+        }
+
+        /**
+         * Разложение ранга 1 через строку и столбец самого большого по модулю веса. У
+         * целочисленного ядра множители тоже должны быть целыми (строка делится на НОД),
+         * иначе точность целого отклика не гарантирована — тогда ядро считается несепарабельным.
+         */
+        private static float[][] factor(double[] k, int w, int h, boolean integer) {
+            int p = 0;
+            for (int t = 1; t < k.length; t++) if (Math.abs(k[t]) > Math.abs(k[p])) p = t;
+            if (k[p] == 0) return null;
+            int pj = p / w, pi = p % w;
+            double[] row = new double[w], col = new double[h];
+            if (integer) {
+                long g = 0;
+                for (int i = 0; i < w; i++) g = gcd(g, (long) Math.abs(k[pj * w + i]));
+                if (k[p] < 0) g = -g;
+                for (int i = 0; i < w; i++) row[i] = k[pj * w + i] / g;
+                for (int j = 0; j < h; j++) {
+                    col[j] = k[j * w + pi] / row[pi];
+                    if (col[j] != Math.rint(col[j])) return null;
+                }
+            } else {
+                for (int i = 0; i < w; i++) row[i] = k[pj * w + i] / k[p];
+                for (int j = 0; j < h; j++) col[j] = k[j * w + pi];
+            }
+            double scale = Math.abs(k[p]);
+            for (int j = 0; j < h; j++) {
+                for (int i = 0; i < w; i++) {
+                    double e = Math.abs(col[j] * row[i] - k[j * w + i]);
+                    if (integer ? e != 0 : e > 1e-6 * scale) return null;
+                }
+            }
+            float[] fc = new float[h], fr = new float[w];
+            for (int j = 0; j < h; j++) fc[j] = (float) col[j];
+            for (int i = 0; i < w; i++) fr[i] = (float) row[i];
+            return new float[][]{fc, fr};
+        }
+
+        private static long gcd(long a, long b) {
+            while (b != 0) {
+                long t = a % b;
+                a = b;
+                b = t;
+            }
+            return a;
+        }
+    }
+
+    private Convolution() {
+    }
+
+    /**
+     * Свёртка серого изображения с повтором краевых пикселей; отклик округляется и
+     * зажимается в 0..255. Результат — TYPE_BYTE_GRAY.
+     */
+    public static BufferedImage apply(BufferedImage gray, Kernel k) {
+        int w = gray.getWidth(), h = gray.getHeight();
+        byte[] out = new byte[w * h];
+        apply(GrayRaster.levels(gray), out, w, h, k);
+        return GrayRaster.toImage(out, w, h);
+    }
+
+    /** dst ← clamp8(round(отклик)) с краем {@link Border#CLAMP}. */
+    static void apply(byte[] src, byte[] dst, int w, int h, Kernel k) {
+        TileScheduler.getDefault().forBands(w, h, k.height / 2, band -> {
+            int rows = k.chunkRows();
+            float[] out = new float[Math.min(band.y1 - band.y0, rows) * w];
+            for (int c = band.y0; c < band.y1; c += rows) {
+                int c1 = Math.min(band.y1, c + rows);
+                apply(src, w, h, k, Border.CLAMP, out, 0, c, c1);
+                for (int i = 0, d = c * w; i < (c1 - c) * w; i++, d++) dst[d] = (byte) ImageFilters.clamp8((int) Math.floor(out[i] + 0.5f));
+            }
+        });
+    }
+
+    /** Строки [y0, y1) отклика: строка y пишется в out с индекса outOff + (y − y0)·w. */
+    static void apply(byte[] src, int w, int h, Kernel k, Border border, float[] out, int outOff, int y0, int y1) {
+        if (k.integer && (k.col != null || k.taps < FFT_TAPS)) {
+            int[] exact = new int[(y1 - y0) * w];
+            apply(src, w, h, k, border, exact, 0, y0, y1);
+            for (int i = 0; i < exact.length; i++) out[outOff + i] = exact[i];
+        } else if (k.col != null) separable(src, w, h, k, border, out, outOff, y0, y1);
+        else if (k.taps < FFT_TAPS) direct(src, w, h, k, border, out, outOff, y0, y1);
+        else fft(src, w, h, k, border, out, outOff, y0, y1);
+    }
+
+    /**
+     * То же для целочисленного ядра, но в int: без перевода отклика в float и обратно
+     * (так его читают Собель и Лапласиан).
+     */
+    static void apply(byte[] src, int w, int h, Kernel k, Border border, int[] out, int outOff, int y0, int y1) {
+        if (!k.integer) throw new IllegalArgumentException("ядро не целочисленное");
+        if (k.col != null) separableInt(src, w, h, k, border, out, outOff, y0, y1);
+        else if (k.taps < FFT_TAPS) directInt(src, w, h, k, border, out, outOff, y0, y1);
+        else {
+            float[] f = new float[(y1 - y0) * w];
+            fft(src, w, h, k, border, f, 0, y0, y1);
+            for (int i = 0; i < f.length; i++) out[outOff + i] = (int) f[i];
+        }
+    }
+
+    // ---------- Ранг 1 ----------
+
+    private static void separable(byte[] src, int w, int h, Kernel k, Border border, float[] out, int outOff, int y0, int y1) {
+        int cy = k.height / 2, cx = k.width / 2;
+        boolean interior = border == Border.INTERIOR;
+        int xa = Math.min(cx, w), xb = Math.max(xa, w - cx);
+        float[] tmp = new float[w];
+        for (int y = y0; y < y1; y++) {
+            int o = outOff + (y - y0) * w;
+            if (interior && (y < cy || y + cy >= h)) {
+                Arrays.fill(out, o, o + w, 0f);
+                continue;
+            }
+            // вертикальный проход: tmp[x] = Σ col[j] · src(x, y + j − cy)
+            Arrays.fill(tmp, 0f);
+            for (int j = 0; j < k.height; j++) {
+                float c = k.col[j];
+                if (c == 0) continue;
+                int r = clampRow(y + j - cy, h) * w;
+                for (int x = 0; x < w; x++) tmp[x] += c * (src[r + x] & 0xFF);
+            }
+            // горизонтальный проход
+            for (int x = xa; x < xb; x++) {
+                float sum = 0;
+                for (int i = 0, t = x - cx; i < k.width; i++, t++) sum += k.row[i] * tmp[t];
+                out[o + x] = sum;
+            }
+            for (int x = 0; x < w; x++) {
+                if (x == xa) x = xb;
+                if (x >= w) break;
+                float sum = 0;
+                if (!interior) for (int i = 0; i < k.width; i++) sum += k.row[i] * tmp[clampCol(x + i - cx, w)];
+                out[o + x] = sum;
+            }
+        }
+    }
+
+    /**
+     * Целочисленные множители: суммы в int, точно. Множитель из одинаковых весов считается
+     * скользящей суммой — по столбцам сдвигом окна на строку, по строке сдвигом на пиксель.
+     */
+    private static void separableInt(byte[] src, int w, int h, Kernel k, Border border, int[] out, int outOff, int y0, int y1) {
+        int cy = k.height / 2, cx = k.width / 2;
+        boolean interior = border == Border.INTERIOR;
+        int xa = Math.min(cx, w), xb = Math.max(xa, w - cx);
+        int[] col = k.icol, row = k.irow;
+        int colU = uniform(col), rowU = uniform(row);
+        int[] tmp = new int[w];
+        int[] runSum = colU != 0 ? new int[w] : null; // суммы уровней по окну столбца
+        boolean running = false;
+        for (int y = y0; y < y1; y++) {
+            int o = outOff + (y - y0) * w;
+            if (interior && (y < cy || y + cy >= h)) {
+                Arrays.fill(out, o, o + w, 0);
+                running = false;
+                continue;
+            }
+            if (runSum != null) {
+                if (running) {
+                    int add = clampRow(y + cy, h) * w, sub = clampRow(y - cy - 1, h) * w;
+                    for (int x = 0; x < w; x++) runSum[x] += (src[add + x] & 0xFF) - (src[sub + x] & 0xFF);
+                } else {
+                    Arrays.fill(runSum, 0);
+                    for (int j = -cy; j <= cy; j++) {
+                        int r = clampRow(y + j, h) * w;
+                        for (int x = 0; x < w; x++) runSum[x] += src[r + x] & 0xFF;
+                    }
+                    running = true;
+                }
+                if (colU == 1) System.arraycopy(runSum, 0, tmp, 0, w);
+                else for (int x = 0; x < w; x++) tmp[x] = colU * runSum[x];
+            } else if (k.height == 3) {
+                // 3×3 (Собель) — одним проходом по трём строкам
+                int r0 = clampRow(y - 1, h) * w, r1 = clampRow(y, h) * w, r2 = clampRow(y + 1, h) * w;
+                int c0 = col[0], c1 = col[1], c2 = col[2];
+                for (int x = 0; x < w; x++) tmp[x] = c0 * (src[r0 + x] & 0xFF) + c1 * (src[r1 + x] & 0xFF) + c2 * (src[r2 + x] & 0xFF);
+            } else {
+                Arrays.fill(tmp, 0);
+                for (int j = 0; j < k.height; j++) {
+                    int c = col[j];
+                    if (c == 0) continue;
+                    int r = clampRow(y + j - cy, h) * w;
+                    for (int x = 0; x < w; x++) tmp[x] += c * (src[r + x] & 0xFF);
+                }
+            }
+            if (rowU != 0 && !interior) {
+                int sum = 0;
+                for (int i = -cx; i <= cx; i++) sum += tmp[clampCol(i, w)];
+                // без зажима — где окно целиком внутри строки: x − cx ≥ 0 и x + cx + 1 < w
+                int inA = Math.min(cx, w), inB = Math.max(inA, w - cx - 1);
+                for (int x = 0; x < inA; x++) {
+                    out[o + x] = rowU * sum;
+                    sum += tmp[clampCol(x + cx + 1, w)] - tmp[clampCol(x - cx, w)];
+                }
+                for (int x = inA; x < inB; x++) {
+                    out[o + x] = rowU * sum;
+                    sum += tmp[x + cx + 1] - tmp[x - cx];
+                }
+                for (int x = inB; x < w; x++) {
+                    out[o + x] = rowU * sum;
+                    sum += tmp[clampCol(x + cx + 1, w)] - tmp[clampCol(x - cx, w)];
+                }
+                continue;
+            }
+            if (k.width == 3) {
+                int a0 = row[0], a1 = row[1], a2 = row[2];
+                for (int x = xa; x < xb; x++) out[o + x] = a0 * tmp[x - 1] + a1 * tmp[x] + a2 * tmp[x + 1];
+            } else {
+                for (int x = xa; x < xb; x++) {
+                    int sum = 0;
+                    for (int i = 0, t = x - cx; i < k.width; i++, t++) sum += row[i] * tmp[t];
+                    out[o + x] = sum;
+                }
+            }
+            for (int x = 0; x < w; x++) {
+                if (x == xa) x = xb;
+                if (x >= w) break;
+                int sum = 0;
+                if (!interior) for (int i = 0; i < k.width; i++) sum += row[i] * tmp[clampCol(x + i - cx, w)];
+                out[o + x] = sum;
+            }
+        }
+    }
+
+    /** Общий вес, если все веса одинаковы и не 0 (тогда годится скользящая сумма), иначе 0. */
+    private static int uniform(int[] v) {
+        for (int x : v) if (x != v[0]) return 0;
+        return v.length > 1 ? v[0] : 0;
+    }
+
+    // ---------- Прямое суммирование ----------
+
+    private static void direct(byte[] src, int w, int h, Kernel k, Border border, float[] out, int outOff, int y0, int y1) {
+        int cy = k.height / 2, cx = k.width / 2;
+        boolean interior = border == Border.INTERIOR;
+        int xa = Math.min(cx, w), xb = Math.max(xa, w - cx);
+        for (int y = y0; y < y1; y++) {
+            int o = outOff + (y - y0) * w;
+            Arrays.fill(out, o, o + w, 0f);
+            if (interior && (y < cy || y + cy >= h)) continue;
+            for (int j = 0; j < k.height; j++) {
+                int r = clampRow(y + j - cy, h) * w;
+                for (int i = 0; i < k.width; i++) {
+                    float wt = k.weights[j * k.width + i];
+                    if (wt == 0) continue;
+                    int d = r + i - cx - o;
+                    for (int x = o + xa; x < o + xb; x++) out[x] += wt * (src[d + x] & 0xFF);
+                    if (interior) continue;
+                    for (int x = 0; x < xa; x++) out[o + x] += wt * (src[r + clampCol(x + i - cx, w)] & 0xFF);
+                    for (int x = xb; x < w; x++) out[o + x] += wt * (src[r + clampCol(x + i - cx, w)] & 0xFF);
+                }
+            }
+        }
+    }
+
+    private static void directInt(byte[] src, int w, int h, Kernel k, Border border, int[] out, int outOff, int y0, int y1) {
+        int cy = k.height / 2, cx = k.width / 2;
+        boolean interior = border == Border.INTERIOR;
+        int xa = Math.min(cx, w), xb = Math.max(xa, w - cx);
+        for (int y = y0; y < y1; y++) {
+            int o = outOff + (y - y0) * w;
+            Arrays.fill(out, o, o + w, 0);
+            if (interior && (y < cy || y + cy >= h)) continue;
+            for (int j = 0; j < k.height; j++) {
+                int r = clampRow(y + j - cy, h) * w;
+                for (int i = 0; i < k.width; i++) {
+                    int wt = k.iweights[j * k.width + i];
+                    if (wt == 0) continue;
+                    int d = r + i - cx - o;
+                    for (int x = o + xa; x < o + xb; x++) out[x] += wt * (src[d + x] & 0xFF);
+                    if (interior) continue;
+                    for (int x = 0; x < xa; x++) out[o + x] += wt * (src[r + clampCol(x + i - cx, w)] & 0xFF);
+                    for (int x = xb; x < w; x++) out[o + x] += wt * (src[r + clampCol(x + i - cx, w)] & 0xFF);
+                }
+            }
+        }
+    }
+
+    // ---------- БПФ ----------
+
+    /**
+     * Overlap-save: блок N×N входа (с зажимом за краем) свёртывается циклически с
+     * перевёрнутым ядром; строки и столбцы от kh−1 и kw−1 — точный отклик без заворота.
+     */
+    private static void fft(byte[] src, int w, int h, Kernel k, Border border, float[] out, int outOff, int y0, int y1) {
+        int kw = k.width, kh = k.height, cx = kw / 2, cy = kh / 2;
+        int n = k.fftSize();
+        int bw = n - kw + 1, bh = n - kh + 1;
+        double[] spectrum = k.spectrum;
+        if (spectrum == null) {
+            double[] kre = new double[n * n], kim = new double[n * n];
+            for (int j = 0; j < kh; j++) {
+                for (int i = 0; i < kw; i++) kre[j * n + i] = k.weights[(kh - 1 - j) * kw + (kw - 1 - i)];
+            }
+            fft2(kre, kim, n, false);
+            spectrum = Arrays.copyOf(kre, 2 * n * n);
+            System.arraycopy(kim, 0, spectrum, n * n, n * n); // re, затем im
+            k.spectrum = spectrum;
+        }
+        int nn = n * n;
+        double[] re = new double[nn], im = new double[nn];
+        boolean interior = border == Border.INTERIOR;
+        for (int by = y0; by < y1; by += bh) {
+            for (int bx = 0; bx < w; bx += bw) {
+                for (int p = 0; p < n; p++) {
+                    int r = clampRow(by - cy + p, h) * w;
+                    for (int q = 0; q < n; q++) re[p * n + q] = src[r + clampCol(bx - cx + q, w)] & 0xFF;
+                }
+                Arrays.fill(im, 0);
+                fft2(re, im, n, false);
+                for (int t = 0; t < nn; t++) {
+                    double a = re[t], b = im[t];
+                    double c = spectrum[t], d = spectrum[nn + t];
+                    re[t] = a * c - b * d;
+                    im[t] = a * d + b * c;
+                }
+                fft2(re, im, n, true);
+                for (int p = kh - 1; p < n; p++) {
+                    int y = by + p - (kh - 1);
+                    if (y >= y1) break;
+                    int o = outOff + (y - y0) * w;
+                    for (int q = kw - 1; q < n; q++) {
+                        int x = bx + q - (kw - 1);
+                        if (x >= w) break;
+                        double v = re[p * n + q];
+                        out[o + x] = (float) (k.integer ? Math.rint(v) : v);
+                    }
+                }
+            }
+        }
+        if (interior) {
+            for (int y = y0; y < y1; y++) {
+                int o = outOff + (y - y0) * w;
+                if (y < cy || y + cy >= h) {
+                    Arrays.fill(out, o, o + w, 0f);
+                    continue;
+                }
+                Arrays.fill(out, o, o + Math.min(cx, w), 0f);
+                Arrays.fill(out, o + Math.max(0, w - cx), o + w, 0f);
+            }
+        }
+    }
+
+    /** Двумерное БПФ n×n на месте: строки, затем столбцы; обратное — с делением на n². */
+    private static void fft2(double[] re, double[] im, int n, boolean inverse) {
+        double[] cr = new double[n], ci = new double[n];
+        for (int r = 0; r < n; r++) fft(re, im, r * n, 1, n, inverse);
+        for (int c = 0; c < n; c++) {
+            for (int r = 0; r < n; r++) {
+                cr[r] = re[r * n + c];
+                ci[r] = im[r * n + c];
+            }
+            fft(cr, ci, 0, 1, n, inverse);
+            for (int r = 0; r < n; r++) {
+                re[r * n + c] = cr[r];
+                im[r * n + c] = ci[r];
+            }
+        }
+        if (inverse) {
+            double s = 1.0 / ((double) n * n);
+            for (int t = 0; t < n * n; t++) {
+                re[t] *= s;
+                im[t] *= s;
+            }
+        }
+    }
+
+    /** Итеративное БПФ по основанию 2 над re/im[off + t·stride], t = 0..n−1. */
+    private static void fft(double[] re, double[] im, int off, int stride, int n, boolean inverse) {
+        for (int i = 1, j = 0; i < n; i++) {
+            int bit = n >> 1;
+            for (; (j & bit) != 0; bit >>= 1) j ^= bit;
+            j ^= bit;
+            if (i < j) {
+                int a = off + i * stride, b = off + j * stride;
+                double t = re[a]; re[a] = re[b]; re[b] = t;
+                t = im[a]; im[a] = im[b]; im[b] = t;
+            }
+        }
+        for (int len = 2; len <= n; len <<= 1) {
+            double ang = 2 * Math.PI / len * (inverse ? 1 : -1);
+            double wr = Math.cos(ang), wi = Math.sin(ang);
+            for (int i = 0; i < n; i += len) {
+                double ur = 1, ui = 0;
+                for (int j = 0; j < len / 2; j++) {
+                    int a = off + (i + j) * stride, b = off + (i + j + len / 2) * stride;
+                    double xr = re[b] * ur - im[b] * ui, xi = re[b] * ui + im[b] * ur;
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                    double t = ur * wr - ui * wi;
+                    ui = ur * wi + ui * wr;
+                    ur = t;
+                }
+            }
+        }
+    }
+
+    private static int clampRow(int y, int h) {
+        return y < 0 ? 0 : (y >= h ? h - 1 : y);
+    }
+
+    private static int clampCol(int x, int w) {
+        return x < 0 ? 0 : (x >= w ? w - 1 : x);
+    }
+}
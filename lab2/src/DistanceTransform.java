@@ -0,0 +1,212 @@
+import java.awt.image.BufferedImage;
+
+/**
+ * Точное евклидово преобразование расстояний бинарного изображения за линейное время
+ * (Felzenszwalb–Huttenlocher): сначала по каждому столбцу — расстояние до ближайшего
+ * пикселя-признака в этом столбце, затем по каждой строке — нижняя огибающая парабол
+ * (x − q)² + g(q)². Точка, с которой парабола q' ниже q, считается в целых — делением с
+ * округлением вниз (так, как у Meijster и др.), поэтому квадраты расстояний точны.
+ *
+ * На нём — морфология диском из {@link ImageFilters#makeSE}("Эллипс", size) с нечётным
+ * size: маска — это dx² + dy² ≤ c² + c, c = size/2, поэтому эрозия оставляет пиксель, если
+ * квадрат расстояния до ближайшего 0 больше c² + c, а дилатация ставит пиксель, если до
+ * ближайшей 1 не больше c² + c. Стоимость от радиуса не зависит. Зажим координат у края
+ * (как в ImageFilters) ничего не меняет: копии краевого пикселя за краем дальше него самого.
+ * Словами в {@link BinaryImage} диск быстрее вплоть до ~200 px (на 12 Мп), поэтому выбор
+ * между путями — по {@link #DISK_SIZE}; явно диск задаётся радиусом через
+ * {@link BinaryImage#erodeDisk}/{@link BinaryImage#dilateDisk}, узлы OpGraph и шаги OpChain.
+ *
+ * Оба прохода — полосами через {@link TileScheduler}: первый — полосами столбцов, второй —
+ * полосами строк.
+ */
+public final class DistanceTransform {
+
+    /** Квадрат расстояния там, где признаков нет вовсе. */
+    public static final int NONE = Integer.MAX_VALUE;
+
+    /**
+     * Диск от этого размера SE считается через расстояния, меньший — словами в
+     * {@link BinaryImage} (-Dimage.edtDiskSize).
+     */
+    public static final int DISK_SIZE = Integer.getInteger("image.edtDiskSize", 201);
+
+    private DistanceTransform() {
+    }
+
+    /**
+     * d2[y*w + x] ← квадрат расстояния от (x, y) до ближайшего пикселя со значением feature
+     * (0 на самих таких пикселях), {@link #NONE}, если их нет.
+     */
+    static void squared(BinaryImage img, boolean feature, int[] d2) {
+        int w = img.width, h = img.height;
+        int inf = w + h;
+        int[] g = columns(img, feature, inf);
+        TileScheduler.getDefault().forBands(w, h, 0, band -> {
+            int[] v = new int[w], z = new int[w];
+            for (int y = band.y0; y < band.y1; y++) envelope(g, y * w, w, inf, d2, y * w, v, z);
+        });
+    }
+
+    /**
+     * g[y*w + x] ← расстояние по столбцу x от строки y до ближайшего признака, не больше
+     * cap (cap — «нет признака»; больше любого расстояния, которое нужно вызывающему).
+     */
+    private static int[] columns(BinaryImage img, boolean feature, int cap) {
+        int w = img.width, h = img.height, stride = img.stride;
+        long flip = feature ? 0 : -1L; // признак — установленный бит после flip
+        int[] g = new int[w * h];
+        // полосы столбцов [band.y0, band.y1): сверху вниз, затем снизу вверх, строка за строкой
+        TileScheduler.getDefault().forBands(h, w, 0, band -> {
+            int x0 = band.y0, x1 = band.y1;
+            for (int y = 0; y < h; y++) {
+                int o = y * w, bo = y * stride;
+                for (int x = x0; x < x1; x++) {
+                    long bit = ((img.bits[bo + (x >>> 6)] ^ flip) >>> x) & 1;
+                    g[o + x] = bit != 0 ? 0 : y == 0 ? cap : Math.min(cap, g[o - w + x] + 1);
+                }
+            }
+            for (int y = h - 2; y >= 0; y--) {
+                int o = y * w;
+                for (int x = x0; x < x1; x++) g[o + x] = Math.min(g[o + x], g[o + w + x] + 1);
+            }
+        });
+        return g;
+    }
+
+    /**
+     * Строка: d2[d + x] = min_q (x − q)² + g[o + q]². v — вершины огибающей, z[k] — первый x,
+     * где парабола v[k] уже не выше предыдущей.
+     */
+    private static void envelope(int[] g, int o, int w, int inf, int[] d2, int d, int[] v, int[] z) {
+        int k = 0;
+        v[0] = 0;
+        z[0] = 0;
+        for (int q = 1; q < w; q++) {
+            while (k >= 0 && f(z[k], v[k], g[o + v[k]]) > f(z[k], q, g[o + q])) k--;
+            if (k < 0) {
+                k = 0;
+                v[0] = q;
+            } else {
+                long s = 1 + sep(v[k], q, g[o + v[k]], g[o + q]);
+                if (s < w) {
+                    k++;
+                    v[k] = q;
+                    z[k] = (int) s;
+                }
+            }
+        }
+        for (int x = w - 1; x >= 0; x--) {
+            int gq = g[o + v[k]];
+            d2[d + x] = gq >= inf ? NONE : (int) f(x, v[k], gq);
+            if (x == z[k]) k--;
+        }
+    }
+
+    private static long f(int x, int q, int gq) {
+        return (long) (x - q) * (x - q) + (long) gq * gq;
+    }
+
+    /** Наибольший x, где парабола i (i &lt; u) не выше параболы u. */
+    private static long sep(int i, int u, int gi, int gu) {
+        return Math.floorDiv((long) u * u - (long) i * i + (long) gu * gu - (long) gi * gi, 2L * (u - i));
+    }
+
+    // ---------- Морфология диском ----------
+
+    /** true, если se — диск makeSE("Эллипс", size) нечётного размера. */
+    static boolean isDisk(boolean[][] se) {
+        int k = se.length, c = k / 2;
+        if (k % 2 == 0) return false;
+        for (int j = 0; j < k; j++) {
+            if (se[j].length != k) return false;
+            for (int i = 0; i < k; i++) {
+                int dx = i - c, dy = j - c;
+                if (se[j][i] != (dx * dx + dy * dy <= c * c + c)) return false;
+            }
+        }
+        return true;
+    }
+
+    /** Эрозия (min=true) или дилатация диском радиуса c = size/2. */
+    static BinaryImage disk(BinaryImage src, int c, boolean min) {
+        int w = src.width, h = src.height;
+        // эрозии важны ближайшие 0, дилатации — ближайшие 1; дальше c + 1 по столбцу можно не считать
+        int cap = c + 1;
+        int[] g = columns(src, !min, cap);
+        long r2 = (long) c * c + c;
+        BinaryImage dst = BinaryImage.blank(w, h);
+        TileScheduler.getDefault().forBands(w, h, 0, band -> {
+            int[] v = new int[w], z = new int[w], d2 = new int[w];
+            for (int y = band.y0; y < band.y1; y++) {
+                envelope(g, y * w, w, cap, d2, 0, v, z);
+                for (int x0 = 0, o = y * dst.stride; x0 < w; x0 += 64, o++) {
+                    long word = 0;
+                    for (int x = 0, n = Math.min(64, w - x0); x < n; x++) {
+                        if (min ? d2[x0 + x] > r2 : d2[x0 + x] <= r2) word |= 1L << x;
+                    }
+                    dst.bits[o] = word;
+                }
+            }
+        });
+        return dst;
+    }
+
+    /**
+     * Морфология диском радиуса radius на плоскости уровней: вход — порог ≥ 128, выход — 0/255.
+     * op — Эрозия, Дилатация, Открытие или Закрытие, как в {@link ImageFilters#morphology}; на
+     * входе из одних 0 и 255 результат тот же, что у неё с makeSE("Эллипс", 2·radius + 1).
+     */
+    static void diskMorphology(byte[] src, byte[] dst, int w, int h, String op, int radius) {
+        BinaryImage b = BinaryImage.threshold(src, w, h, 128);
+        switch (op) {
+            case "Эрозия": b = b.erodeDisk(radius); break;
+            case "Дилатация": b = b.dilateDisk(radius); break;
+            case "Открытие": b = b.erodeDisk(radius).dilateDisk(radius); break;
+            case "Закрытие": b = b.dilateDisk(radius).erodeDisk(radius); break;
+            default: throw new IllegalArgumentException("неизвестная операция " + op);
+        }
+        b.unpack(dst);
+    }
+
+    // ---------- Карта расстояний ----------
+
+    /**
+     * Евклидово расстояние каждого пикселя до ближайшего фона (уровень &lt; 128); на фоне — 0.
+     * Если фона нет вовсе — {@link Float#POSITIVE_INFINITY}.
+     */
+    public static float[] distances(BufferedImage gray) {
+        int w = gray.getWidth(), h = gray.getHeight();
+        int[] d2 = new int[w * h];
+        squared(BinaryImage.threshold(gray, 128), false, d2);
+        float[] d = new float[w * h];
+        for (int i = 0; i < d.length; i++) d[i] = d2[i] == NONE ? Float.POSITIVE_INFINITY : (float) Math.sqrt(d2[i]);
+        return d;
+    }
+
+    /** Карта расстояний как изображение: расстояние до фона, нормированное на 0..255 по максимуму. */
+    public static BufferedImage distanceMap(BufferedImage gray) {
+        int w = gray.getWidth(), h = gray.getHeight();
+        byte[] out = new byte[w * h];
+        distanceMap(GrayRaster.levels(gray), out, w, h);
+        return GrayRaster.toImage(out, w, h);
+    }
+
+    /** dst ← round(255 · d / max d), d — расстояние до ближайшего уровня &lt; 128; без фона — 255. */
+    static void distanceMap(byte[] src, byte[] dst, int w, int h) {
+        BinaryImage img = BinaryImage.threshold(src, w, h, 128);
+        int[] d2 = new int[w * h];
+        squared(img, false, d2);
+        TileScheduler scheduler = TileScheduler.getDefault();
+        int max = scheduler.reduce(w, h, 0, 1, Math::max, band -> {
+            int m = 0;
+            for (int i = band.y0 * w; i < band.y1 * w; i++) if (d2[i] != NONE && d2[i] > m) m = d2[i];
+            return m;
+        });
+        double maxD = Math.sqrt(max);
+        scheduler.forBands(w, h, 0, band -> {
+            for (int i = band.y0 * w; i < band.y1 * w; i++) {
+                dst[i] = (byte) (d2[i] == NONE ? 255 : ImageFilters.clamp8((int) Math.round(255.0 * (Math.sqrt(d2[i]) / maxD))));
+            }
+        });
+    }
+}
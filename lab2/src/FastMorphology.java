@@ -0,0 +1,183 @@
+import java.util.Arrays;
+
+/**
+ * Эрозия/дилатация за O(1) на пиксель независимо от размера SE (алгоритм van Herk / Gil-Werman).
+ *
+ * Линия делится на блоки длины k; внутри блока считаются префиксный g и суффиксный s
+ * минимумы (максимумы), и минимум по окну [x-half, x-half+k-1] равен op(s[x], g[x+k-1]) —
+ * около трёх сравнений на пиксель. Прямоугольник раскладывается на горизонтальный и
+ * вертикальный проходы, Крест — на op(горизонтальная линия, вертикальная линия). Окно —
+ * как у маски в ImageFilters: смещения [-k/2, k-1-k/2], для чётного k несимметричное.
+ *
+ * За краем изображения линия дополняется нейтральным элементом (255 для min, 0 для max):
+ * для этих SE это то же самое, что зажим координат в {@link ImageFilters}.
+ */
+public final class FastMorphology {
+
+    private FastMorphology() {
+    }
+
+    /** true, если маска — сплошной прямоугольник или крест (центральная строка + столбец). */
+    static boolean supports(boolean[][] se) {
+        return isRectangle(se) || isCross(se);
+    }
+
+    static boolean isRectangle(boolean[][] se) {
+        for (boolean[] row : se) for (boolean b : row) if (!b) return false;
+        return true;
+    }
+
+    static boolean isCross(boolean[][] se) {
+        int k = se.length, c = k / 2;
+        if (k % 2 == 0) return false;
+        for (int j = 0; j < k; j++) {
+            for (int i = 0; i < k; i++) {
+                if (se[j][i] != (i == c || j == c)) return false;
+            }
+        }
+        return true;
+    }
+
+    /** Эрозия (min=true) или дилатация по прямоугольнику/кресту se; см. {@link #supports}. */
+    static void apply(byte[] src, byte[] dst, int w, int h, boolean[][] se, boolean min) {
+        apply(src, dst, w, h, se, min, 0, h);
+    }
+
+    /**
+     * То же для строк [y0, y1) результата; читаются строки [y0 - k/2, y1 + k - 1 - k/2) —
+     * промежуточный горизонтальный проход считается только для них (ореол полосы).
+     */
+    static void apply(byte[] src, byte[] dst, int w, int h, boolean[][] se, boolean min, int y0, int y1) {
+        int k = se.length, half = k / 2;
+        if (isRectangle(se)) {
+            int r0 = Math.max(0, y0 - half), r1 = Math.min(h, y1 + k - 1 - half);
+            byte[] tmp = new byte[(r1 - r0) * w];
+            horizontal(src, tmp, w, se[0].length / 2, se[0].length, min, r0, r1, r0);
+            vertical(tmp, r0, dst, w, h, half, k, min, y0, y1);
+        } else {
+            byte[] tmp = new byte[(y1 - y0) * w];
+            horizontal(src, tmp, w, half, k, min, y0, y1, y0);
+            vertical(src, 0, dst, w, h, half, k, min, y0, y1);
+            for (int i = y0 * w, t = 0; i < y1 * w; i++, t++) {
+                int a = dst[i] & 0xFF, b = tmp[t] & 0xFF;
+                dst[i] = (byte) (min ? Math.min(a, b) : Math.max(a, b));
+            }
+        }
+    }
+
+    /**
+     * Горизонтальное окно [x-half, x-half+k-1] для строк [y0, y1); строка y пишется в dst
+     * с индекса (y - dstRow0) * w.
+     */
+    static void horizontal(byte[] src, byte[] dst, int w, int half, int k, boolean min, int y0, int y1, int dstRow0) {
+        if (k == 1) {
+            System.arraycopy(src, y0 * w, dst, (y0 - dstRow0) * w, (y1 - y0) * w);
+            return;
+        }
+        int id = min ? 255 : 0;
+        int padded = (w + k - 1 + k - 1) / k * k;
+        int[] p = new int[padded], g = new int[padded], s = new int[padded];
+        Arrays.fill(p, id); // поля слева/справа остаются нейтральными
+        for (int y = y0; y < y1; y++) {
+            int row = y * w, out = (y - dstRow0) * w;
+            for (int x = 0; x < w; x++) p[half + x] = src[row + x] & 0xFF;
+            for (int b = 0; b < padded; b += k) {
+                int acc = id;
+                for (int i = b; i < b + k; i++) {
+                    acc = min ? Math.min(acc, p[i]) : Math.max(acc, p[i]);
+                    g[i] = acc;
+                }
+                acc = id;
+                for (int i = b + k - 1; i >= b; i--) {
+                    acc = min ? Math.min(acc, p[i]) : Math.max(acc, p[i]);
+                    s[i] = acc;
+                }
+            }
+            for (int x = 0; x < w; x++) {
+                dst[out + x] = (byte) (min ? Math.min(s[x], g[x + k - 1]) : Math.max(s[x], g[x + k - 1]));
+            }
+        }
+    }
+
+    /**
+     * Вертикальное окно [y-half, y-half+k-1] для строк [y0, y1). Строка y источника лежит в src
+     * с индекса (y - srcRow0) * w; нужны строки [y0 - half, y1 - half + k - 1) ∩ [0, h). Проход идёт целыми
+     * строками (удобно для кэша): держатся суффикс текущего блока и префиксы текущего
+     * и следующего — 3k строк.
+     */
+    static void vertical(byte[] src, int srcRow0, byte[] dst, int w, int h, int half, int k, boolean min, int y0, int y1) {
+        if (k == 1) {
+            System.arraycopy(src, (y0 - srcRow0) * w, dst, y0 * w, (y1 - y0) * w);
+            return;
+        }
+        int id = min ? 255 : 0;
+        byte[] s = new byte[k * w];
+        byte[] g = new byte[k * w];
+        byte[] gNext = new byte[k * w];
+        int first = y0 - half; // строка дополненной линии с индексом 0
+        // строки вне [lo, hi) либо за краем, либо не влияют на строки [y0, y1) — считаем их нейтральными
+        int lo = Math.max(0, y0 - half), hi = Math.min(h, y1 - half + k - 1);
+        prefix(src, srcRow0, g, w, lo, hi, first, k, id, min);
+        for (int b = 0; y0 + b < y1; b += k) {
+            suffix(src, srcRow0, s, w, lo, hi, first + b, k, id, min);
+            prefix(src, srcRow0, gNext, w, lo, hi, first + b + k, k, id, min);
+            int rows = Math.min(k, y1 - y0 - b);
+            for (int j = 0; j < rows; j++) {
+                byte[] gr = j == 0 ? g : gNext;
+                int go = (j == 0 ? k - 1 : j - 1) * w;
+                int so = j * w;
+                int out = (y0 + b + j) * w;
+                for (int x = 0; x < w; x++) {
+                    int a = s[so + x] & 0xFF, c = gr[go + x] & 0xFF;
+                    dst[out + x] = (byte) (min ? Math.min(a, c) : Math.max(a, c));
+                }
+            }
+            byte[] t = g; g = gNext; gNext = t;
+        }
+    }
+
+    private static void prefix(byte[] src, int srcRow0, byte[] g, int w, int lo, int hi, int start, int k, int id, boolean min) {
+        for (int j = 0; j < k; j++) {
+            int y = start + j;
+            int o = j * w;
+            if (j == 0) {
+                rowOrIdentity(src, srcRow0, g, o, w, lo, hi, y, id);
+                continue;
+            }
+            if (y < lo || y >= hi) { // нейтральная строка префикс не меняет
+                System.arraycopy(g, o - w, g, o, w);
+                continue;
+            }
+            int row = (y - srcRow0) * w;
+            for (int x = 0; x < w; x++) {
+                int a = g[o - w + x] & 0xFF, c = src[row + x] & 0xFF;
+                g[o + x] = (byte) (min ? Math.min(a, c) : Math.max(a, c));
+            }
+        }
+    }
+
+    private static void suffix(byte[] src, int srcRow0, byte[] s, int w, int lo, int hi, int start, int k, int id, boolean min) {
+        for (int j = k - 1; j >= 0; j--) {
+            int y = start + j;
+            int o = j * w;
+            if (j == k - 1) {
+                rowOrIdentity(src, srcRow0, s, o, w, lo, hi, y, id);
+                continue;
+            }
+            if (y < lo || y >= hi) {
+                System.arraycopy(s, o + w, s, o, w);
+                continue;
+            }
+            int row = (y - srcRow0) * w;
+            for (int x = 0; x < w; x++) {
+                int a = s[o + w + x] & 0xFF, c = src[row + x] & 0xFF;
+                s[o + x] = (byte) (min ? Math.min(a, c) : Math.max(a, c));
+            }
+        }
+    }
+
+    private static void rowOrIdentity(byte[] src, int srcRow0, byte[] buf, int o, int w, int lo, int hi, int y, int id) {
+        if (y < lo || y >= hi) Arrays.fill(buf, o, o + w, (byte) id);
+        else System.arraycopy(src, (y - srcRow0) * w, buf, o, w);
+    }
+}
@@ -0,0 +1,119 @@
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.PixelInterleavedSampleModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+
+/**
+ * Прямой доступ к растрам без ColorModel: вместо getRGB/setRGB — массивы в порядке строк.
+ *
+ * Фильтры работают с «плоскостью уровней» byte[w*h] — те самые значения 0..255, которые
+ * раньше получались через getRGB(x,y) & 0xFF. У TYPE_BYTE_GRAY байты растра хранят
+ * линейную яркость (CS_GRAY), поэтому setRGB(g,g,g) пишет не g, а ENCODE[g], а getRGB
+ * читает обратно DECODE[байт]. Обе таблицы снимаются с самого ColorModel, так что
+ * результаты на массивах совпадают с прежними пиксель в пиксель.
+ */
+public final class GrayRaster {
+
+    /** Байт растра TYPE_BYTE_GRAY → уровень (как getRGB(x,y) & 0xFF). */
+    static final int[] DECODE = new int[256];
+    /** Уровень → байт растра TYPE_BYTE_GRAY (как setRGB(x,y,(g<<16)|(g<<8)|g)). */
+    static final byte[] ENCODE = new byte[256];
+    /** Уровень после записи в TYPE_BYTE_GRAY и чтения обратно: DECODE[ENCODE[v]]. */
+    static final int[] ROUNDTRIP = new int[256];
+
+    static {
+        BufferedImage probe = new BufferedImage(256, 1, BufferedImage.TYPE_BYTE_GRAY);
+        for (int v = 0; v < 256; v++) probe.setRGB(v, 0, (v << 16) | (v << 8) | v);
+        byte[] d = data(probe);
+        System.arraycopy(d, 0, ENCODE, 0, 256);
+        for (int b = 0; b < 256; b++) d[b] = (byte) b;
+        for (int b = 0; b < 256; b++) DECODE[b] = probe.getRGB(b, 0) & 0xFF;
+        for (int v = 0; v < 256; v++) ROUNDTRIP[v] = DECODE[ENCODE[v] & 0xFF];
+    }
+
+    private GrayRaster() {
+    }
+
+    /** Массив байтов TYPE_BYTE_GRAY, созданного через new BufferedImage (без смещений и подрастров). */
+    static byte[] data(BufferedImage gray) {
+        return ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+    }
+
+    /** Новое TYPE_BYTE_GRAY w×h, байты которого — закодированные уровни из plane. */
+    static BufferedImage toImage(byte[] levels, int w, int h) {
+        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] d = data(out);
+        for (int i = 0; i < w * h; i++) d[i] = ENCODE[levels[i] & 0xFF];
+        return out;
+    }
+
+    /** Плоскость уровней изображения: getRGB(x,y) & 0xFF для каждого пикселя. */
+    static byte[] levels(BufferedImage img) {
+        int w = img.getWidth(), h = img.getHeight();
+        byte[] out = new byte[w * h];
+        if (isCompactGray(img)) {
+            byte[] d = data(img);
+            for (int i = 0; i < w * h; i++) out[i] = (byte) DECODE[d[i] & 0xFF];
+            return out;
+        }
+        int[] row = new int[w];
+        for (int y = 0; y < h; y++) {
+            argbRow(img, y, row);
+            for (int x = 0; x < w; x++) out[y * w + x] = (byte) row[x];
+        }
+        return out;
+    }
+
+    /** Приводит уровни к тем, что вернул бы getRGB после записи в TYPE_BYTE_GRAY. */
+    static void quantize(byte[] levels) {
+        for (int i = 0; i < levels.length; i++) levels[i] = (byte) ROUNDTRIP[levels[i] & 0xFF];
+    }
+
+    /**
+     * Строка y в виде ARGB (как getRGB). Для INT_RGB/INT_ARGB и 3BYTE_BGR читается прямо
+     * из массива растра, иначе — пакетным getRGB по строке.
+     */
+    static void argbRow(BufferedImage img, int y, int[] row) {
+        int w = img.getWidth();
+        switch (img.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+                if (img.getRaster().getSampleModel() instanceof SinglePixelPackedSampleModel
+                        && img.getRaster().getParent() == null) {
+                    DataBufferInt db = (DataBufferInt) img.getRaster().getDataBuffer();
+                    int stride = ((SinglePixelPackedSampleModel) img.getRaster().getSampleModel()).getScanlineStride();
+                    int alpha = img.getType() == BufferedImage.TYPE_INT_RGB ? 0xFF000000 : 0;
+                    int[] d = db.getData();
+                    int base = db.getOffset() + y * stride;
+                    for (int x = 0; x < w; x++) row[x] = alpha | d[base + x];
+                    return;
+                }
+                break;
+            case BufferedImage.TYPE_3BYTE_BGR:
+                if (img.getRaster().getSampleModel() instanceof PixelInterleavedSampleModel
+                        && img.getRaster().getParent() == null) {
+                    DataBufferByte db = (DataBufferByte) img.getRaster().getDataBuffer();
+                    int stride = ((PixelInterleavedSampleModel) img.getRaster().getSampleModel()).getScanlineStride();
+                    byte[] d = db.getData();
+                    int base = db.getOffset() + y * stride;
+                    for (int x = 0, i = base; x < w; x++, i += 3) {
+                        row[x] = 0xFF000000 | ((d[i + 2] & 0xFF) << 16) | ((d[i + 1] & 0xFF) << 8) | (d[i] & 0xFF);
+                    }
+                    return;
+                }
+                break;
+            default:
+                break;
+        }
+        img.getRGB(0, y, w, 1, row, 0, w);
+    }
+
+    /** TYPE_BYTE_GRAY без смещений и подрастров: байты растра — ровно w*h подряд. */
+    static boolean isCompactGray(BufferedImage img) {
+        return img.getType() == BufferedImage.TYPE_BYTE_GRAY
+                && img.getRaster().getParent() == null
+                && img.getRaster().getDataBuffer().getOffset() == 0
+                && ((PixelInterleavedSampleModel) img.getRaster().getSampleModel()).getScanlineStride() == img.getWidth();
+    }
+}
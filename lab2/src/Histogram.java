@@ -0,0 +1,271 @@
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Гистограммы уровней серого и то, что на них строится: порог Оцу, эквализация, CLAHE
+ * и автоматические пороги Canny.
+ *
+ * Подсчёт идёт полосами через {@link TileScheduler}: у каждой полосы своя гистограмма,
+ * к общей она прибавляется один раз в конце полосы. Внутри полосы счётчиков {@value #STRIPES}
+ * копии, и соседние пиксели попадают в разные: на однотонных участках инкременты одного
+ * бина не ждут друг друга. Эквализация и порог — один проход подсчёта и один проход таблицы;
+ * CLAHE — проход гистограмм тайлов и проход интерполяции.
+ */
+public final class Histogram {
+
+    public static final int LEVELS = 256;
+
+    /** Доля «ребер» NMS-плоскости ниже верхнего порога Canny и отношение нижнего к верхнему. */
+    public static final double CANNY_HIGH_PERCENTILE = 0.7;
+    public static final double CANNY_LOW_RATIO = 0.4;
+
+    private static final int STRIPES = 4;
+
+    private Histogram() {
+    }
+
+    /** Гистограмма TYPE_BYTE_GRAY (например, из ImageFilters.grayImage) по уровням getRGB & 0xFF. */
+    public static int[] of(BufferedImage gray) {
+        int w = gray.getWidth(), h = gray.getHeight();
+        if (!GrayRaster.isCompactGray(gray)) return of(GrayRaster.levels(gray), w, h);
+        // считаются байты растра, уровни — перестановкой бинов, без плоскости уровней
+        int[] raw = of(GrayRaster.data(gray), w, h);
+        int[] hist = new int[LEVELS];
+        for (int b = 0; b < LEVELS; b++) hist[GrayRaster.DECODE[b]] += raw[b];
+        return hist;
+    }
+
+    /** Гистограмма плоскости уровней w×h. */
+    static int[] of(byte[] levels, int w, int h) {
+        int[] total = new int[LEVELS];
+        TileScheduler.getDefault().forBands(w, h, 0, band -> {
+            int[] local = new int[STRIPES * LEVELS];
+            count(levels, band.y0 * w, band.y1 * w, local);
+            synchronized (total) {
+                fold(local, total);
+            }
+        });
+        return total;
+    }
+
+    /** Прибавляет к striped (STRIPES × LEVELS) значения plane[from, to). */
+    private static void count(byte[] plane, int from, int to, int[] striped) {
+        int i = from;
+        for (; i + STRIPES <= to; i += STRIPES) {
+            striped[plane[i] & 0xFF]++;
+            striped[LEVELS + (plane[i + 1] & 0xFF)]++;
+            striped[2 * LEVELS + (plane[i + 2] & 0xFF)]++;
+            striped[3 * LEVELS + (plane[i + 3] & 0xFF)]++;
+        }
+        for (; i < to; i++) striped[plane[i] & 0xFF]++;
+    }
+
+    private static void fold(int[] striped, int[] hist) {
+        for (int v = 0; v < LEVELS; v++) {
+            hist[v] += striped[v] + striped[LEVELS + v] + striped[2 * LEVELS + v] + striped[3 * LEVELS + v];
+        }
+    }
+
+    // ---------- Порог Оцу ----------
+
+    /**
+     * Порог Оцу: t, при котором классы [0, t) и [t, 255] разделены лучше всего (максимум
+     * межклассовой дисперсии). Смысл как у OpGraph.threshold: v ≥ t — передний план.
+     * Для однотонной гистограммы — уровень этого тона.
+     */
+    public static int otsu(int[] hist) {
+        long n = 0, sum = 0;
+        for (int v = 0; v < LEVELS; v++) {
+            n += hist[v];
+            sum += (long) v * hist[v];
+        }
+        long n0 = 0, sum0 = 0;
+        double best = -1;
+        int t = 0;
+        for (int k = 0; k < LEVELS - 1; k++) {
+            n0 += hist[k];
+            sum0 += (long) k * hist[k];
+            long n1 = n - n0;
+            if (n0 == 0 || n1 == 0) continue;
+            double d = (double) sum0 / n0 - (double) (sum - sum0) / n1;
+            double between = (double) n0 * n1 * d * d;
+            if (between > best) {
+                best = between;
+                t = k + 1;
+            }
+        }
+        if (best < 0) for (int v = 0; v < LEVELS; v++) if (hist[v] > 0) return v;
+        return t;
+    }
+
+    /** dst ← 255 там, где src ≥ порога Оцу, иначе 0; возвращает порог. */
+    static int otsu(byte[] src, byte[] dst, int w, int h) {
+        int t = otsu(of(src, w, h));
+        int[] lut = new int[LEVELS];
+        for (int v = t; v < LEVELS; v++) lut[v] = 255;
+        apply(src, dst, w, h, lut);
+        return t;
+    }
+
+    // ---------- Эквализация ----------
+
+    /** Таблица эквализации: round((cdf(v) − cdf_min) · 255 / (N − cdf_min)). */
+    static int[] equalization(int[] hist) {
+        long n = 0, min = 0;
+        for (int v = 0; v < LEVELS; v++) {
+            if (min == 0) min = hist[v];
+            n += hist[v];
+        }
+        int[] lut = new int[LEVELS];
+        if (n == min) {
+            for (int v = 0; v < LEVELS; v++) lut[v] = v; // один тон — растягивать нечего
+            return lut;
+        }
+        long cdf = 0;
+        for (int v = 0; v < LEVELS; v++) {
+            cdf += hist[v];
+            lut[v] = (int) Math.max(0, ((cdf - min) * 255 + (n - min) / 2) / (n - min));
+        }
+        return lut;
+    }
+
+    static void equalize(byte[] src, byte[] dst, int w, int h) {
+        apply(src, dst, w, h, equalization(of(src, w, h)));
+    }
+
+    /** Эквализация гистограммы; результат — TYPE_BYTE_GRAY. */
+    public static BufferedImage equalize(BufferedImage gray) {
+        int w = gray.getWidth(), h = gray.getHeight();
+        byte[] levels = GrayRaster.levels(gray);
+        equalize(levels, levels, w, h);
+        return GrayRaster.toImage(levels, w, h);
+    }
+
+    private static void apply(byte[] src, byte[] dst, int w, int h, int[] lut) {
+        TileScheduler.getDefault().forBands(w, h, 0, band -> {
+            for (int i = band.y0 * w; i < band.y1 * w; i++) dst[i] = (byte) lut[src[i] & 0xFF];
+        });
+    }
+
+    // ---------- CLAHE ----------
+
+    /**
+     * Эквализация с ограничением контраста по тайлам: изображение делится на tiles × tiles
+     * тайлов; гистограмма каждого обрезается на clip средних высот бина (излишек поровну
+     * раздаётся всем бинам) и даёт свою таблицу; пиксель получает билинейную смесь таблиц
+     * четырёх ближайших центров тайлов. clip = 1 — почти без усиления, большие clip
+     * приближаются к эквализации по тайлу.
+     */
+    static void clahe(byte[] src, byte[] dst, int w, int h, int tiles, double clip) {
+        if (tiles < 1 || !(clip >= 1)) throw new IllegalArgumentException("tiles ≥ 1, clip ≥ 1");
+        int tw = (w + tiles - 1) / tiles, th = (h + tiles - 1) / tiles;
+        int nx = (w + tw - 1) / tw, ny = (h + th - 1) / th;
+        int[][] hists = new int[nx * ny][LEVELS];
+        TileScheduler scheduler = TileScheduler.getDefault();
+        // полоса копит ряд тайлов в своих гистограммах и сливает их при смене ряда и в конце
+        scheduler.forBands(w, h, 0, band -> {
+            int[][] local = new int[nx][STRIPES * LEVELS];
+            int ty = band.y0 / th;
+            for (int y = band.y0; y < band.y1; y++) {
+                if (y / th != ty) {
+                    merge(local, hists, ty * nx);
+                    ty = y / th;
+                }
+                for (int tx = 0; tx < nx; tx++) count(src, y * w + tx * tw, y * w + Math.min(w, tx * tw + tw), local[tx]);
+            }
+            merge(local, hists, ty * nx);
+        });
+        int[][] luts = new int[nx * ny][];
+        for (int t = 0; t < nx * ny; t++) {
+            int area = (Math.min(w, (t % nx + 1) * tw) - t % nx * tw) * (Math.min(h, (t / nx + 1) * th) - t / nx * th);
+            luts[t] = clippedLut(hists[t], area, clip);
+        }
+
+        // по x: левый тайл, вес правого — общие для всех строк
+        int[] left = new int[w];
+        float[] ax = new float[w];
+        for (int x = 0; x < w; x++) {
+            float gx = (x + 0.5f) / tw - 0.5f;
+            int x0 = Math.max(0, Math.min(nx - 1, (int) Math.floor(gx)));
+            left[x] = x0;
+            ax[x] = Math.max(0f, Math.min(1f, gx - x0));
+        }
+        scheduler.forBands(w, h, 0, band -> {
+            for (int y = band.y0; y < band.y1; y++) {
+                float gy = (y + 0.5f) / th - 0.5f;
+                int y0 = Math.max(0, Math.min(ny - 1, (int) Math.floor(gy)));
+                int y1 = Math.min(ny - 1, y0 + 1);
+                float ay = Math.max(0f, Math.min(1f, gy - y0));
+                for (int x = 0, i = y * w; x < w; x++, i++) {
+                    int v = src[i] & 0xFF;
+                    int x0 = left[x], x1 = Math.min(nx - 1, x0 + 1);
+                    float top = luts[y0 * nx + x0][v] + (luts[y0 * nx + x1][v] - luts[y0 * nx + x0][v]) * ax[x];
+                    float bottom = luts[y1 * nx + x0][v] + (luts[y1 * nx + x1][v] - luts[y1 * nx + x0][v]) * ax[x];
+                    dst[i] = (byte) (int) (top + (bottom - top) * ay + 0.5f);
+                }
+            }
+        });
+    }
+
+    /** Прибавляет striped-гистограммы ряда тайлов к общим hists[first..] и обнуляет их. */
+    private static void merge(int[][] local, int[][] hists, int first) {
+        synchronized (hists) {
+            for (int tx = 0; tx < local.length; tx++) fold(local[tx], hists[first + tx]);
+        }
+        for (int[] striped : local) Arrays.fill(striped, 0);
+    }
+
+    /** CLAHE; результат — TYPE_BYTE_GRAY. */
+    public static BufferedImage clahe(BufferedImage gray, int tiles, double clip) {
+        int w = gray.getWidth(), h = gray.getHeight();
+        byte[] levels = GrayRaster.levels(gray), out = new byte[w * h];
+        clahe(levels, out, w, h, tiles, clip);
+        return GrayRaster.toImage(out, w, h);
+    }
+
+    /** Таблица тайла: гистограмма обрезается на clip · area / 256, излишек раздаётся поровну. */
+    private static int[] clippedLut(int[] hist, int area, double clip) {
+        int limit = Math.max(1, (int) (clip * area / LEVELS));
+        int excess = 0;
+        for (int v = 0; v < LEVELS; v++) {
+            if (hist[v] > limit) {
+                excess += hist[v] - limit;
+                hist[v] = limit;
+            }
+        }
+        int each = excess / LEVELS, rest = excess % LEVELS;
+        int[] lut = new int[LEVELS];
+        long cdf = 0;
+        for (int v = 0; v < LEVELS; v++) {
+            // остаток — по одному в бины, равномерно разнесённые по диапазону
+            cdf += hist[v] + each + (rest > 0 && v * rest / LEVELS != (v + 1) * rest / LEVELS ? 1 : 0);
+            lut[v] = (int) ((cdf * 255 + area / 2) / area);
+        }
+        return lut;
+    }
+
+    // ---------- Пороги Canny ----------
+
+    /**
+     * Пороги Canny {low, high} по гистограмме NMS-плоскости (0 — подавленные пиксели, не
+     * учитываются): high — перцентиль {@link #CANNY_HIGH_PERCENTILE} величины градиента на
+     * гребнях, low = {@link #CANNY_LOW_RATIO} · high. Без гребней — {0, 1}.
+     */
+    public static int[] cannyThresholds(int[] nmsHist) {
+        long ridges = 0;
+        for (int v = 1; v < LEVELS; v++) ridges += nmsHist[v];
+        if (ridges == 0) return new int[]{0, 1};
+        long target = (long) Math.ceil(CANNY_HIGH_PERCENTILE * ridges);
+        long seen = 0;
+        int high = LEVELS - 1;
+        for (int v = 1; v < LEVELS; v++) {
+            seen += nmsHist[v];
+            if (seen >= target) {
+                high = v;
+                break;
+            }
+        }
+        high = Math.max(high, 1);
+        return new int[]{(int) Math.round(CANNY_LOW_RATIO * high), high};
+    }
+}
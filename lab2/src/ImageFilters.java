@@ -0,0 +1,414 @@
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+/**
+ * Ядро обработки: морфология и сегментация на массивах растра (см. {@link GrayRaster}).
+ * Все фильтры работают по плоскости уровней byte[w*h] в порядке строк, индекс y*w + x;
+ * граница обрабатывается явно (зажим координат там же, где он был в версии на getRGB).
+ * Обёртки над BufferedImage возвращают TYPE_BYTE_GRAY, совпадающий пиксель в пиксель
+ * с прежней реализацией на getRGB/setRGB.
+ *
+ * Каждый проход разбит на полосы строк и выполняется через {@link TileScheduler#getDefault()};
+ * ореол полосы — радиус оператора (1 для 3×3, size/2 для SE, r/2 для бокс-фильтра).
+ * Проходы, которым нужен глобальный результат (максимум градиента), разделены барьером.
+ * Собель, Лапласиан и Гаусс — свёртки {@link Convolution}; бокс-фильтр остаётся на своих
+ * скользящих суммах (их же использует {@link StreamingCanny}).
+ */
+public final class ImageFilters {
+
+    private ImageFilters() {
+    }
+
+    // ---------- Вспомогательные функции ----------
+
+    static int gray(int rgb) {
+        int r = (rgb >> 16) & 0xFF;
+        int g = (rgb >> 8) & 0xFF;
+        int b = rgb & 0xFF;
+        return (int)(0.299*r + 0.587*g + 0.114*b);
+    }
+
+    static int clamp8(int v){ return v < 0 ? 0 : (v > 255 ? 255 : v); }
+
+    public static BufferedImage grayImage(BufferedImage src){
+        int w = src.getWidth(), h = src.getHeight();
+        BufferedImage out = new BufferedImage(w,h,BufferedImage.TYPE_BYTE_GRAY);
+        byte[] d = GrayRaster.data(out);
+        TileScheduler.getDefault().forBands(w, h, 0, band -> {
+            int[] row = new int[w];
+            for(int y=band.y0;y<band.y1;y++){
+                GrayRaster.argbRow(src, y, row);
+                for(int x=0, i=y*w;x<w;x++,i++) d[i] = GrayRaster.ENCODE[gray(row[x])];
+            }
+        });
+        return out;
+    }
+
+    /** Плоскость уровней серого изображения src (уже после записи в TYPE_BYTE_GRAY). */
+    static byte[] grayLevels(BufferedImage src){
+        return GrayRaster.levels(grayImage(src));
+    }
+
+    // ---------- Морфология ----------
+
+    /**
+     * Генерация структурирующего элемента в виде булевой маски size×size.
+     * Поддержка: Крест, Прямоугольник, Эллипс (аппроксимированный круг).
+     */
+    public static boolean[][] makeSE(String shape, int size){
+        boolean[][] se = new boolean[size][size];
+        int c = size/2;
+        switch (shape) {
+            case "Прямоугольник":
+                for(int j=0;j<size;j++) for(int i=0;i<size;i++) se[j][i] = true;
+                break;
+            case "Крест":
+                for(int j=0;j<size;j++) se[j][c] = true;
+                for(int i=0;i<size;i++) se[c][i] = true;
+                break;
+            case "Эллипс":
+            default:
+                double r = c + 0.5;
+                for(int j=0;j<size;j++){
+                    for(int i=0;i<size;i++){
+                        double dx = i - c;
+                        double dy = j - c;
+                        se[j][i] = (dx*dx + dy*dy) <= r*r; // круглая маска
+                    }
+                }
+                break;
+        }
+        return se;
+    }
+
+    /**
+     * Эрозия бинарно/градационная: минимум по пикселям, покрытым SE.
+     */
+    public static BufferedImage erode(BufferedImage src, boolean[][] se){
+        int w = src.getWidth(), h = src.getHeight();
+        byte[] out = new byte[w*h];
+        erode(GrayRaster.levels(src), out, w, h, se);
+        return GrayRaster.toImage(out, w, h);
+    }
+
+    /**
+     * Дилатация: максимум по пикселям, покрытым SE.
+     */
+    public static BufferedImage dilate(BufferedImage src, boolean[][] se){
+        int w = src.getWidth(), h = src.getHeight();
+        byte[] out = new byte[w*h];
+        dilate(GrayRaster.levels(src), out, w, h, se);
+        return GrayRaster.toImage(out, w, h);
+    }
+
+    /**
+     * Вход из одних 0 и 255 идёт через {@link BinaryImage} (64 пикселя на слово); иначе
+     * Прямоугольник и Крест — через {@link FastMorphology} (O(1) на пиксель), прочие SE — по маске.
+     */
+    static void erode(byte[] src, byte[] dst, int w, int h, boolean[][] se){
+        minMax(src, dst, w, h, se, true);
+    }
+
+    static void dilate(byte[] src, byte[] dst, int w, int h, boolean[][] se){
+        minMax(src, dst, w, h, se, false);
+    }
+
+    private static void minMax(byte[] src, byte[] dst, int w, int h, boolean[][] se, boolean min){
+        BinaryImage binary = BinaryImage.pack(src, w, h);
+        if (binary != null) {
+            BinaryImage.morph(binary, se, min).unpack(dst);
+            return;
+        }
+        boolean fast = FastMorphology.supports(se);
+        TileScheduler.getDefault().forBands(w, h, se.length/2, band -> {
+            if (fast) FastMorphology.apply(src, dst, w, h, se, min, band.y0, band.y1);
+            else minMax(src, dst, w, h, se, min, band.y0, band.y1);
+        });
+    }
+
+    /**
+     * Минимум (эрозия) или максимум (дилатация) по маске SE. Внутри изображения соседи
+     * берутся по заранее посчитанным смещениям индекса, у краёв — с зажимом координат.
+     */
+    private static void minMax(byte[] src, byte[] dst, int w, int h, boolean[][] se, boolean min, int y0, int y1){
+        int k = se.length, half = k/2;
+        int n = 0;
+        for(int j=0;j<k;j++) for(int i=0;i<k;i++) if(se[j][i]) n++;
+        int[] dx = new int[n], dy = new int[n], off = new int[n];
+        for(int j=0, t=0;j<k;j++){
+            for(int i=0;i<k;i++){
+                if(!se[j][i]) continue;
+                dx[t] = i - half; dy[t] = j - half; off[t] = dy[t]*w + dx[t];
+                t++;
+            }
+        }
+        int init = min ? 255 : 0;
+        for(int y=y0;y<y1;y++){
+            boolean rowInside = y >= half && y < h-half;
+            for(int x=0;x<w;x++){
+                int m = init;
+                if(rowInside && x >= half && x < w-half){
+                    int base = y*w + x;
+                    for(int t=0;t<n;t++){
+                        int g = src[base + off[t]] & 0xFF;
+                        if(min ? g < m : g > m) m = g;
+                    }
+                } else {
+                    for(int t=0;t<n;t++){
+                        int xx = Math.min(Math.max(x + dx[t], 0), w-1);
+                        int yy = Math.min(Math.max(y + dy[t], 0), h-1);
+                        int g = src[yy*w + xx] & 0xFF;
+                        if(min ? g < m : g > m) m = g;
+                    }
+                }
+                dst[y*w + x] = (byte) m;
+            }
+        }
+    }
+
+    /**
+     * Обёртка морфологии: Эрозия, Дилатация, Открытие (Эрозия→Дилатация), Закрытие (Дилатация→Эрозия).
+     */
+    public static BufferedImage morphology(BufferedImage srcGray, String op, String shape, int size) {
+        int w = srcGray.getWidth(), h = srcGray.getHeight();
+        byte[] src = GrayRaster.levels(srcGray);
+        byte[] out = new byte[w*h];
+        if (!morphology(src, out, w, h, op, makeSE(shape, size))) return srcGray;
+        return GrayRaster.toImage(out, w, h);
+    }
+
+    /** Морфология на плоскости уровней; false — неизвестная операция (dst не тронут). */
+    static boolean morphology(byte[] src, byte[] dst, int w, int h, String op, boolean[][] se) {
+        boolean twoPass = op.equals("Открытие") || op.equals("Закрытие");
+        BinaryImage binary = twoPass ? BinaryImage.pack(src, w, h) : null;
+        if (binary != null) {
+            // бинарный промежуточный результат не упаковывается заново (0 и 255 квантование не меняет)
+            (op.equals("Открытие") ? binary.open(se) : binary.close(se)).unpack(dst);
+            return true;
+        }
+        switch (op) {
+            case "Эрозия":
+                erode(src, dst, w, h, se);
+                return true;
+            case "Дилатация":
+                dilate(src, dst, w, h, se);
+                return true;
+            case "Открытие": {
+                byte[] tmp = new byte[w*h];
+                erode(src, tmp, w, h, se);
+                GrayRaster.quantize(tmp);
+                dilate(tmp, dst, w, h, se);
+                return true;
+            }
+            case "Закрытие": {
+                byte[] tmp = new byte[w*h];
+                dilate(src, tmp, w, h, se);
+                GrayRaster.quantize(tmp);
+                erode(tmp, dst, w, h, se);
+                return true;
+            }
+            default:
+                return false;
+        }
+    }
+
+    // ---------- Сегментация ----------
+
+    /**
+     * Собель: величина градиента sqrt(gx^2 + gy^2) с нормализацией на 0..255.
+     * Ядра:
+     * Gx = [-1 0 1; -2 0 2; -1 0 1], Gy = [ 1  2  1; 0 0 0; -1 -2 -1]
+     */
+    public static BufferedImage sobelGradient(BufferedImage src){
+        int w = src.getWidth(), h = src.getHeight();
+        byte[] out = new byte[w*h];
+        sobel(GrayRaster.levels(src), out, w, h);
+        return GrayRaster.toImage(out, w, h);
+    }
+
+    static void sobel(byte[] src, byte[] dst, int w, int h){
+        // gx^2 + gy^2 в int: sqrt монотонен, поэтому максимум и нормализация те же, что на double
+        int[] mag2 = new int[w*h];
+        TileScheduler scheduler = TileScheduler.getDefault();
+        int maxMag2 = scheduler.reduce(w, h, 1, 1, Math::max, band -> { // 1 — для нормализации (maxMag = 1.0)
+            sobelMag2(src, w, h, mag2, band.y0*w, band.y0, band.y1);
+            int max = 0;
+            for(int i=band.y0*w;i<band.y1*w;i++) if (mag2[i] > max) max = mag2[i];
+            return max;
+        });
+
+        // нормализация и запись
+        double maxMag = Math.sqrt(maxMag2);
+        scheduler.forBands(w, h, 0, band -> {
+            for(int i=band.y0*w;i<band.y1*w;i++){
+                int v = (int) Math.round(255.0 * (Math.sqrt(mag2[i]) / maxMag));
+                dst[i] = (byte) clamp8(v);
+            }
+        });
+    }
+
+    /** Максимум gx^2 + gy^2 по внутренним пикселям строк [y0, y1). */
+    static int sobelMaxMag2(byte[] src, int w, int h, int y0, int y1){
+        int[] mag2 = new int[Math.min(y1-y0, Convolution.CHUNK_ROWS)*w];
+        int max = 0;
+        for(int c=y0;c<y1;c+=Convolution.CHUNK_ROWS){
+            int c1 = Math.min(y1, c+Convolution.CHUNK_ROWS);
+            sobelMag2(src, w, h, mag2, 0, c, c1);
+            for(int i=0;i<(c1-c)*w;i++) if (mag2[i] > max) max = mag2[i];
+        }
+        return max;
+    }
+
+    /**
+     * Строки [y0, y1) Собеля, нормированного по заданному максимуму maxMag2 (≥ 1), без
+     * плоскости mag2 — для потоковой обработки, где максимум считается отдельным проходом
+     * ({@link #sobelMaxMag2}). Рамка — 0.
+     */
+    static void sobel(byte[] src, byte[] dst, int w, int h, int maxMag2, int y0, int y1){
+        double maxMag = Math.sqrt(maxMag2);
+        int[] mag2 = new int[Math.min(y1-y0, Convolution.CHUNK_ROWS)*w];
+        for(int c=y0;c<y1;c+=Convolution.CHUNK_ROWS){
+            int c1 = Math.min(y1, c+Convolution.CHUNK_ROWS);
+            sobelMag2(src, w, h, mag2, 0, c, c1);
+            for(int i=0, d=c*w;i<(c1-c)*w;i++,d++){
+                int v = (int) Math.round(255.0 * (Math.sqrt(mag2[i]) / maxMag));
+                dst[d] = (byte) clamp8(v);
+            }
+        }
+    }
+
+    private static final Convolution.Kernel SOBEL_X = Convolution.Kernel.of(new int[][]{{-1,0,1},{-2,0,2},{-1,0,1}});
+    private static final Convolution.Kernel SOBEL_Y = Convolution.Kernel.of(new int[][]{{1,2,1},{0,0,0},{-1,-2,-1}});
+    private static final Convolution.Kernel LAPLACIAN = Convolution.Kernel.of(new int[][]{{0,1,0},{1,-4,1},{0,1,0}});
+
+    /** mag2[off + (y-y0)*w + x] = gx^2 + gy^2 для строк [y0, y1); рамка в 1 пиксель — 0. */
+    private static void sobelMag2(byte[] src, int w, int h, int[] mag2, int off, int y0, int y1){
+        int[] gx = new int[Math.min(y1-y0, Convolution.CHUNK_ROWS)*w], gy = new int[gx.length];
+        for(int c=y0;c<y1;c+=Convolution.CHUNK_ROWS){
+            int c1 = Math.min(y1, c+Convolution.CHUNK_ROWS);
+            Convolution.apply(src, w, h, SOBEL_X, Convolution.Border.INTERIOR, gx, 0, c, c1);
+            Convolution.apply(src, w, h, SOBEL_Y, Convolution.Border.INTERIOR, gy, 0, c, c1);
+            for(int i=0, d=off+(c-y0)*w;i<(c1-c)*w;i++,d++){
+                int a = gx[i], b = gy[i];
+                mag2[d] = a*a + b*b;
+            }
+        }
+    }
+
+    /**
+     * Лапласиан (ядро 3x3): выделение точек резкого перепада яркости.
+     */
+    public static BufferedImage laplacian(BufferedImage src){
+        int w = src.getWidth(), h = src.getHeight();
+        byte[] out = new byte[w*h];
+        laplacian(GrayRaster.levels(src), out, w, h);
+        return GrayRaster.toImage(out, w, h);
+    }
+
+    static void laplacian(byte[] src, byte[] dst, int w, int h){
+        // классическое ядро {{0,1,0},{1,-4,1},{0,1,0}}; рамка в 1 пиксель — нули (dst может быть не чистым)
+        TileScheduler.getDefault().forBands(w, h, 1, band -> {
+            int[] acc = new int[Math.min(band.y1-band.y0, Convolution.CHUNK_ROWS)*w];
+            for(int c=band.y0;c<band.y1;c+=Convolution.CHUNK_ROWS){
+                int c1 = Math.min(band.y1, c+Convolution.CHUNK_ROWS);
+                Convolution.apply(src, w, h, LAPLACIAN, Convolution.Border.INTERIOR, acc, 0, c, c1);
+                for(int i=0, d=c*w;i<(c1-c)*w;i++,d++) dst[d] = (byte) clamp8(Math.abs(acc[i]));
+            }
+        });
+    }
+
+    /**
+     * Размытие по Гауссу с радиусом ⌈3σ⌉ и повтором краевых пикселей (см. {@link Convolution}).
+     */
+    public static BufferedImage gaussianBlur(BufferedImage src, double sigma){
+        int w = src.getWidth(), h = src.getHeight();
+        byte[] out = new byte[w*h];
+        Convolution.apply(GrayRaster.levels(src), out, w, h, Convolution.Kernel.gaussian(sigma));
+        return GrayRaster.toImage(out, w, h);
+    }
+
+    /**
+     * Canny:
+     * 1) Сглаживание бокс-фильтром blur×blur (по умолчанию 3×3)
+     * 2) Собель → градиент + направление
+     * 3) Non-Maximum Suppression (NMS)
+     * 4) Двойной порог (low/high)
+     * 5) Трассировка гистерезисом: слабые края остаются, только если связаны с сильными
+     * Считается потоково по строкам, см. {@link StreamingCanny}.
+     */
+    public static BufferedImage canny(BufferedImage src, int low, int high){
+        return canny(src, low, high, 3);
+    }
+
+    public static BufferedImage canny(BufferedImage src, int low, int high, int blur){
+        int w = src.getWidth(), h = src.getHeight();
+        byte[] out = new byte[w*h];
+        canny(GrayRaster.levels(src), out, w, h, low, high, blur);
+        return GrayRaster.toImage(out, w, h);
+    }
+
+    static void canny(byte[] src, byte[] dst, int w, int h, int low, int high, int blur){
+        StreamingCanny.canny(src, dst, w, h, low, high, blur);
+    }
+
+    /**
+     * Простой бокс-фильтр (усреднение) r×r; используется перед Canny.
+     * Окно — (2*(r/2)+1)² пикселей с повтором краевых, делитель — r*r (как было исторически).
+     * Стоимость не зависит от r: скользящие суммы по столбцам и по строке.
+     */
+    public static BufferedImage boxBlur(BufferedImage src, int r){
+        int w = src.getWidth(), h = src.getHeight();
+        byte[] out = new byte[w*h];
+        boxBlur(GrayRaster.levels(src), out, w, h, r);
+        return GrayRaster.toImage(out, w, h);
+    }
+
+    static void boxBlur(byte[] src, byte[] dst, int w, int h, int r){
+        TileScheduler.getDefault().forBands(w, h, r/2, band -> boxBlur(src, dst, w, h, r, band.y0, band.y1));
+    }
+
+    private static void boxBlur(byte[] src, byte[] dst, int w, int h, int r, int y0, int y1){
+        // colSum[x] — сумма столбца x по строкам y-half..y+half (с зажимом), сдвигается вниз на строку
+        int[] colSum = new int[w];
+        initColumnSums(src, colSum, w, h, r/2, y0);
+        for(int y=y0;y<y1;y++){
+            blurRow(colSum, dst, y*w, w, r);
+            if (y+1 < y1) advanceColumnSums(src, colSum, w, h, r/2, y);
+        }
+    }
+
+    /** colSum[x] = сумма src по строкам y-half..y+half столбца x (строки за краем — повтор крайней). */
+    static void initColumnSums(byte[] src, int[] colSum, int w, int h, int half, int y){
+        Arrays.fill(colSum, 0);
+        for(int j=-half;j<=half;j++){
+            int row = Math.min(Math.max(y+j,0),h-1)*w;
+            for(int x=0;x<w;x++) colSum[x] += src[row + x] & 0xFF;
+        }
+    }
+
+    /** Сдвигает суммы столбцов со строки y на y+1. */
+    static void advanceColumnSums(byte[] src, int[] colSum, int w, int h, int half, int y){
+        int add = Math.min(y+half+1,h-1)*w, sub = Math.max(y-half,0)*w;
+        for(int x=0;x<w;x++) colSum[x] += (src[add + x] & 0xFF) - (src[sub + x] & 0xFF);
+    }
+
+    /** Строка бокс-фильтра r×r по готовым суммам столбцов, запись в dst начиная с off. */
+    static void blurRow(int[] colSum, byte[] dst, int off, int w, int r){
+        int half = r/2;
+        int sum = 0;
+        for(int i=-half;i<=half;i++) sum += colSum[Math.min(Math.max(i,0),w-1)];
+        for(int x=0;x<w;x++){
+            dst[off + x] = (byte) clamp8(boxAverage(sum, r));
+            sum += colSum[Math.min(x+half+1,w-1)] - colSum[Math.max(x-half,0)];
+        }
+    }
+
+    /** round(sum/(r*r)) целочисленно; на точной половине повторяем округление double-выражения. */
+    private static int boxAverage(int sum, int r){
+        long d2 = 2L*r*r;
+        long num = 2L*sum + r*r;
+        long v = num / d2;
+        if (v * d2 == num) v = Math.round(sum*(1.0/(r*r)));
+        return (int) v;
+    }
+}
@@ -2,15 +2,21 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
+import java.io.IOException;
+import java.util.function.DoubleFunction;
 import javax.imageio.ImageIO;
 
 /**
- * Обработка изображений — Морфология и Сегментация (Sobel, Laplacian, упрощённый Canny)
- * Чистый Java, без OpenCV. Подробные пояснения в коде.
+ * Обработка изображений — Морфология, Сегментация (Sobel, Laplacian, упрощённый Canny, Оцу)
+ * и выравнивание яркости по гистограмме. Чистый Java, без OpenCV. Сами фильтры — в
+ * {@link ImageFilters} и {@link Histogram}.
  */
 public class ImageProcessingApp extends JFrame {
     private BufferedImage original;
     private BufferedImage processed;
+    // Превью рисуются из mip-пирамид; пока processed не пересчитан, его пирамида — та же, что у оригинала
+    private MipPyramid originalMips;
+    private MipPyramid processedMips;
 
     private final JLabel originalLabel = new JLabel();
     private final JLabel processedLabel = new JLabel();
@@ -19,6 +25,16 @@ public class ImageProcessingApp extends JFrame {
     private final JButton loadBtn = new JButton("Загрузить изображение");
     private final JButton saveBtn = new JButton("Сохранить результат");
     private final JButton resetBtn = new JButton("Сброс");
+    private final JButton cancelBtn = new JButton("Отмена");
+    private final JProgressBar progress = new JProgressBar(0, 100);
+    private final JLabel status = new JLabel(" ");
+
+    // Фильтры считаются в фоне; activePanel — чья кнопка запустила текущее задание
+    private final JobExecutor<MipPyramid> jobs = new JobExecutor<>();
+    // Серая плоскость и результаты по источнику и параметрам: повтор и смена порогов Canny без пересчёта
+    private final ResultCache cache = ResultCache.shared();
+    private JPanel activePanel;
+    private JPanel mPanel, sPanel, hPanel;
 
     // Морфология
     private final JButton morphBtn = new JButton("Применить морфологию");
@@ -28,9 +44,18 @@ public class ImageProcessingApp extends JFrame {
 
     // Сегментация
     private final JButton segBtn = new JButton("Применить сегментацию");
-    private final JComboBox<String> segOp = new JComboBox<>(new String[]{"Sobel","Laplacian","Canny"});
+    private final JComboBox<String> segOp = new JComboBox<>(new String[]{"Sobel","Laplacian","Canny","Оцу","Расстояния"});
     private final JSpinner cannyLow = new JSpinner(new SpinnerNumberModel(40, 0, 255, 1));
     private final JSpinner cannyHigh = new JSpinner(new SpinnerNumberModel(100, 1, 255, 1));
+    private final JSpinner cannyBlur = new JSpinner(new SpinnerNumberModel(3, 1, 51, 1)); // окно сглаживания r×r
+    // пороги по перцентилям градиента; спиннеры тогда только показывают выбранные значения
+    private final JCheckBox cannyAuto = new JCheckBox("авто");
+
+    // Гистограмма
+    private final JButton histBtn = new JButton("Выровнять яркость");
+    private final JComboBox<String> histOp = new JComboBox<>(new String[]{"Эквализация","CLAHE"});
+    private final JSpinner claheTiles = new JSpinner(new SpinnerNumberModel(8, 1, 64, 1)); // тайлов по стороне
+    private final JSpinner claheClip = new JSpinner(new SpinnerNumberModel(2.0, 1.0, 40.0, 0.5));
 
     public ImageProcessingApp() {
         super("Обработка изображений — Морфология и Сегментация");
@@ -42,6 +67,12 @@ public class ImageProcessingApp extends JFrame {
         top.add(loadBtn);
         top.add(saveBtn);
         top.add(resetBtn);
+        top.add(progress);
+        top.add(cancelBtn);
+        top.add(status);
+        progress.setStringPainted(true);
+        progress.setVisible(false);
+        cancelBtn.setEnabled(false);
         add(top, BorderLayout.NORTH);
 
         // Центр: оригинал и результат
@@ -57,7 +88,7 @@ public class ImageProcessingApp extends JFrame {
         controls.setLayout(new BoxLayout(controls, BoxLayout.Y_AXIS));
 
         // Панель морфологии
-        JPanel mPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        mPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         mPanel.setBorder(BorderFactory.createTitledBorder("Морфологическая обработка"));
         mPanel.add(new JLabel("Операция:"));
         mPanel.add(morphOp);
@@ -69,16 +100,31 @@ public class ImageProcessingApp extends JFrame {
         controls.add(mPanel);
 
         // Панель сегментации
-        JPanel sPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        sPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         sPanel.setBorder(BorderFactory.createTitledBorder("Сегментация: линии, точки, перепады яркости"));
         sPanel.add(new JLabel("Метод:"));
         sPanel.add(segOp);
         sPanel.add(new JLabel("Canny low/high:"));
         sPanel.add(cannyLow);
         sPanel.add(cannyHigh);
+        sPanel.add(cannyAuto);
+        sPanel.add(new JLabel("Сглаживание r:"));
+        sPanel.add(cannyBlur);
         sPanel.add(segBtn);
         controls.add(sPanel);
 
+        // Панель гистограммы
+        hPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        hPanel.setBorder(BorderFactory.createTitledBorder("Яркость по гистограмме"));
+        hPanel.add(new JLabel("Метод:"));
+        hPanel.add(histOp);
+        hPanel.add(new JLabel("CLAHE тайлы:"));
+        hPanel.add(claheTiles);
+        hPanel.add(new JLabel("ограничение:"));
+        hPanel.add(claheClip);
+        hPanel.add(histBtn);
+        controls.add(hPanel);
+
         add(controls, BorderLayout.SOUTH);
 
         attachListeners();
@@ -91,16 +137,7 @@ public class ImageProcessingApp extends JFrame {
     private void attachListeners() {
         loadBtn.addActionListener(e -> {
             JFileChooser fc = new JFileChooser();
-            if (fc.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
-                try {
-                    File f = fc.getSelectedFile();
-                    original = ImageIO.read(f);
-                    processed = deepCopy(original);
-                    updateViews();
-                } catch (Exception ex) {
-                    JOptionPane.showMessageDialog(this, "Ошибка при чтении файла: " + ex.getMessage());
-                }
-            }
+            if (fc.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) load(fc.getSelectedFile());
         });
 
         saveBtn.addActionListener(e -> {
@@ -118,358 +155,226 @@ public class ImageProcessingApp extends JFrame {
 
         resetBtn.addActionListener(e -> {
             if (original != null) {
-                processed = deepCopy(original);
+                jobs.cancel();
+                processed = original; // изображения не меняются на месте, копия не нужна
+                processedMips = originalMips;
                 updateViews();
             }
         });
 
-        morphBtn.addActionListener(e -> {
-            if (original == null) return;
-            String op = (String) morphOp.getSelectedItem();
-            String shape = (String) seShape.getSelectedItem();
-            int size = (Integer) seSize.getValue();
-            if (size % 2 == 0) size++; // обеспечиваем центр
-            processed = morphology(grayImage(original), op, shape, size);
-            updateViews();
-        });
-
-        segBtn.addActionListener(e -> {
-            if (original == null) return;
-            String op = (String) segOp.getSelectedItem();
-            BufferedImage gray = grayImage(original);
-            if ("Sobel".equals(op)) {
-                processed = sobelGradient(gray);
-            } else if ("Laplacian".equals(op)) {
-                processed = laplacian(gray);
-            } else {
-                int low = (Integer) cannyLow.getValue();
-                int high = (Integer) cannyHigh.getValue();
-                processed = canny(gray, low, high);
-            }
-            updateViews();
+        morphBtn.addActionListener(e -> runMorphology());
+        segBtn.addActionListener(e -> runSegmentation());
+        histBtn.addActionListener(e -> runHistogram());
+        cancelBtn.addActionListener(e -> jobs.cancel());
+
+        // смена параметров во время расчёта перезапускает его с новыми значениями
+        morphOp.addActionListener(e -> rerunIfBusy(mPanel));
+        seShape.addActionListener(e -> rerunIfBusy(mPanel));
+        seSize.addChangeListener(e -> rerunIfBusy(mPanel));
+        segOp.addActionListener(e -> rerunIfBusy(sPanel));
+        cannyLow.addChangeListener(e -> { if (!cannyAuto.isSelected()) rerunIfBusy(sPanel); });
+        cannyHigh.addChangeListener(e -> { if (!cannyAuto.isSelected()) rerunIfBusy(sPanel); });
+        cannyBlur.addChangeListener(e -> rerunIfBusy(sPanel));
+        cannyAuto.addActionListener(e -> {
+            cannyLow.setEnabled(!cannyAuto.isSelected());
+            cannyHigh.setEnabled(!cannyAuto.isSelected());
+            rerunIfBusy(sPanel);
         });
+        histOp.addActionListener(e -> rerunIfBusy(hPanel));
+        claheTiles.addChangeListener(e -> rerunIfBusy(hPanel));
+        claheClip.addChangeListener(e -> rerunIfBusy(hPanel));
     }
 
-    private void updateViews() {
-        if (original != null) originalLabel.setIcon(new ImageIcon(scaleToLabel(original, originalLabel)));
-        if (processed != null) processedLabel.setIcon(new ImageIcon(scaleToLabel(processed, processedLabel)));
+    private void runMorphology() {
+        if (original == null) return;
+        String op = (String) morphOp.getSelectedItem();
+        String shape = (String) seShape.getSelectedItem();
+        int size = (Integer) seSize.getValue();
+        int seSizeOdd = size % 2 == 0 ? size + 1 : size; // обеспечиваем центр
+        // на прокси размер SE уменьшается вместе с изображением, оставаясь нечётным
+        submit(mPanel, op + " " + shape + " " + seSizeOdd, scale -> OpGraph.create().gray()
+                .morphology(op, ImageFilters.makeSE(shape, scaled(seSizeOdd, scale) | 1)));
     }
 
-    private Image scaleToLabel(BufferedImage img, JLabel label) {
-        int w = img.getWidth();
-        int h = img.getHeight();
-        int lw = Math.max(200, getWidth()/2 - 50);
-        int lh = Math.max(200, getHeight() - 250);
-        double scale = Math.min((double)lw/w, (double)lh/h);
-        if (scale >= 1.0) return img;
-        return img.getScaledInstance((int)(w*scale), (int)(h*scale), Image.SCALE_SMOOTH);
+    private void runSegmentation() {
+        if (original == null) return;
+        String op = (String) segOp.getSelectedItem();
+        int low = (Integer) cannyLow.getValue();
+        int high = (Integer) cannyHigh.getValue();
+        int blur = (Integer) cannyBlur.getValue();
+        boolean auto = cannyAuto.isSelected();
+        submit(sPanel, op, scale -> {
+            OpGraph gray = OpGraph.create().gray();
+            return "Sobel".equals(op) ? gray.sobel()
+                    : "Laplacian".equals(op) ? gray.laplacian()
+                    : "Оцу".equals(op) ? gray.otsu()
+                    : "Расстояния".equals(op) ? gray.otsu().distance()
+                    : auto ? gray.cannyAuto(scaled(blur, scale), this::showCannyThresholds)
+                    : gray.canny(low, high, scaled(blur, scale));
+        });
     }
 
-    // ---------- Вспомогательные функции ----------
-
-    private static BufferedImage deepCopy(BufferedImage bi) {
-        BufferedImage copy = new BufferedImage(bi.getWidth(), bi.getHeight(), BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = copy.createGraphics();
-        g.drawImage(bi, 0, 0, null);
-        g.dispose();
-        return copy;
+    /** Пороги, выбранные авто-Canny; вызывается из рабочего потока. */
+    private void showCannyThresholds(int low, int high) {
+        SwingUtilities.invokeLater(() -> {
+            if (!cannyAuto.isSelected()) return;
+            cannyLow.setValue(low);
+            cannyHigh.setValue(Math.max(1, high));
+        });
     }
 
-    private static int gray(int rgb) {
-        int r = (rgb >> 16) & 0xFF;
-        int g = (rgb >> 8) & 0xFF;
-        int b = rgb & 0xFF;
-        return (int)(0.299*r + 0.587*g + 0.114*b);
+    private void runHistogram() {
+        if (original == null) return;
+        String op = (String) histOp.getSelectedItem();
+        int tiles = (Integer) claheTiles.getValue();
+        double clip = (Double) claheClip.getValue();
+        // число тайлов задано на сторону изображения, поэтому на прокси не масштабируется
+        submit(hPanel, op, scale -> "CLAHE".equals(op)
+                ? OpGraph.create().gray().clahe(tiles, clip)
+                : OpGraph.create().gray().equalize());
     }
 
-    private static int clamp8(int v){ return v < 0 ? 0 : (v > 255 ? 255 : v); }
-
-    private static BufferedImage grayImage(BufferedImage src){
-        int w = src.getWidth(), h = src.getHeight();
-        BufferedImage out = new BufferedImage(w,h,BufferedImage.TYPE_BYTE_GRAY);
-        for(int y=0;y<h;y++){
-            for(int x=0;x<w;x++){
-                int g = gray(src.getRGB(x,y));
-                int rgb = (g<<16)|(g<<8)|g;
-                out.setRGB(x,y,rgb);
-            }
-        }
-        return out;
+    /** Размер в пикселях для изображения, уменьшенного в 1/scale раз (не меньше 1). */
+    private static int scaled(int size, double scale) {
+        return Math.max(1, (int) Math.round(size * scale));
     }
 
-    // ---------- Морфология ----------
-
-    /**
-     * Генерация структурирующего элемента в виде булевой маски size×size.
-     * Поддержка: Крест, Прямоугольник, Эллипс (аппроксимированный круг).
-     */
-    private static boolean[][] makeSE(String shape, int size){
-        boolean[][] se = new boolean[size][size];
-        int c = size/2;
-        switch (shape) {
-            case "Прямоугольник":
-                for(int j=0;j<size;j++) for(int i=0;i<size;i++) se[j][i] = true;
-                break;
-            case "Крест":
-                for(int j=0;j<size;j++) se[j][c] = true;
-                for(int i=0;i<size;i++) se[c][i] = true;
-                break;
-            case "Эллипс":
-            default:
-                double r = c + 0.5;
-                for(int j=0;j<size;j++){
-                    for(int i=0;i<size;i++){
-                        double dx = i - c;
-                        double dy = j - c;
-                        se[j][i] = (dx*dx + dy*dy) <= r*r; // круглая маска
-                    }
-                }
-                break;
-        }
-        return se;
+    private void rerunIfBusy(JPanel panel) {
+        if (!jobs.isBusy() || activePanel != panel) return;
+        if (panel == mPanel) runMorphology();
+        else if (panel == hPanel) runHistogram();
+        else runSegmentation();
     }
 
     /**
-     * Эрозия бинарно/градационная: минимум по пикселям, покрытым SE.
+     * Одно фоновое задание: сначала граф на прокси — уровне пирамиды под размер превью (это
+     * миллисекунды) — и показ его результата, затем полное разрешение. Пирамида результата
+     * строится там же, на EDT приходит готовой. graphs(scale) строит граф для изображения
+     * в scale от исходного: параметры в пикселях масштабируются.
      */
-    private static BufferedImage erode(BufferedImage src, boolean[][] se){
-        int w = src.getWidth(), h = src.getHeight();
-        int k = se.length, half = k/2;
-        BufferedImage out = new BufferedImage(w,h,BufferedImage.TYPE_BYTE_GRAY);
-        for(int y=0;y<h;y++){
-            for(int x=0;x<w;x++){
-                int m = 255;
-                for(int j=0;j<k;j++){
-                    for(int i=0;i<k;i++){
-                        if(!se[j][i]) continue;
-                        int xx = Math.min(Math.max(x + i - half, 0), w-1);
-                        int yy = Math.min(Math.max(y + j - half, 0), h-1);
-                        int g = src.getRGB(xx,yy) & 0xFF;
-                        if(g < m) m = g;
-                    }
-                }
-                int rgb = (m<<16)|(m<<8)|m;
-                out.setRGB(x,y,rgb);
+    private void submit(JPanel panel, String title, DoubleFunction<OpGraph> graphs) {
+        BufferedImage src = original;
+        OpGraph graph = graphs.apply(1.0);
+        activePanel = panel;
+        progress.setValue(0);
+        progress.setString(title);
+        progress.setVisible(true);
+        cancelBtn.setEnabled(true);
+        status.setText(" ");
+        BufferedImage proxy = originalMips.levelFor(previewWidth(), previewHeight());
+        OpGraph proxyGraph = proxy == src ? null : graphs.apply((double) proxy.getWidth() / src.getWidth());
+        jobs.submit(proxyGraph == null ? null : () -> new MipPyramid(proxyGraph.run(proxy, cache)),
+                () -> new MipPyramid(graph.run(src, cache)), new JobExecutor.Listener<MipPyramid>() {
+            @Override
+            public void preview(MipPyramid preview, long computeNs) {
+                processedLabel.setIcon(new ImageIcon(preview.preview(previewWidth(), previewHeight())));
+                status.setText(String.format("%s: предпросмотр %.0f мс", title, computeNs / 1e6));
             }
-        }
-        return out;
-    }
 
-    /**
-     * Дилатация: максимум по пикселям, покрытым SE.
-     */
-    private static BufferedImage dilate(BufferedImage src, boolean[][] se){
-        int w = src.getWidth(), h = src.getHeight();
-        int k = se.length, half = k/2;
-        BufferedImage out = new BufferedImage(w,h,BufferedImage.TYPE_BYTE_GRAY);
-        for(int y=0;y<h;y++){
-            for(int x=0;x<w;x++){
-                int M = 0;
-                for(int j=0;j<k;j++){
-                    for(int i=0;i<k;i++){
-                        if(!se[j][i]) continue;
-                        int xx = Math.min(Math.max(x + i - half, 0), w-1);
-                        int yy = Math.min(Math.max(y + j - half, 0), h-1);
-                        int g = src.getRGB(xx,yy) & 0xFF;
-                        if(g > M) M = g;
-                    }
-                }
-                int rgb = (M<<16)|(M<<8)|M;
-                out.setRGB(x,y,rgb);
+            @Override
+            public void progress(int pass, int percent) {
+                progress.setValue(percent);
+                progress.setString(title + ": проход " + pass + ", " + percent + "%");
             }
-        }
-        return out;
-    }
 
-    /**
-     * Обёртка морфологии: Эрозия, Дилатация, Открытие (Эрозия→Дилатация), Закрытие (Дилатация→Эрозия).
-     */
-    private BufferedImage morphology(BufferedImage srcGray, String op, String shape, int size) {
-        boolean[][] se = makeSE(shape, size);
-        switch (op) {
-            case "Эрозия":
-                return erode(srcGray, se);
-            case "Дилатация":
-                return dilate(srcGray, se);
-            case "Открытие":
-                return dilate(erode(srcGray, se), se);
-            case "Закрытие":
-                return erode(dilate(srcGray, se), se);
-            default:
-                return srcGray;
-        }
-    }
-
-    // ---------- Сегментация ----------
+            @Override
+            public void done(MipPyramid result, long waitNs, long computeNs) {
+                processed = result.level(0);
+                processedMips = result;
+                finish(String.format("%s: очередь %.0f мс, расчёт %.0f мс; %s",
+                        title, waitNs / 1e6, computeNs / 1e6, cache));
+                updateViews();
+            }
 
-    /**
-     * Собель: величина градиента sqrt(gx^2 + gy^2) с нормализацией на 0..255.
-     * Ядра:
-     * Gx = [-1 0 1; -2 0 2; -1 0 1], Gy = [ 1  2  1; 0 0 0; -1 -2 -1]
-     */
-    private BufferedImage sobelGradient(BufferedImage src){
-        int w = src.getWidth(), h = src.getHeight();
-        BufferedImage out = new BufferedImage(w,h,BufferedImage.TYPE_BYTE_GRAY);
-
-        int[][] gxK = {{-1,0,1},{-2,0,2},{-1,0,1}};
-        int[][] gyK = {{ 1,2,1},{ 0,0,0},{-1,-2,-1}};
-
-        double maxMag = 1.0; // для нормализации
-        double[][] mag = new double[h][w];
-
-        for(int y=1;y<h-1;y++){
-            for(int x=1;x<w-1;x++){
-                int gx=0, gy=0;
-                for(int j=-1;j<=1;j++){
-                    for(int i=-1;i<=1;i++){
-                        int g = src.getRGB(x+i,y+j) & 0xFF;
-                        gx += gxK[j+1][i+1] * g;
-                        gy += gyK[j+1][i+1] * g;
-                    }
-                }
-                double m = Math.sqrt(gx*gx + gy*gy);
-                mag[y][x] = m;
-                if (m > maxMag) maxMag = m;
+            @Override
+            public void failed(Throwable error) {
+                finish(title + ": ошибка");
+                updateViews(); // убрать предпросмотр
+                JOptionPane.showMessageDialog(ImageProcessingApp.this, "Ошибка обработки: " + error);
             }
-        }
-
-        // нормализация и запись
-        for(int y=0;y<h;y++){
-            for(int x=0;x<w;x++){
-                int v = (int) Math.round(255.0 * (mag[y][x] / maxMag));
-                v = clamp8(v);
-                int rgb = (v<<16)|(v<<8)|v;
-                out.setRGB(x,y,rgb);
+
+            @Override
+            public void cancelled() {
+                finish(title + ": отменено");
+                updateViews();
             }
-        }
-        return out;
+        });
     }
 
     /**
-     * Лапласиан (ядро 3x3): выделение точек резкого перепада яркости.
+     * Чтение файла, копия в ARGB и пирамида — фоновым заданием, как обработка; новое
+     * изображение вытесняет текущее задание.
      */
-    private BufferedImage laplacian(BufferedImage src){
-        int w = src.getWidth(), h = src.getHeight();
-        BufferedImage out = new BufferedImage(w,h,BufferedImage.TYPE_BYTE_GRAY);
-        int[][] k = {{0,1,0},{1,-4,1},{0,1,0}}; // классическое ядро
-
-        for(int y=1;y<h-1;y++){
-            for(int x=1;x<w-1;x++){
-                int acc = 0;
-                for(int j=-1;j<=1;j++){
-                    for(int i=-1;i<=1;i++){
-                        int g = src.getRGB(x+i,y+j) & 0xFF;
-                        acc += k[j+1][i+1] * g;
-                    }
-                }
-                int v = clamp8(Math.abs(acc));
-                int rgb = (v<<16)|(v<<8)|v;
-                out.setRGB(x,y,rgb);
+    private void load(File f) {
+        String title = "Загрузка " + f.getName();
+        activePanel = null;
+        progress.setValue(0);
+        progress.setString(title);
+        progress.setVisible(true);
+        cancelBtn.setEnabled(true);
+        status.setText(" ");
+        jobs.submit(() -> {
+            BufferedImage img = ImageIO.read(f);
+            if (img == null) throw new IOException("формат не поддерживается");
+            return new MipPyramid(deepCopy(img));
+        }, new JobExecutor.Listener<MipPyramid>() {
+            @Override
+            public void progress(int pass, int percent) {
+                progress.setValue(percent);
             }
-        }
-        return out;
-    }
 
-    /**
-     * Упрощённый Canny:
-     * 1) Лёгкое сглаживание (бокс 3×3)
-     * 2) Собель → градиент + направление
-     * 3) Non-Maximum Suppression (NMS)
-     * 4) Двойной порог (low/high)
-     * Примечание: без «edge tracking by hysteresis», но для учебных целей достаточно.
-     */
-    private BufferedImage canny(BufferedImage src, int low, int high){
-        BufferedImage smooth = boxBlur(src, 3);
-
-        // 1) Собель: величина и направление
-        int w = src.getWidth(), h = src.getHeight();
-        double[][] mag = new double[h][w];
-        double[][] dir = new double[h][w]; // угол в градусах (0..180)
-        int[][] gxK = {{-1,0,1},{-2,0,2},{-1,0,1}};
-        int[][] gyK = {{ 1,2,1},{ 0,0,0},{-1,-2,-1}};
-
-        double maxMag = 1.0;
-
-        for(int y=1;y<h-1;y++){
-            for(int x=1;x<w-1;x++){
-                int gx=0, gy=0;
-                for(int j=-1;j<=1;j++){
-                    for(int i=-1;i<=1;i++){
-                        int g = smooth.getRGB(x+i,y+j) & 0xFF;
-                        gx += gxK[j+1][i+1] * g;
-                        gy += gyK[j+1][i+1] * g;
-                    }
-                }
-                double m = Math.sqrt(gx*gx + gy*gy);
-                mag[y][x] = m;
-                if (m > maxMag) maxMag = m;
-                double angle = Math.toDegrees(Math.atan2(gy, gx));
-                if (angle < 0) angle += 180;
-                dir[y][x] = angle;
+            @Override
+            public void done(MipPyramid result, long waitNs, long computeNs) {
+                original = result.level(0);
+                processed = original;
+                originalMips = result;
+                processedMips = result;
+                finish(String.format("%s: %d×%d, %.0f мс", f.getName(), original.getWidth(), original.getHeight(), computeNs / 1e6));
+                updateViews();
             }
-        }
-
-        // 2) NMS: подавление немаксимумов вдоль направления
-        double[][] nms = new double[h][w];
-        for(int y=1;y<h-1;y++){
-            for(int x=1;x<w-1;x++){
-                double angle = dir[y][x];
-                double m = mag[y][x];
-                // квантуем направление на 0, 45, 90, 135
-                int sector;
-                if ((angle >= 0 && angle < 22.5) || (angle >= 157.5 && angle <= 180)) sector = 0;
-                else if (angle >= 22.5 && angle < 67.5) sector = 45;
-                else if (angle >= 67.5 && angle < 112.5) sector = 90;
-                else sector = 135;
-
-                double m1=0, m2=0;
-                switch (sector) {
-                    case 0:   m1 = mag[y][x-1]; m2 = mag[y][x+1]; break;         // горизонт
-                    case 45:  m1 = mag[y-1][x+1]; m2 = mag[y+1][x-1]; break;     // диагональ /
-                    case 90:  m1 = mag[y-1][x]; m2 = mag[y+1][x]; break;         // вертикаль
-                    case 135: m1 = mag[y-1][x-1]; m2 = mag[y+1][x+1]; break;     // диагональ \
-                }
-                nms[y][x] = (m >= m1 && m >= m2) ? m : 0.0;
+
+            @Override
+            public void failed(Throwable error) {
+                finish(title + ": ошибка");
+                JOptionPane.showMessageDialog(ImageProcessingApp.this, "Ошибка при чтении файла: " + error.getMessage());
             }
-        }
-
-        // 3) Двойной порог. Нормализуем к 0..255 и применяем пороги.
-        BufferedImage out = new BufferedImage(w,h,BufferedImage.TYPE_BYTE_GRAY);
-        for(int y=0;y<h;y++){
-            for(int x=0;x<w;x++){
-                int v = (int) Math.round(255.0 * (nms[y][x] / maxMag));
-                int edge = (v >= high) ? 255 : (v >= low ? 128 : 0);
-                int rgb = (edge<<16)|(edge<<8)|edge;
-                out.setRGB(x,y,rgb);
+
+            @Override
+            public void cancelled() {
+                finish(title + ": отменено");
             }
-        }
-        return out;
+        });
     }
 
-    /**
-     * Простой бокс-фильтр (усреднение) r×r; используется перед Canny.
-     */
-    private BufferedImage boxBlur(BufferedImage src, int r){
-        int w = src.getWidth(), h = src.getHeight();
-        BufferedImage out = new BufferedImage(w,h,BufferedImage.TYPE_BYTE_GRAY);
-        int half = r/2;
-        double norm = 1.0/(r*r);
-        for(int y=0;y<h;y++){
-            for(int x=0;x<w;x++){
-                double sum = 0;
-                for(int j=-half;j<=half;j++){
-                    for(int i=-half;i<=half;i++){
-                        int xx = Math.min(Math.max(x+i,0),w-1);
-                        int yy = Math.min(Math.max(y+j,0),h-1);
-                        sum += (src.getRGB(xx,yy) & 0xFF);
-                    }
-                }
-                int v = clamp8((int) Math.round(sum*norm));
-                int rgb = (v<<16)|(v<<8)|v;
-                out.setRGB(x,y,rgb);
-            }
-        }
-        return out;
+    private void finish(String text) {
+        progress.setVisible(false);
+        cancelBtn.setEnabled(false);
+        status.setText(text);
+        activePanel = null;
+    }
+
+    private void updateViews() {
+        if (originalMips != null) originalLabel.setIcon(new ImageIcon(originalMips.preview(previewWidth(), previewHeight())));
+        if (processedMips != null) processedLabel.setIcon(new ImageIcon(processedMips.preview(previewWidth(), previewHeight())));
+    }
+
+    // Место под каждое из двух изображений
+    private int previewWidth() {
+        return Math.max(200, getWidth()/2 - 50);
+    }
+
+    private int previewHeight() {
+        return Math.max(200, getHeight() - 250);
+    }
+
+    // ---------- Вспомогательные функции ----------
+
+    private static BufferedImage deepCopy(BufferedImage bi) {
+        BufferedImage copy = new BufferedImage(bi.getWidth(), bi.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = copy.createGraphics();
+        g.drawImage(bi, 0, 0, null);
+        g.dispose();
+        return copy;
     }
 
     public static void main(String[] args) {
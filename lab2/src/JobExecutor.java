@@ -0,0 +1,156 @@
+import javax.swing.SwingUtilities;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Обработка вне EDT: один фоновый поток, одно актуальное задание.
+ *
+ * Задание может начинаться с быстрого предварительного расчёта (граф на уменьшенной копии):
+ * его результат уходит в {@link Listener#preview} сразу, не дожидаясь основного. Вытесняется
+ * и отменяется задание целиком, вместе с предварительным расчётом.
+ *
+ * Новое задание вытесняет предыдущее: старое помечается отменённым и прерывается на
+ * ближайшей границе полосы (см. {@link TileScheduler#monitored}), его результат и прогресс
+ * никуда не публикуются. Все методы {@link Listener} вызываются на EDT; обновления
+ * прогресса схлопываются — в очереди EDT не больше одного на задание.
+ *
+ * Для каждого задания меряется ожидание в очереди (от submit до начала расчёта —
+ * сколько оно ждало, пока прервётся предыдущее) и собственно расчёт.
+ */
+public final class JobExecutor<T> {
+
+    /** Колбэки на EDT. */
+    public interface Listener<T> {
+        /** Результат предварительного расчёта; computeNs — его время. */
+        default void preview(T preview, long computeNs) {
+        }
+
+        /** pass — номер прохода основного расчёта с 1, percent — готовность этого прохода. */
+        void progress(int pass, int percent);
+
+        /** computeNs — время основного расчёта, без предварительного. */
+        void done(T result, long waitNs, long computeNs);
+
+        void failed(Throwable error);
+
+        /** Отмена через {@link #cancel()}; вытесненное задание этого не получает. */
+        void cancelled();
+    }
+
+    private final ExecutorService thread = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "image-job");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private Job current;
+
+    /** Ставит задание, вытесняя текущее. Вызывать с EDT. */
+    public void submit(Callable<T> work, Listener<T> listener) {
+        submit(null, work, listener);
+    }
+
+    /** То же с предварительным расчётом preview (может быть null) перед основным. */
+    public synchronized void submit(Callable<T> preview, Callable<T> work, Listener<T> listener) {
+        if (current != null) current.cancelled = true; // вытеснено: без колбэков
+        current = new Job(preview, work, listener);
+        thread.execute(current);
+    }
+
+    /** Отменяет текущее задание; listener.cancelled() придёт на EDT. */
+    public synchronized void cancel() {
+        if (current == null) return;
+        current.cancelled = true;
+        Listener<T> l = current.listener;
+        current = null;
+        SwingUtilities.invokeLater(l::cancelled);
+    }
+
+    /** Есть ли задание, которое ещё не отдало результат. */
+    public synchronized boolean isBusy() {
+        return current != null;
+    }
+
+    private synchronized void finished(Job job) {
+        if (current == job) current = null;
+    }
+
+    private final class Job implements Runnable, TileScheduler.Monitor {
+        final Callable<T> preview, work;
+        final Listener<T> listener;
+        final long submittedAt = System.nanoTime();
+        volatile boolean cancelled;
+        private final AtomicBoolean progressPosted = new AtomicBoolean();
+        private volatile int pass, percent;
+
+        Job(Callable<T> preview, Callable<T> work, Listener<T> listener) {
+            this.preview = preview;
+            this.work = work;
+            this.listener = listener;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void progress(int pass, int rowsDone, int rows) {
+            this.pass = pass;
+            this.percent = (int) (100L * rowsDone / rows);
+            if (progressPosted.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(() -> {
+                    progressPosted.set(false);
+                    if (!cancelled) listener.progress(this.pass, this.percent);
+                });
+            }
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) return; // вытеснено, пока ждало очереди
+            long queued = System.nanoTime() - submittedAt;
+            long start;
+            T result;
+            try {
+                if (preview != null) {
+                    // прерывается вместе с заданием, но прогресс его проходов не показывается
+                    long t = System.nanoTime();
+                    T p = TileScheduler.monitored(new TileScheduler.Monitor() {
+                        @Override
+                        public boolean isCancelled() {
+                            return cancelled;
+                        }
+
+                        @Override
+                        public void progress(int pass, int rowsDone, int rows) {
+                        }
+                    }, preview);
+                    long ns = System.nanoTime() - t;
+                    SwingUtilities.invokeLater(() -> {
+                        if (!cancelled) listener.preview(p, ns);
+                    });
+                }
+                start = System.nanoTime();
+                result = TileScheduler.monitored(this, work);
+            } catch (CancellationException e) {
+                return;
+            } catch (Throwable t) {
+                if (!cancelled) {
+                    finished(this);
+                    SwingUtilities.invokeLater(() -> listener.failed(t));
+                }
+                return;
+            }
+            long end = System.nanoTime();
+            if (cancelled) return;
+            finished(this);
+            SwingUtilities.invokeLater(() -> {
+                if (!cancelled) listener.done(result, queued, end - start);
+            });
+        }
+    }
+}
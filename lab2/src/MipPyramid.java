@@ -0,0 +1,125 @@
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mip-пирамида изображения для быстрого предпросмотра.
+ *
+ * Уровень 0 — само изображение, каждый следующий — вдвое меньше (среднее блока 2×2, на
+ * нечётном краю блок обрезан), пока большая сторона не станет ≤ {@value #MIN_SIDE}.
+ * Уровни строятся один раз, все вместе — около трети пикселей исходника.
+ * {@link #preview} берёт ближайший уровень не меньше нужного размера и доводит его
+ * билинейно, с коэффициентом от 1/2 до 1. Это заменяет getScaledInstance(SCALE_SMOOTH),
+ * который каждый раз фильтрует всё исходное изображение. Последнее превью запоминается.
+ *
+ * Серые TYPE_BYTE_GRAY остаются серыми: усредняются байты растра, т.е. линейная яркость.
+ * Остальные типы приводятся к INT_ARGB и усредняются по каналам.
+ */
+public final class MipPyramid {
+
+    static final int MIN_SIDE = 32;
+
+    private final List<BufferedImage> levels = new ArrayList<>();
+    private BufferedImage preview;
+    private int previewW, previewH;
+
+    public MipPyramid(BufferedImage base) {
+        levels.add(base);
+        BufferedImage cur = base;
+        boolean gray = GrayRaster.isCompactGray(base);
+        while (Math.max(cur.getWidth(), cur.getHeight()) > MIN_SIDE) {
+            cur = gray ? halveGray(cur) : halveArgb(cur);
+            levels.add(cur);
+        }
+    }
+
+    public int levels() {
+        return levels.size();
+    }
+
+    public BufferedImage level(int i) {
+        return levels.get(i);
+    }
+
+    /** Самый мелкий уровень, который при вписывании в maxW×maxH ещё не приходится увеличивать. */
+    public BufferedImage levelFor(int maxW, int maxH) {
+        BufferedImage base = levels.get(0);
+        double scale = Math.min((double) maxW / base.getWidth(), (double) maxH / base.getHeight());
+        int tw = (int) Math.ceil(base.getWidth() * scale), th = (int) Math.ceil(base.getHeight() * scale);
+        BufferedImage best = base;
+        for (BufferedImage l : levels) {
+            if (l.getWidth() < tw || l.getHeight() < th) break;
+            best = l;
+        }
+        return best;
+    }
+
+    /** Изображение, вписанное в maxW×maxH с сохранением пропорций; меньшее не увеличивается. */
+    public synchronized BufferedImage preview(int maxW, int maxH) {
+        BufferedImage base = levels.get(0);
+        int w = base.getWidth(), h = base.getHeight();
+        double scale = Math.min((double) maxW / w, (double) maxH / h);
+        if (scale >= 1.0) return base;
+        int tw = Math.max(1, (int) (w * scale)), th = Math.max(1, (int) (h * scale));
+        if (preview != null && previewW == tw && previewH == th) return preview;
+        BufferedImage src = levelFor(maxW, maxH);
+        BufferedImage out = new BufferedImage(tw, th, src.getType() == BufferedImage.TYPE_BYTE_GRAY
+                ? BufferedImage.TYPE_BYTE_GRAY : BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = out.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(src, 0, 0, tw, th, null);
+        g.dispose();
+        preview = out;
+        previewW = tw;
+        previewH = th;
+        return out;
+    }
+
+    private static BufferedImage halveGray(BufferedImage src) {
+        int w = src.getWidth(), h = src.getHeight(), nw = (w + 1) / 2, nh = (h + 1) / 2;
+        BufferedImage out = new BufferedImage(nw, nh, BufferedImage.TYPE_BYTE_GRAY);
+        byte[] s = GrayRaster.data(src), d = GrayRaster.data(out);
+        TileScheduler.getDefault().forBands(nw, nh, 0, band -> {
+            for (int y = band.y0; y < band.y1; y++) {
+                int r0 = 2 * y * w, r1 = Math.min(2 * y + 1, h - 1) * w;
+                for (int x = 0; x < nw; x++) {
+                    int x0 = 2 * x, x1 = Math.min(x0 + 1, w - 1);
+                    int sum = (s[r0 + x0] & 0xFF) + (s[r0 + x1] & 0xFF) + (s[r1 + x0] & 0xFF) + (s[r1 + x1] & 0xFF);
+                    d[y * nw + x] = (byte) ((sum + 2) >> 2);
+                }
+            }
+        });
+        return out;
+    }
+
+    private static BufferedImage halveArgb(BufferedImage src) {
+        int w = src.getWidth(), h = src.getHeight(), nw = (w + 1) / 2, nh = (h + 1) / 2;
+        BufferedImage out = new BufferedImage(nw, nh, BufferedImage.TYPE_INT_ARGB);
+        int[] d = ((DataBufferInt) out.getRaster().getDataBuffer()).getData();
+        TileScheduler.getDefault().forBands(nw, nh, 0, band -> {
+            int[] a = new int[w], b = new int[w];
+            for (int y = band.y0; y < band.y1; y++) {
+                GrayRaster.argbRow(src, 2 * y, a);
+                GrayRaster.argbRow(src, Math.min(2 * y + 1, h - 1), b);
+                for (int x = 0; x < nw; x++) {
+                    int x0 = 2 * x, x1 = Math.min(x0 + 1, w - 1);
+                    d[y * nw + x] = average(a[x0], a[x1], b[x0], b[x1]);
+                }
+            }
+        });
+        return out;
+    }
+
+    /** Среднее четырёх ARGB по каналам, с округлением. */
+    private static int average(int p, int q, int r, int s) {
+        int out = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int sum = ((p >>> shift) & 0xFF) + ((q >>> shift) & 0xFF) + ((r >>> shift) & 0xFF) + ((s >>> shift) & 0xFF);
+            out |= ((sum + 2) >> 2) << shift;
+        }
+        return out;
+    }
+}
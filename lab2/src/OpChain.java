@@ -0,0 +1,219 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Цепочка операций из командной строки, например {@code closing:ellipse:7,canny:40:100}.
+ *
+ * Шаги разделяются запятыми, параметры шага — двоеточиями:
+ * <pre>
+ *   erode|dilate|open|close[:shape[:size]]   shape = cross|rect|ellipse (по умолчанию ellipse:3)
+ *   (то же: erosion, dilation, opening, closing)
+ *   sobel
+ *   laplacian
+ *   canny[:low:high[:blur]]                  по умолчанию 40:100:3
+ *   blur[:r]                                 бокс-фильтр r×r, по умолчанию 3
+ *   gauss[:sigma]                            Гаусс с радиусом ⌈3σ⌉, по умолчанию σ = 1
+ *   erodedisk|dilatedisk|opendisk|closedisk[:radius]
+ *                                            бинарная (порог 128) морфология диском, по умолчанию 1;
+ *                                            большой радиус — через карту расстояний
+ *   distance                                 карта расстояний до фона (уровень < 128)
+ * </pre>
+ * Цепочка применяется к серой плоскости уровней; между шагами результат проходит через
+ * TYPE_BYTE_GRAY (как в GUI, где каждый шаг отдаёт и принимает изображение).
+ */
+public final class OpChain {
+
+    /** Ядро шага; пишет результат в dst того же размера. */
+    interface Kernel {
+        void apply(byte[] src, byte[] dst, int w, int h);
+    }
+
+    /** Насколько результат пикселя зависит от остального изображения. */
+    enum Reach {
+        /** Только от окрестности радиуса halo строк. */
+        LOCAL,
+        /** От окрестности halo и глобального максимума (нормализация Собеля). */
+        NORMALIZED,
+        /** От всего изображения (гистерезис Canny, карта расстояний). */
+        GLOBAL
+    }
+
+    /** Шаг цепочки: ядро и его охват — нужен для обработки полосами. */
+    static final class Step {
+        final String token;
+        final int halo;
+        final Reach reach;
+        final Kernel kernel;
+
+        Step(String token, int halo, Reach reach, Kernel kernel) {
+            this.token = token;
+            this.halo = halo;
+            this.reach = reach;
+            this.kernel = kernel;
+        }
+
+        void apply(byte[] src, byte[] dst, int w, int h) {
+            kernel.apply(src, dst, w, h);
+        }
+    }
+
+    private final List<Step> steps;
+    private final String text;
+
+    private OpChain(List<Step> steps, String text) {
+        this.steps = List.copyOf(steps);
+        this.text = text;
+    }
+
+    /** Разбирает цепочку; IllegalArgumentException с понятным текстом при ошибке. */
+    public static OpChain parse(String text) {
+        List<Step> steps = new ArrayList<>();
+        for (String token : text.split(",")) {
+            token = token.trim();
+            if (token.isEmpty()) continue;
+            steps.add(parseStep(token));
+        }
+        if (steps.isEmpty()) throw new IllegalArgumentException("пустая цепочка операций");
+        return new OpChain(steps, text);
+    }
+
+    private static Step parseStep(String token) {
+        String[] p = token.split(":");
+        String name = p[0].toLowerCase(Locale.ROOT);
+        switch (name) {
+            case "erode": case "erosion":
+                return morphology(token, p, "Эрозия");
+            case "dilate": case "dilation":
+                return morphology(token, p, "Дилатация");
+            case "open": case "opening":
+                return morphology(token, p, "Открытие");
+            case "close": case "closing":
+                return morphology(token, p, "Закрытие");
+            case "erodedisk":
+                return disk(token, p, "Эрозия");
+            case "dilatedisk":
+                return disk(token, p, "Дилатация");
+            case "opendisk":
+                return disk(token, p, "Открытие");
+            case "closedisk":
+                return disk(token, p, "Закрытие");
+            case "sobel":
+                arity(token, p, 0, 0);
+                return new Step(token, 1, Reach.NORMALIZED, ImageFilters::sobel);
+            case "laplacian":
+                arity(token, p, 0, 0);
+                return new Step(token, 1, Reach.LOCAL, ImageFilters::laplacian);
+            case "distance":
+                arity(token, p, 0, 0);
+                return new Step(token, 0, Reach.GLOBAL, DistanceTransform::distanceMap);
+            case "canny": {
+                arity(token, p, 0, 3);
+                if (p.length == 2) throw new IllegalArgumentException(token + ": нужны оба порога low:high");
+                int low = p.length > 1 ? number(token, p[1], 0, 255) : 40;
+                int high = p.length > 2 ? number(token, p[2], 0, 255) : 100;
+                int blur = p.length > 3 ? number(token, p[3], 1, 255) : 3;
+                return new Step(token, blur / 2 + 2, Reach.GLOBAL,
+                        (src, dst, w, h) -> ImageFilters.canny(src, dst, w, h, low, high, blur));
+            }
+            case "blur": {
+                arity(token, p, 0, 1);
+                int r = p.length > 1 ? number(token, p[1], 1, 255) : 3;
+                return new Step(token, r / 2, Reach.LOCAL, (src, dst, w, h) -> ImageFilters.boxBlur(src, dst, w, h, r));
+            }
+            case "gauss": case "gaussian": {
+                arity(token, p, 0, 1);
+                double sigma = p.length > 1 ? sigma(token, p[1]) : 1.0;
+                Convolution.Kernel k = Convolution.Kernel.gaussian(sigma);
+                return new Step(token, k.height / 2, Reach.LOCAL, (src, dst, w, h) -> Convolution.apply(src, dst, w, h, k));
+            }
+            default:
+                throw new IllegalArgumentException(token + ": неизвестная операция");
+        }
+    }
+
+    private static Step morphology(String token, String[] p, String op) {
+        arity(token, p, 0, 2);
+        String shape = p.length > 1 ? shape(token, p[1]) : "Эллипс";
+        int size = p.length > 2 ? number(token, p[2], 1, 255) : 3;
+        if (size % 2 == 0) size++; // как в GUI: нужен центр
+        boolean[][] se = ImageFilters.makeSE(shape, size);
+        int passes = op.equals("Открытие") || op.equals("Закрытие") ? 2 : 1;
+        return new Step(token, passes * (size / 2), Reach.LOCAL,
+                (src, dst, w, h) -> ImageFilters.morphology(src, dst, w, h, op, se));
+    }
+
+    private static Step disk(String token, String[] p, String op) {
+        arity(token, p, 0, 1);
+        int radius = p.length > 1 ? number(token, p[1], 0, 4096) : 1;
+        int passes = op.equals("Открытие") || op.equals("Закрытие") ? 2 : 1;
+        return new Step(token, passes * radius, Reach.LOCAL,
+                (src, dst, w, h) -> DistanceTransform.diskMorphology(src, dst, w, h, op, radius));
+    }
+
+    private static String shape(String token, String s) {
+        switch (s.toLowerCase(Locale.ROOT)) {
+            case "cross": return "Крест";
+            case "rect": case "rectangle": case "square": return "Прямоугольник";
+            case "ellipse": case "disk": case "circle": return "Эллипс";
+            default: throw new IllegalArgumentException(token + ": неизвестная форма SE '" + s + "'");
+        }
+    }
+
+    private static void arity(String token, String[] p, int min, int max) {
+        if (p.length - 1 < min || p.length - 1 > max) {
+            throw new IllegalArgumentException(token + ": ожидается от " + min + " до " + max + " параметров");
+        }
+    }
+
+    private static int number(String token, String s, int min, int max) {
+        int v;
+        try {
+            v = Integer.parseInt(s.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(token + ": '" + s + "' не число");
+        }
+        if (v < min || v > max) throw new IllegalArgumentException(token + ": " + v + " вне [" + min + ", " + max + "]");
+        return v;
+    }
+
+    private static double sigma(String token, String s) {
+        double v;
+        try {
+            v = Double.parseDouble(s.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(token + ": '" + s + "' не число");
+        }
+        if (!(v > 0 && v <= 64)) throw new IllegalArgumentException(token + ": σ = " + s + " вне (0, 64]");
+        return v;
+    }
+
+    /**
+     * Применяет цепочку к плоскости уровней; levels не меняется. Шаги пишут по очереди
+     * в два рабочих буфера, результат — один из них.
+     */
+    public byte[] apply(byte[] levels, int w, int h) {
+        byte[] a = new byte[w * h], b = steps.size() > 1 ? new byte[w * h] : null;
+        byte[] src = levels, dst = a;
+        for (Step step : steps) {
+            step.apply(src, dst, w, h);
+            GrayRaster.quantize(dst);
+            src = dst;
+            dst = dst == a ? b : a;
+        }
+        return src;
+    }
+
+    public int size() {
+        return steps.size();
+    }
+
+    List<Step> steps() {
+        return steps;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
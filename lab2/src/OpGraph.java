@@ -0,0 +1,708 @@
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Граф операций над серым изображением: цепочка узлов, исполняемая как одно целое.
+ * <pre>
+ *   OpGraph g = OpGraph.create().gray().close(se).sobel();
+ *   System.out.println(g.plan(w, h));      // этапы и оценка пиковой памяти
+ *   BufferedImage out = g.run(photo);
+ * </pre>
+ * Граф неизменяем: каждый метод-узел возвращает новый граф, так что общий префикс можно
+ * переиспользовать.
+ *
+ * Исполнение:
+ * <ul>
+ *   <li>узлы-окрестности (эрозия, дилатация, бокс-фильтр, Гаусс, Собель, Лапласиан, Canny) пишут
+ *       по очереди в два буфера из {@link PlanePool} — без новых плоскостей на этап;
+ *       Открытие/Закрытие — просто два узла подряд, без промежуточного изображения;</li>
+ *   <li>поточечные этапы — gray, порог, инверсия и квантование через TYPE_BYTE_GRAY,
+ *       которое в GUI происходит между каждыми двумя фильтрами, — соседние сливаются
+ *       в одну таблицу на 256 значений и применяются одним проходом: gray — прямо при
+ *       чтении строк источника, хвост графа — при записи результата в TYPE_BYTE_GRAY.</li>
+ * </ul>
+ * Результат совпадает с последовательным вызовом фильтров ImageFilters на BufferedImage.
+ *
+ * С {@link ResultCache} ({@link #run(BufferedImage, ResultCache)}) сохраняются серая
+ * плоскость и выход каждого узла-окрестности под ключом «источник + префикс графа»;
+ * запуск начинается с самого длинного готового префикса. Canny дополнительно кэширует
+ * NMS-плоскость, так что смена порогов — это только порог и гистерезис.
+ */
+public final class OpGraph {
+
+    /** Узел графа: поточечный ({@link PointNode}) или узел-окрестность ({@link KernelNode}). */
+    private abstract static class Node {
+        final String name;
+
+        Node(String name) {
+            this.name = name;
+        }
+
+        /** Часть ключа кэша: имя со всеми параметрами, влияющими на результат. */
+        String key() {
+            return name;
+        }
+    }
+
+    /** Поточечный узел: таблица на 256 уровней, сливается с соседними и своего прохода не имеет. */
+    private static final class PointNode extends Node {
+        final int[] lut;
+
+        PointNode(String name, int[] lut) {
+            super(name);
+            this.lut = lut;
+        }
+    }
+
+    /** Узел-окрестность: ядро на плоскостях. */
+    private abstract static class KernelNode extends Node {
+        KernelNode(String name) {
+            super(name);
+        }
+
+        /** dst ← узел(src), dst того же размера; src не меняется. */
+        abstract void run(byte[] src, byte[] dst, int w, int h);
+
+        /** То же с доступом к кэшу промежуточных плоскостей узла (memo может быть null). */
+        void run(byte[] src, byte[] dst, int w, int h, Memo memo) {
+            run(src, dst, w, h);
+        }
+
+        /** Оценка рабочей памяти ядра сверх входа и выхода, байт. */
+        long scratchBytes(int w, int h, int bands, int bandRows) {
+            return 0;
+        }
+
+        /** Сколько плоскостей w×h узел оставляет в кэше: копию выхода и свои промежуточные. */
+        int cachedPlanes() {
+            return 1;
+        }
+
+        /** Хватит ли кэша, чтобы пропустить узел: кроме выхода, то, что он сообщает слушателям. */
+        boolean restorable(Memo memo) {
+            return true;
+        }
+
+        /** Для узла, пропущенного по кэшу, — повторить его сообщения слушателям. */
+        void restore(Memo memo) {
+        }
+    }
+
+    private final List<Node> nodes;
+    private final boolean gray;
+
+    private OpGraph(List<Node> nodes, boolean gray) {
+        this.nodes = nodes;
+        this.gray = gray;
+    }
+
+    /** Пустой граф: вход — уровни getRGB & 0xFF (изображение уже серое). */
+    public static OpGraph create() {
+        return new OpGraph(Collections.emptyList(), false);
+    }
+
+    private OpGraph then(Node node) {
+        List<Node> next = new ArrayList<>(nodes);
+        next.add(node);
+        return new OpGraph(Collections.unmodifiableList(next), gray);
+    }
+
+    // ---------- Узлы ----------
+
+    /** Перевод цветного входа в серый (как ImageFilters.grayImage); только первым узлом. */
+    public OpGraph gray() {
+        if (gray || !nodes.isEmpty()) throw new IllegalStateException("gray() — только первым узлом");
+        return new OpGraph(nodes, true);
+    }
+
+    public OpGraph erode(boolean[][] se) {
+        return then(morphology("erode " + se.length + "×" + se.length, se, true));
+    }
+
+    public OpGraph dilate(boolean[][] se) {
+        return then(morphology("dilate " + se.length + "×" + se.length, se, false));
+    }
+
+    /** Открытие: эрозия → дилатация. */
+    public OpGraph open(boolean[][] se) {
+        return erode(se).dilate(se);
+    }
+
+    /** Закрытие: дилатация → эрозия. */
+    public OpGraph close(boolean[][] se) {
+        return dilate(se).erode(se);
+    }
+
+    /**
+     * Эрозия диском радиуса radius над порогом входа ≥ 128, выход 0/255 (на входе из 0/255 —
+     * то же, что erode(makeSE("Эллипс", 2·radius + 1))). Большой диск — через
+     * {@link DistanceTransform}, за время, не зависящее от радиуса.
+     */
+    public OpGraph erodeDisk(int radius) {
+        return then(disk("Эрозия", radius));
+    }
+
+    public OpGraph dilateDisk(int radius) {
+        return then(disk("Дилатация", radius));
+    }
+
+    public OpGraph openDisk(int radius) {
+        return erodeDisk(radius).dilateDisk(radius);
+    }
+
+    public OpGraph closeDisk(int radius) {
+        return dilateDisk(radius).erodeDisk(radius);
+    }
+
+    /** Операция морфологии по имени из GUI (Эрозия, Дилатация, Открытие, Закрытие). */
+    public OpGraph morphology(String op, boolean[][] se) {
+        switch (op) {
+            case "Эрозия": return erode(se);
+            case "Дилатация": return dilate(se);
+            case "Открытие": return open(se);
+            case "Закрытие": return close(se);
+            default: throw new IllegalArgumentException("неизвестная операция " + op);
+        }
+    }
+
+    public OpGraph blur(int r) {
+        return then(new KernelNode("blur " + r + "×" + r) {
+            @Override
+            void run(byte[] src, byte[] dst, int w, int h) {
+                ImageFilters.boxBlur(src, dst, w, h, r);
+            }
+
+            @Override
+            long scratchBytes(int w, int h, int bands, int bandRows) {
+                return 4L * w * bands;
+            }
+        });
+    }
+
+    public OpGraph gaussian(double sigma) {
+        Convolution.Kernel k = Convolution.Kernel.gaussian(sigma);
+        return then(new KernelNode("gauss σ=" + sigma) {
+            @Override
+            void run(byte[] src, byte[] dst, int w, int h) {
+                Convolution.apply(src, dst, w, h, k);
+            }
+
+            @Override
+            long scratchBytes(int w, int h, int bands, int bandRows) {
+                return 4L * w * (Convolution.CHUNK_ROWS + 1) * bands;
+            }
+        });
+    }
+
+    public OpGraph sobel() {
+        return then(new KernelNode("sobel") {
+            @Override
+            void run(byte[] src, byte[] dst, int w, int h) {
+                ImageFilters.sobel(src, dst, w, h);
+            }
+
+            @Override
+            long scratchBytes(int w, int h, int bands, int bandRows) {
+                return 4L * w * h + 8L * w * Convolution.CHUNK_ROWS * bands; // int-плоскость |g|² и буферы gx, gy
+            }
+        });
+    }
+
+    public OpGraph laplacian() {
+        return then(new KernelNode("laplacian") {
+            @Override
+            void run(byte[] src, byte[] dst, int w, int h) {
+                ImageFilters.laplacian(src, dst, w, h);
+            }
+
+            @Override
+            long scratchBytes(int w, int h, int bands, int bandRows) {
+                return 4L * w * (Convolution.CHUNK_ROWS + 1) * bands;
+            }
+        });
+    }
+
+    public OpGraph canny(int low, int high, int blur) {
+        return then(new KernelNode("canny " + low + "/" + high + " r" + blur) {
+            @Override
+            void run(byte[] src, byte[] dst, int w, int h) {
+                ImageFilters.canny(src, dst, w, h, low, high, blur);
+            }
+
+            @Override
+            void run(byte[] src, byte[] dst, int w, int h, Memo memo) {
+                if (memo == null) {
+                    run(src, dst, w, h);
+                    return;
+                }
+                // градиенты и NMS от порогов не зависят — их плоскость общая для всех low/high
+                byte[] nms = memo.plane("nms r" + blur, w * h, p -> StreamingCanny.nms(src, p, w, h, blur));
+                StreamingCanny.threshold(nms, dst, low, high);
+                StreamingCanny.hysteresis(dst, w, h);
+            }
+
+            @Override
+            long scratchBytes(int w, int h, int bands, int bandRows) {
+                // на полосу: суммы столбцов, по 3 строки сглаживания, |g|² и сектора; стек
+                // гистерезиса не учтён — он растёт с числом краёв
+                return 22L * w * bands;
+            }
+
+            @Override
+            int cachedPlanes() {
+                return 2; // выход и NMS
+            }
+        });
+    }
+
+    /** Пороги, выбранные узлом автоматически; вызывается из рабочего потока. */
+    public interface Thresholds {
+        void chosen(int low, int high);
+    }
+
+    /**
+     * Canny с порогами по перцентилям градиента ({@link Histogram#cannyThresholds}). NMS-плоскость
+     * общая с {@link #canny}: переключение между ручными и авто-порогами её не пересчитывает.
+     * listener (может быть null) получает выбранные пороги — и тогда, когда выход узла взят
+     * из кэша: пороги хранятся в кэше рядом с NMS-плоскостью.
+     */
+    public OpGraph cannyAuto(int blur, Thresholds listener) {
+        return then(new KernelNode("canny auto r" + blur) {
+            @Override
+            void run(byte[] src, byte[] dst, int w, int h) {
+                StreamingCanny.nms(src, dst, w, h, blur);
+                edges(dst, dst, w, h);
+            }
+
+            @Override
+            void run(byte[] src, byte[] dst, int w, int h, Memo memo) {
+                if (memo == null) {
+                    run(src, dst, w, h);
+                    return;
+                }
+                byte[] nms = memo.plane("nms r" + blur, w * h, p -> StreamingCanny.nms(src, p, w, h, blur));
+                byte[] t = memo.plane(thresholdsKey(), 2, p -> {
+                    int[] c = Histogram.cannyThresholds(Histogram.of(nms, w, h));
+                    p[0] = (byte) c[0];
+                    p[1] = (byte) c[1];
+                });
+                edges(nms, dst, w, h, t[0] & 0xFF, t[1] & 0xFF);
+            }
+
+            private void edges(byte[] nms, byte[] dst, int w, int h) {
+                int[] t = Histogram.cannyThresholds(Histogram.of(nms, w, h));
+                edges(nms, dst, w, h, t[0], t[1]);
+            }
+
+            private void edges(byte[] nms, byte[] dst, int w, int h, int low, int high) {
+                if (listener != null) listener.chosen(low, high);
+                StreamingCanny.threshold(nms, dst, low, high);
+                StreamingCanny.hysteresis(dst, w, h);
+            }
+
+            private String thresholdsKey() {
+                return "thresholds r" + blur; // пороги ≤ 255 — два байта
+            }
+
+            @Override
+            boolean restorable(Memo memo) {
+                return listener == null || memo.contains(thresholdsKey());
+            }
+
+            @Override
+            void restore(Memo memo) {
+                byte[] t = memo.peek(thresholdsKey());
+                if (listener != null && t != null) listener.chosen(t[0] & 0xFF, t[1] & 0xFF);
+            }
+
+            @Override
+            long scratchBytes(int w, int h, int bands, int bandRows) {
+                return 22L * w * bands;
+            }
+
+            @Override
+            int cachedPlanes() {
+                return 2; // выход и NMS
+            }
+        });
+    }
+
+    /** Порог Оцу по гистограмме входа узла: v ≥ t → 255, иначе 0. */
+    public OpGraph otsu() {
+        return then(new KernelNode("otsu") {
+            @Override
+            void run(byte[] src, byte[] dst, int w, int h) {
+                Histogram.otsu(src, dst, w, h);
+            }
+        });
+    }
+
+    /**
+     * Карта расстояний: евклидово расстояние до ближайшего фона (уровень < 128), нормированное
+     * на 0..255 по максимуму; см. {@link DistanceTransform}.
+     */
+    public OpGraph distance() {
+        return then(new KernelNode("distance") {
+            @Override
+            void run(byte[] src, byte[] dst, int w, int h) {
+                DistanceTransform.distanceMap(src, dst, w, h);
+            }
+
+            @Override
+            long scratchBytes(int w, int h, int bands, int bandRows) {
+                return 8L * w * h + w * h / 8; // столбцовые расстояния, квадраты расстояний, биты
+            }
+        });
+    }
+
+    /** Эквализация гистограммы входа узла. */
+    public OpGraph equalize() {
+        return then(new KernelNode("equalize") {
+            @Override
+            void run(byte[] src, byte[] dst, int w, int h) {
+                Histogram.equalize(src, dst, w, h);
+            }
+        });
+    }
+
+    /** CLAHE: tiles × tiles тайлов, ограничение бина clip средних высот. */
+    public OpGraph clahe(int tiles, double clip) {
+        return then(new KernelNode("clahe " + tiles + "×" + tiles + " clip " + clip) {
+            @Override
+            void run(byte[] src, byte[] dst, int w, int h) {
+                Histogram.clahe(src, dst, w, h, tiles, clip);
+            }
+
+            @Override
+            long scratchBytes(int w, int h, int bands, int bandRows) {
+                return 4L * Histogram.LEVELS * tiles * tiles + 8L * w;
+            }
+        });
+    }
+
+    /** Порог: v ≥ t → 255, иначе 0. Поточечный. */
+    public OpGraph threshold(int t) {
+        int[] lut = new int[256];
+        for (int v = 0; v < 256; v++) lut[v] = v >= t ? 255 : 0;
+        return then(new PointNode("threshold " + t, lut));
+    }
+
+    /** Негатив: 255 - v. Поточечный. */
+    public OpGraph invert() {
+        int[] lut = new int[256];
+        for (int v = 0; v < 256; v++) lut[v] = 255 - v;
+        return then(new PointNode("invert", lut));
+    }
+
+    private static KernelNode disk(String op, int radius) {
+        if (radius < 0) throw new IllegalArgumentException("radius < 0");
+        return new KernelNode(op + " диском r=" + radius) {
+            @Override
+            void run(byte[] src, byte[] dst, int w, int h) {
+                DistanceTransform.diskMorphology(src, dst, w, h, op, radius);
+            }
+
+            @Override
+            long scratchBytes(int w, int h, int bands, int bandRows) {
+                long bits = 2L * ((w + 63) / 64) * 8 * h; // вход и выход по биту на пиксель
+                if (2L * radius + 1 >= DistanceTransform.DISK_SIZE) {
+                    return bits + 4L * w * h + 12L * w * bands; // столбцовые расстояния, огибающая полосы
+                }
+                long k = 2L * radius + 1, words = (w + 2 * k + 63) / 64 + 2;
+                return bits + (8L * k * (k / 2 + 1) * ((w + 63) / 64) + 16L * words) * bands; // кольцо строк SE
+            }
+        };
+    }
+
+    private static KernelNode morphology(String name, boolean[][] se, boolean min) {
+        return new KernelNode(name) {
+            @Override
+            void run(byte[] src, byte[] dst, int w, int h) {
+                if (min) ImageFilters.erode(src, dst, w, h, se);
+                else ImageFilters.dilate(src, dst, w, h, se);
+            }
+
+            @Override
+            String key() {
+                StringBuilder sb = new StringBuilder(min ? "erode:" : "dilate:");
+                for (boolean[] row : se) {
+                    sb.append('/');
+                    for (boolean b : row) sb.append(b ? '1' : '0');
+                }
+                return sb.toString();
+            }
+
+            @Override
+            long scratchBytes(int w, int h, int bands, int bandRows) {
+                if (!FastMorphology.supports(se)) return 0;
+                int k = se.length, half = k / 2;
+                long perBand = 3L * k * w                              // блоки вертикального прохода
+                        + 12L * (w + 2 * half + k)                     // строки горизонтального прохода
+                        + (long) (Math.min(bandRows, h) + 2 * half) * w; // промежуточная полоса
+                return perBand * bands;
+            }
+        };
+    }
+
+    // ---------- Исполнение ----------
+
+    /** Результат как TYPE_BYTE_GRAY (как у фильтров ImageFilters). */
+    public BufferedImage run(BufferedImage src) {
+        return run(src, null);
+    }
+
+    /**
+     * То же с кэшем промежуточных результатов (cache может быть null). src после первого
+     * запуска с кэшем менять нельзя — ключ считается по содержимому один раз.
+     */
+    public BufferedImage run(BufferedImage src, ResultCache cache) {
+        int w = src.getWidth(), h = src.getHeight();
+        PlanePool pool = PlanePool.shared();
+        byte[] a = pool.acquire(w * h), b = pool.acquire(w * h);
+        try {
+            long id = cache == null ? 0 : cache.sourceId(src);
+            int start = cache == null ? -1 : resume(cache, id, a, w * h);
+            if (start < 0) {
+                if (gray) grayInto(src, a, w, h);
+                else System.arraycopy(GrayRaster.levels(src), 0, a, 0, w * h);
+                if (cache != null) cache.put(id, prefixKey(0), a.clone());
+                start = 0;
+            }
+            // при gray квантование уже сделано; без него уровни getRGB и так устойчивы
+            byte[] out = execute(a, b, w, h, start, cache, id);
+            BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_BYTE_GRAY);
+            byte[] d = GrayRaster.data(img);
+            int[] tail = pendingTail();
+            TileScheduler.getDefault().forBands(w, h, 0, band -> {
+                for (int i = band.y0 * w; i < band.y1 * w; i++) d[i] = GrayRaster.ENCODE[tail[out[i] & 0xFF]];
+            });
+            return img;
+        } finally {
+            pool.release(a);
+            pool.release(b);
+        }
+    }
+
+    /**
+     * Результат на плоскости уровней; levels не меняется. Граф без gray(): вход уже
+     * уровни серого. Возвращённую плоскость можно отдать в {@link PlanePool#release}.
+     */
+    public byte[] run(byte[] levels, int w, int h) {
+        if (gray) throw new IllegalStateException("gray() требует цветной BufferedImage на входе");
+        PlanePool pool = PlanePool.shared();
+        byte[] a = pool.acquire(w * h), b = pool.acquire(w * h);
+        System.arraycopy(levels, 0, a, 0, w * h);
+        byte[] out = execute(a, b, w, h, 0, null, 0);
+        int[] tail = pendingTail();
+        if (!isIdentity(tail)) applyLut(out, tail, w, h);
+        pool.release(out == a ? b : a);
+        return out;
+    }
+
+    /**
+     * Прогон узлов [start, n) с ping-pong между a и b (в a — вход узла start); хвостовые
+     * поточечные — в pendingTail. С кэшем выход каждого узла-окрестности сохраняется.
+     */
+    private byte[] execute(byte[] a, byte[] b, int w, int h, int start, ResultCache cache, long id) {
+        byte[] cur = a, spare = b;
+        // выход узла-окрестности ещё не квантован — так он и хранится в кэше
+        int[] pending = start > 0 ? GrayRaster.ROUNDTRIP : identity();
+        for (int i = start; i < nodes.size(); i++) {
+            Node node = nodes.get(i);
+            if (node instanceof PointNode) {
+                pending = compose(((PointNode) node).lut, pending);
+                continue;
+            }
+            if (!isIdentity(pending)) applyLut(cur, pending, w, h);
+            ((KernelNode) node).run(cur, spare, w, h, cache == null ? null : new Memo(cache, id, prefixKey(i)));
+            byte[] t = cur; cur = spare; spare = t;
+            pending = GrayRaster.ROUNDTRIP;
+            if (cache != null) cache.put(id, prefixKey(i + 1), cur.clone());
+        }
+        return cur;
+    }
+
+    /**
+     * Копирует в a самый длинный готовый префикс графа из кэша; возвращает число пройденных
+     * узлов или -1, если нет даже исходной плоскости. Длинные префиксы пробуются через
+     * {@link ResultCache#contains}, так что на прогон приходится одно попадание или один промах.
+     * Пропущенные узлы повторяют свои сообщения слушателям ({@link Node#restore}); префикс,
+     * для которого их в кэше уже нет, не годится.
+     */
+    private int resume(ResultCache cache, long id, byte[] a, int length) {
+        for (int i = nodes.size(); i >= 0; i--) {
+            if (i > 0 && nodes.get(i - 1) instanceof PointNode) continue; // после поточечных ничего не хранится
+            String key = prefixKey(i);
+            if (i > 0 && (!cache.contains(id, key) || !restorable(cache, id, i))) continue;
+            byte[] hit = cache.get(id, key);
+            if (hit != null) {
+                System.arraycopy(hit, 0, a, 0, length);
+                for (int j = 0; j < i; j++) {
+                    Node node = nodes.get(j);
+                    if (node instanceof KernelNode) ((KernelNode) node).restore(new Memo(cache, id, prefixKey(j)));
+                }
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private boolean restorable(ResultCache cache, long id, int n) {
+        for (int j = 0; j < n; j++) {
+            Node node = nodes.get(j);
+            if (node instanceof KernelNode && !((KernelNode) node).restorable(new Memo(cache, id, prefixKey(j)))) return false;
+        }
+        return true;
+    }
+
+    /** Ключ кэша для результата первых n узлов. */
+    private String prefixKey(int n) {
+        StringBuilder sb = new StringBuilder(gray ? "gray" : "levels");
+        for (int i = 0; i < n; i++) sb.append('|').append(nodes.get(i).key());
+        return sb.toString();
+    }
+
+    /** Кэш промежуточных плоскостей одного узла: ключи продолжают префикс графа до него. */
+    private static final class Memo {
+        private final ResultCache cache;
+        private final long source;
+        private final String prefix;
+
+        Memo(ResultCache cache, long source, String prefix) {
+            this.cache = cache;
+            this.source = source;
+            this.prefix = prefix;
+        }
+
+        /** Готовая плоскость по ключу или новая, заполненная fill и сохранённая; менять нельзя. */
+        byte[] plane(String key, int length, Consumer<byte[]> fill) {
+            String op = prefix + "|" + key;
+            byte[] p = cache.get(source, op);
+            if (p == null) {
+                p = new byte[length];
+                fill.accept(p);
+                cache.put(source, op, p);
+            }
+            return p;
+        }
+
+        boolean contains(String key) {
+            return cache.contains(source, prefix + "|" + key);
+        }
+
+        /** Сохранённое по ключу или null; счётчики кэша не меняются. */
+        byte[] peek(String key) {
+            return cache.peek(source, prefix + "|" + key);
+        }
+    }
+
+    /** Слитая таблица поточечных узлов после последнего узла-окрестности (с квантованием). */
+    private int[] pendingTail() {
+        int[] pending = identity();
+        for (Node node : nodes) {
+            pending = node instanceof PointNode ? compose(((PointNode) node).lut, pending) : GrayRaster.ROUNDTRIP;
+        }
+        return pending;
+    }
+
+    /** Серый источник одним проходом: уровень = ROUNDTRIP[gray(rgb)] (запись в TYPE_BYTE_GRAY и чтение). */
+    private static void grayInto(BufferedImage src, byte[] dst, int w, int h) {
+        TileScheduler.getDefault().forBands(w, h, 0, band -> {
+            int[] row = new int[w];
+            for (int y = band.y0; y < band.y1; y++) {
+                GrayRaster.argbRow(src, y, row);
+                for (int x = 0, i = y * w; x < w; x++, i++) dst[i] = (byte) GrayRaster.ROUNDTRIP[ImageFilters.gray(row[x])];
+            }
+        });
+    }
+
+    /** after ∘ before, с квантованием результата поточечного узла (в GUI он тоже лёг бы в TYPE_BYTE_GRAY). */
+    private static int[] compose(int[] after, int[] before) {
+        int[] out = new int[256];
+        for (int v = 0; v < 256; v++) out[v] = GrayRaster.ROUNDTRIP[after[before[v]]];
+        return out;
+    }
+
+    private static int[] identity() {
+        int[] lut = new int[256];
+        for (int v = 0; v < 256; v++) lut[v] = v;
+        return lut;
+    }
+
+    private static boolean isIdentity(int[] lut) {
+        for (int v = 0; v < 256; v++) if (lut[v] != v) return false;
+        return true;
+    }
+
+    private static void applyLut(byte[] plane, int[] lut, int w, int h) {
+        TileScheduler.getDefault().forBands(w, h, 0, band -> {
+            for (int i = band.y0 * w; i < band.y1 * w; i++) plane[i] = (byte) lut[plane[i] & 0xFF];
+        });
+    }
+
+    // ---------- План ----------
+
+    /** Этапы исполнения после слияния и оценка пиковой памяти для изображения w×h. */
+    public Plan plan(int w, int h) {
+        return plan(w, h, null);
+    }
+
+    /**
+     * То же для запуска с кэшем (cache может быть null): к пику добавляются копии, которые
+     * запуск кладёт в кэш, — серая плоскость и выходы узлов-окрестностей, не больше бюджета кэша.
+     */
+    public Plan plan(int w, int h, ResultCache cache) {
+        TileScheduler s = TileScheduler.getDefault();
+        int bands = Math.max(1, Math.min(s.getParallelism(), (h + s.getTileRows() - 1) / s.getTileRows()));
+        List<String> stages = new ArrayList<>();
+        StringBuilder pointwise = new StringBuilder(gray ? "gray" : "");
+        long scratch = 0;
+        int cachedPlanes = 1;
+        for (Node node : nodes) {
+            if (node instanceof PointNode) {
+                pointwise.append(pointwise.length() > 0 ? "+" : "").append(node.name);
+                continue;
+            }
+            KernelNode kernel = (KernelNode) node;
+            if (pointwise.length() > 0) stages.add("[" + pointwise + "]");
+            stages.add(kernel.name);
+            pointwise.setLength(0);
+            pointwise.append("quantize");
+            scratch = Math.max(scratch, kernel.scratchBytes(w, h, bands, s.getTileRows()));
+            cachedPlanes += kernel.cachedPlanes();
+        }
+        stages.add("[" + (pointwise.length() > 0 ? pointwise + "+" : "") + "encode]");
+        long planes = 2L * w * h;     // два буфера ping-pong
+        long output = (long) w * h;   // TYPE_BYTE_GRAY результата
+        long cached = cache == null ? 0 : Math.min((long) cachedPlanes * w * h, cache.budgetBytes());
+        return new Plan(stages, planes + output + scratch + cached);
+    }
+
+    /** Описание исполнения: этапы (поточечные в скобках — один проход) и пиковая память. */
+    public static final class Plan {
+        private final List<String> stages;
+        private final long peakBytes;
+
+        Plan(List<String> stages, long peakBytes) {
+            this.stages = Collections.unmodifiableList(stages);
+            this.peakBytes = peakBytes;
+        }
+
+        public List<String> stages() {
+            return stages;
+        }
+
+        /** Оценка пика сверх входного изображения: буферы, результат, рабочая память ядер и копии в кэше. */
+        public long peakBytes() {
+            return peakBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.join(" → ", stages) + String.format(" (пик ≈ %.1f МиБ)", peakBytes / (1024.0 * 1024.0));
+        }
+    }
+}
@@ -0,0 +1,261 @@
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Обработка изображений больше кучи: полосами строк, без BufferedImage на всё изображение.
+ * <pre>
+ *   java OutOfCoreProcessor scan.tif closing:rect:9,sobel edges.png [--band N]
+ * </pre>
+ * Источник читается через ImageReader по областям (ImageReadParam.setSourceRegion): для
+ * полосы результата [y0, y1) берутся строки [y0 - H, y1 + H), где H — сумма ореолов шагов
+ * цепочки ({@link OpChain}). Каждый шаг работает на полосе как на отдельном изображении;
+ * искажения от зажима на краях полосы не выходят за ореол, поэтому строки [y0, y1)
+ * совпадают с обработкой целого изображения пиксель в пиксель.
+ *
+ * Собель нормирует по максимуму всего изображения — для каждого шага sobel делается
+ * отдельный проход, который только ищет этот максимум, так что источник читается
+ * (число шагов sobel + 1) раз. Canny не поддерживается: гистерезис связывает края через
+ * всё изображение.
+ *
+ * Результат пишется по мере готовности полос в PNG (8-бит серый, IDAT по 64 КиБ) или PGM
+ * (P5) — с теми же байтами, что у TYPE_BYTE_GRAY в GUI. Пиковая память — несколько
+ * плоскостей полосы (w × (band + 2H)), от высоты изображения не зависит.
+ *
+ * Замечание по форматам: TIFF с полосами/тайлами читается по области напрямую; PNG и JPEG
+ * при каждом чтении области распаковываются с начала файла, поэтому для них берите
+ * полосы покрупнее (--band).
+ */
+public final class OutOfCoreProcessor {
+
+    /**
+     * Бюджет памяти на полосу по умолчанию (выбор высоты полосы): около 8 байт на пиксель
+     * полосы — декодированная область, две плоскости цепочки и рабочие буферы фильтров.
+     */
+    static final long DEFAULT_BAND_BYTES = Math.min(64L << 20, Runtime.getRuntime().maxMemory() / 4);
+
+    private final OpChain chain;
+    private final int bandRows;
+
+    /** bandRows ≤ 0 — подобрать по ширине изображения и {@link #DEFAULT_BAND_BYTES}. */
+    public OutOfCoreProcessor(OpChain chain, int bandRows) {
+        for (OpChain.Step step : chain.steps()) {
+            if (step.reach == OpChain.Reach.GLOBAL) {
+                throw new IllegalArgumentException(step.token + ": требует всё изображение, полосами не считается");
+            }
+        }
+        this.chain = chain;
+        this.bandRows = bandRows;
+    }
+
+    public static void main(String[] args) {
+        int band = 0;
+        String[] pos = new String[3];
+        int n = 0;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if (args[i].equals("--band")) band = Integer.parseInt(args[++i]);
+                else if (n < 3) pos[n++] = args[i];
+                else throw new IllegalArgumentException("лишний аргумент " + args[i]);
+            }
+            if (n != 3) throw new IllegalArgumentException("нужны вход, цепочка и выходной файл");
+            OutOfCoreProcessor p = new OutOfCoreProcessor(OpChain.parse(pos[1]), band);
+            long t = System.nanoTime();
+            p.process(Paths.get(pos[0]), Paths.get(pos[2]));
+            System.out.printf("Готово за %.2f с%n", (System.nanoTime() - t) / 1e9);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Ошибка: " + e.getMessage());
+            System.err.println("Использование: OutOfCoreProcessor <вход> <цепочка> <выход.png|выход.pgm> [--band N]");
+            System.exit(2);
+        } catch (IOException e) {
+            System.err.println("Ошибка ввода-вывода: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /** Обрабатывает in и пишет out (формат — по расширению: .pgm, иначе PNG). */
+    public void process(Path in, Path out) throws IOException {
+        try (ImageInputStream iis = ImageIO.createImageInputStream(in.toFile())) {
+            if (iis == null) throw new IOException("не удалось открыть " + in);
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(iis);
+            if (!readers.hasNext()) throw new IOException("формат не распознан: " + in);
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(iis, false, true);
+                process(reader, out);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void process(ImageReader reader, Path out) throws IOException {
+        int w = reader.getWidth(0), h = reader.getHeight(0);
+        List<OpChain.Step> steps = chain.steps();
+        int halo = 0;
+        for (OpChain.Step step : steps) halo += step.halo;
+        int rows = bandRows > 0 ? bandRows : (int) Math.max(16, DEFAULT_BAND_BYTES / (8L * w) - 2L * halo);
+
+        // максимумы для шагов sobel, по проходу на каждый — по порядку, т.к. вход шага зависит от предыдущих
+        int[] maxima = new int[steps.size()];
+        for (int k = 0; k < steps.size(); k++) {
+            if (steps.get(k).reach != OpChain.Reach.NORMALIZED) continue;
+            int max = 1;
+            for (int y0 = 0; y0 < h; y0 += rows) {
+                int y1 = Math.min(h, y0 + rows);
+                int top = Math.max(0, y0 - halo), bh = Math.min(h, y1 + halo) - top;
+                byte[] plane = band(reader, w, h, top, bh, k, maxima);
+                max = Math.max(max, ImageFilters.sobelMaxMag2(plane, w, bh, y0 - top, y1 - top));
+            }
+            maxima[k] = max;
+        }
+
+        try (Sink sink = out.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".pgm")
+                ? new PgmSink(out, w, h) : new PngSink(out, w, h)) {
+            for (int y0 = 0; y0 < h; y0 += rows) {
+                int y1 = Math.min(h, y0 + rows);
+                int top = Math.max(0, y0 - halo), bh = Math.min(h, y1 + halo) - top;
+                byte[] plane = band(reader, w, h, top, bh, steps.size(), maxima);
+                sink.write(plane, (y0 - top) * w, y1 - y0);
+            }
+        }
+    }
+
+    /** Строки [top, top + bh) источника после шагов [0, stop) цепочки, как плоскость уровней. */
+    private byte[] band(ImageReader reader, int w, int h, int top, int bh, int stop, int[] maxima) throws IOException {
+        ImageReadParam param = reader.getDefaultReadParam();
+        param.setSourceRegion(new Rectangle(0, top, w, bh));
+        BufferedImage img = reader.read(0, param);
+        byte[] a = ImageFilters.grayLevels(img);
+        img = null;
+        byte[] b = new byte[w * bh];
+        List<OpChain.Step> steps = chain.steps();
+        for (int i = 0; i < stop; i++) {
+            OpChain.Step step = steps.get(i);
+            if (step.reach == OpChain.Reach.NORMALIZED) ImageFilters.sobel(a, b, w, bh, maxima[i], 0, bh);
+            else step.apply(a, b, w, bh);
+            GrayRaster.quantize(b);
+            byte[] t = a; a = b; b = t;
+        }
+        return a;
+    }
+
+    /** Приёмник строк результата, строго сверху вниз. */
+    private interface Sink extends Closeable {
+        void write(byte[] levels, int off, int rows) throws IOException;
+    }
+
+    /** Байт файла — как у TYPE_BYTE_GRAY после записи уровня (см. GrayRaster.ENCODE). */
+    private static void encodeRow(byte[] levels, int off, byte[] row) {
+        for (int x = 0; x < row.length; x++) row[x] = GrayRaster.ENCODE[levels[off + x] & 0xFF];
+    }
+
+    private static final class PgmSink implements Sink {
+        private final OutputStream out;
+        private final byte[] row;
+
+        PgmSink(Path path, int w, int h) throws IOException {
+            out = new BufferedOutputStream(Files.newOutputStream(path), 1 << 16);
+            out.write(("P5\n" + w + " " + h + "\n255\n").getBytes(StandardCharsets.US_ASCII));
+            row = new byte[w];
+        }
+
+        @Override
+        public void write(byte[] levels, int off, int rows) throws IOException {
+            for (int r = 0; r < rows; r++, off += row.length) {
+                encodeRow(levels, off, row);
+                out.write(row);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /** Потоковый PNG: серый 8 бит, фильтр None, IDAT сбрасывается порциями по 64 КиБ. */
+    private static final class PngSink implements Sink {
+        private static final int CHUNK = 1 << 16;
+
+        private final DataOutputStream out;
+        private final Deflater deflater = new Deflater(6);
+        private final ByteArrayOutputStream idat = new ByteArrayOutputStream(CHUNK + 1024);
+        private final DeflaterOutputStream z = new DeflaterOutputStream(idat, deflater, 1 << 14);
+        private final byte[] row;
+
+        PngSink(Path path, int w, int h) throws IOException {
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+            out.write(new byte[]{(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'});
+            ByteArrayOutputStream ihdr = new ByteArrayOutputStream(13);
+            DataOutputStream d = new DataOutputStream(ihdr);
+            d.writeInt(w);
+            d.writeInt(h);
+            d.writeByte(8); // бит на канал
+            d.writeByte(0); // серый
+            d.writeByte(0); // deflate
+            d.writeByte(0); // адаптивная фильтрация
+            d.writeByte(0); // без чередования
+            chunk("IHDR", ihdr.toByteArray(), ihdr.size());
+            row = new byte[w];
+        }
+
+        @Override
+        public void write(byte[] levels, int off, int rows) throws IOException {
+            for (int r = 0; r < rows; r++, off += row.length) {
+                encodeRow(levels, off, row);
+                z.write(0); // фильтр строки: None
+                z.write(row);
+                if (idat.size() >= CHUNK) flushIdat();
+            }
+        }
+
+        private void flushIdat() throws IOException {
+            if (idat.size() == 0) return;
+            chunk("IDAT", idat.toByteArray(), idat.size());
+            idat.reset();
+        }
+
+        private void chunk(String type, byte[] data, int len) throws IOException {
+            byte[] t = type.getBytes(StandardCharsets.US_ASCII);
+            CRC32 crc = new CRC32();
+            crc.update(t);
+            crc.update(data, 0, len);
+            out.writeInt(len);
+            out.write(t);
+            out.write(data, 0, len);
+            out.writeInt((int) crc.getValue());
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                z.finish();
+                flushIdat();
+                chunk("IEND", new byte[0], 0);
+                out.close();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+}
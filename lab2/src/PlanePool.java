@@ -0,0 +1,56 @@
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Пул плоскостей byte[] одного размера для промежуточных результатов.
+ *
+ * Повторные запуски графа на изображениях того же размера берут буферы отсюда, а не
+ * через new byte[w*h]: для больших кадров это не только аллокация, но и обнуление
+ * десятков мегабайт. Свободные буферы держатся в пределах бюджета в байтах (по умолчанию
+ * -Dimage.poolBytes, 256 МиБ); сверх него отданный буфер просто достаётся GC.
+ * Содержимое выданного буфера не определено.
+ */
+public final class PlanePool {
+
+    private static final PlanePool SHARED = new PlanePool(Long.getLong("image.poolBytes", 256L << 20));
+
+    private final long budgetBytes;
+    private final Map<Integer, ArrayDeque<byte[]>> free = new HashMap<>();
+    private long freeBytes;
+
+    public PlanePool(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public static PlanePool shared() {
+        return SHARED;
+    }
+
+    /** Буфер длины length с произвольным содержимым. */
+    public synchronized byte[] acquire(int length) {
+        ArrayDeque<byte[]> q = free.get(length);
+        if (q != null && !q.isEmpty()) {
+            freeBytes -= length;
+            return q.pop();
+        }
+        return new byte[length];
+    }
+
+    /** Возвращает буфер в пул; после этого им пользоваться нельзя. */
+    public synchronized void release(byte[] buf) {
+        if (buf == null || freeBytes + buf.length > budgetBytes) return;
+        free.computeIfAbsent(buf.length, k -> new ArrayDeque<>()).push(buf);
+        freeBytes += buf.length;
+    }
+
+    /** Сколько байт сейчас лежит в пуле без дела. */
+    public synchronized long freeBytes() {
+        return freeBytes;
+    }
+
+    public synchronized void clear() {
+        free.clear();
+        freeBytes = 0;
+    }
+}
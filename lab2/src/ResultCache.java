@@ -0,0 +1,155 @@
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * LRU-кэш плоскостей уровней с бюджетом в байтах (не в записях).
+ *
+ * Ключ — хэш содержимого источника ({@link #contentHash}) и строка операции с параметрами,
+ * например "gray|dilate:…|erode:…". Одно и то же изображение, загруженное дважды, даёт
+ * тот же ключ; картинка другого содержимого — другой. Сохранённые массивы общие:
+ * читать можно, менять нельзя.
+ *
+ * При превышении бюджета вытесняются давно не использованные записи. Бюджет по умолчанию —
+ * -Dimage.cacheBytes или четверть кучи, но не больше 256 МиБ. Счётчики попаданий, промахов
+ * и вытеснений — для статуса в GUI и замеров.
+ */
+public final class ResultCache {
+
+    private static final ResultCache SHARED = new ResultCache(
+            Long.getLong("image.cacheBytes", Math.min(256L << 20, Runtime.getRuntime().maxMemory() / 4)));
+
+    private static final class Key {
+        final long source;
+        final String op;
+
+        Key(long source, String op) {
+            this.source = source;
+            this.op = op;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return source == k.source && op.equals(k.op);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(source, op);
+        }
+    }
+
+    private final long budgetBytes;
+    private final LinkedHashMap<Key, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /** Хэш содержимого по экземпляру изображения: считается один раз на загрузку. */
+    private final Map<BufferedImage, Long> sourceIds = new WeakHashMap<>();
+    private long sizeBytes;
+    private long hits, misses, evictions;
+
+    public ResultCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    public static ResultCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Идентификатор источника для ключей: {@link #contentHash}, запомненный за экземпляром.
+     * Изображение после этого менять нельзя — иначе ключи устареют.
+     */
+    public long sourceId(BufferedImage img) {
+        synchronized (sourceIds) {
+            Long id = sourceIds.get(img);
+            if (id != null) return id;
+        }
+        long id = contentHash(img);
+        synchronized (sourceIds) {
+            sourceIds.put(img, id);
+        }
+        return id;
+    }
+
+    /** 64-битный хэш размеров и пикселей (ARGB, как getRGB). */
+    public static long contentHash(BufferedImage img) {
+        int w = img.getWidth(), h = img.getHeight();
+        int[] row = new int[w];
+        long hash = 0x9E3779B97F4A7C15L * (31L * w + h);
+        for (int y = 0; y < h; y++) {
+            GrayRaster.argbRow(img, y, row);
+            for (int x = 0; x < w; x++) {
+                hash = (hash ^ row[x]) * 0x100000001B3L;
+                hash ^= hash >>> 29;
+            }
+        }
+        return hash;
+    }
+
+    /** Плоскость по ключу или null; запись становится самой свежей. */
+    public synchronized byte[] get(long source, String op) {
+        byte[] v = entries.get(new Key(source, op));
+        if (v != null) hits++;
+        else misses++;
+        return v;
+    }
+
+    /** Есть ли запись по ключу; счётчики и порядок вытеснения не меняются — для проб. */
+    public synchronized boolean contains(long source, String op) {
+        return entries.containsKey(new Key(source, op));
+    }
+
+    /** Как {@link #get}, но без счётчиков — для данных, которые берутся вместе с уже учтённой записью. */
+    public synchronized byte[] peek(long source, String op) {
+        return entries.get(new Key(source, op));
+    }
+
+    /** Сохраняет value (не копируя) и вытесняет старые записи сверх бюджета. */
+    public synchronized void put(long source, String op, byte[] value) {
+        if (value.length > budgetBytes) return;
+        byte[] old = entries.put(new Key(source, op), value);
+        if (old != null) sizeBytes -= old.length;
+        sizeBytes += value.length;
+        Iterator<byte[]> it = entries.values().iterator();
+        while (sizeBytes > budgetBytes && it.hasNext()) {
+            sizeBytes -= it.next().length;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        sizeBytes = 0;
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized long evictions() {
+        return evictions;
+    }
+
+    public synchronized long sizeBytes() {
+        return sizeBytes;
+    }
+
+    public long budgetBytes() {
+        return budgetBytes;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("кэш %.1f/%.0f МиБ, попаданий %d, промахов %d, вытеснений %d",
+                sizeBytes / (1024.0 * 1024.0), budgetBytes / (1024.0 * 1024.0), hits, misses, evictions);
+    }
+}
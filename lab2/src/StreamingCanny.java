@@ -0,0 +1,185 @@
+import java.util.Arrays;
+
+/**
+ * Canny одним потоковым конвейером: бокс-сглаживание → Собель → квантованное направление →
+ * NMS → двойной порог → трассировка гистерезисом.
+ *
+ * Промежуточных плоскостей нет: каждая полоса строк держит скользящие суммы столбцов для
+ * сглаживания и кольца по 3 строки (сглаженные уровни, |g|² в int, сектор в byte). Весь
+ * расход памяти — выходная плоскость byte[w*h] и несколько строк на полосу. Нормализация
+ * к 0..255 требует глобального максимума градиента, поэтому проходов два: первый только
+ * ищет максимум, второй пишет нормированную NMS-плоскость прямо в выход.
+ *
+ * Гистерезис: слабые пиксели (low ≤ v < high), 8-связно соединённые с сильными (v ≥ high),
+ * становятся краями, остальные слабые гасятся. Обход — явным стеком int[], без рекурсии.
+ */
+public final class StreamingCanny {
+
+    private static final double TAN_22_5 = Math.tan(Math.PI / 8);
+    private static final double TAN_67_5 = 1 / TAN_22_5;
+
+    private StreamingCanny() {
+    }
+
+    /** Полный Canny: dst получает 0/255. */
+    static void canny(byte[] src, byte[] dst, int w, int h, int low, int high, int blur) {
+        nms(src, dst, w, h, blur);
+        threshold(dst, dst, low, high);
+        hysteresis(dst, w, h);
+    }
+
+    /**
+     * Нормированная к 0..255 величина градиента после NMS (0 — подавлен или рамка).
+     * Совпадает с round(255 * nms / maxMag) прежней реализации на double-плоскостях.
+     */
+    static void nms(byte[] src, byte[] dst, int w, int h, int blur) {
+        TileScheduler scheduler = TileScheduler.getDefault();
+        int halo = blur / 2 + 2;
+        int maxMag2 = scheduler.reduce(w, h, halo, 1, Math::max, band -> {
+            Rows rows = new Rows(src, w, h, blur, band.y0 - 1);
+            int max = 0;
+            for (int y = band.y0; y < band.y1; y++) max = Math.max(max, rows.sobel(y));
+            return max;
+        });
+        double maxMag = Math.sqrt(maxMag2);
+        scheduler.forBands(w, h, halo, band -> {
+            Rows rows = new Rows(src, w, h, blur, band.y0 - 2);
+            if (band.y0 > 0) rows.sobel(band.y0 - 1);
+            rows.sobel(band.y0);
+            for (int y = band.y0; y < band.y1; y++) {
+                if (y + 1 < h) rows.sobel(y + 1);
+                int o = y * w;
+                if (y == 0 || y == h - 1) {
+                    Arrays.fill(dst, o, o + w, (byte) 0);
+                    continue;
+                }
+                int[] up = rows.mag[(y + 2) % 3], mid = rows.mag[y % 3], down = rows.mag[(y + 1) % 3];
+                byte[] sector = rows.sector[y % 3];
+                dst[o] = 0;
+                dst[o + w - 1] = 0;
+                for (int x = 1; x < w - 1; x++) {
+                    int m2 = mid[x];
+                    int m1, mm2;
+                    switch (sector[x]) {
+                        case 0:  m1 = mid[x - 1];  mm2 = mid[x + 1];  break; // горизонт
+                        case 1:  m1 = up[x + 1];   mm2 = down[x - 1]; break; // диагональ /
+                        case 2:  m1 = up[x];       mm2 = down[x];     break; // вертикаль
+                        default: m1 = up[x - 1];   mm2 = down[x + 1]; break; // диагональ \
+                    }
+                    int v = 0;
+                    if (m2 >= m1 && m2 >= mm2) v = (int) Math.round(255.0 * (Math.sqrt(m2) / maxMag));
+                    dst[o + x] = (byte) v;
+                }
+            }
+        });
+    }
+
+    /** Двойной порог по NMS-плоскости: 255 — сильный, 128 — слабый, 0 — фон (можно in-place). */
+    static void threshold(byte[] nms, byte[] dst, int low, int high) {
+        for (int i = 0; i < nms.length; i++) {
+            int v = nms[i] & 0xFF;
+            dst[i] = (byte) ((v >= high) ? 255 : (v >= low ? 128 : 0));
+        }
+    }
+
+    /** Трассировка: слабые (128), связные с сильными (255), становятся 255, прочие — 0. */
+    static void hysteresis(byte[] edges, int w, int h) {
+        TileScheduler.checkCancelled();
+        int[] stack = new int[1024];
+        int sp = 0;
+        for (int i = 0; i < w * h; i++) {
+            if ((edges[i] & 0xFF) != 255) continue;
+            stack[sp++] = i;
+            while (sp > 0) {
+                int p = stack[--sp];
+                int px = p % w, py = p / w;
+                for (int dy = -1; dy <= 1; dy++) {
+                    int yy = py + dy;
+                    if (yy < 0 || yy >= h) continue;
+                    for (int dx = -1; dx <= 1; dx++) {
+                        int xx = px + dx;
+                        if (xx < 0 || xx >= w) continue;
+                        int q = yy * w + xx;
+                        if ((edges[q] & 0xFF) != 128) continue;
+                        edges[q] = (byte) 255;
+                        if (sp == stack.length) stack = Arrays.copyOf(stack, sp * 2);
+                        stack[sp++] = q;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < w * h; i++) {
+            if ((edges[i] & 0xFF) == 128) edges[i] = 0;
+        }
+    }
+
+    /** Сектор направления градиента: 0 (0°), 1 (45°), 2 (90°), 3 (135°) — без atan2. */
+    static int sector(int gx, int gy) {
+        if (gy == 0) return 0;
+        if (gy < 0) { gx = -gx; gy = -gy; }
+        int ax = Math.abs(gx);
+        if (gy < TAN_22_5 * ax) return 0;
+        if (gy >= TAN_67_5 * ax) return 2;
+        return gx > 0 ? 1 : 3;
+    }
+
+    /**
+     * Скользящие строки одной полосы. Строки выдаются строго по возрастанию y: сглаженная
+     * строка y лежит в blurred[y % 3], |g|² и сектор строки y — в mag[y % 3] и sector[y % 3].
+     */
+    private static final class Rows {
+        private final byte[] src;
+        private final int w, h, blur;
+        private final int[] colSum;
+        private final byte[][] blurred;
+        final int[][] mag;
+        final byte[][] sector;
+        private int nextBlur;
+
+        Rows(byte[] src, int w, int h, int blur, int firstRow) {
+            this.src = src;
+            this.w = w;
+            this.h = h;
+            this.blur = blur;
+            this.colSum = new int[w];
+            this.blurred = new byte[3][w];
+            this.mag = new int[3][w];
+            this.sector = new byte[3][w];
+            this.nextBlur = Math.max(0, firstRow);
+            ImageFilters.initColumnSums(src, colSum, w, h, blur / 2, nextBlur);
+        }
+
+        private void blurUpTo(int y) {
+            for (; nextBlur <= y && nextBlur < h; nextBlur++) {
+                byte[] row = blurred[nextBlur % 3];
+                ImageFilters.blurRow(colSum, row, 0, w, blur);
+                // сглаженное изображение раньше проходило через TYPE_BYTE_GRAY
+                for (int x = 0; x < w; x++) row[x] = (byte) GrayRaster.ROUNDTRIP[row[x] & 0xFF];
+                if (nextBlur + 1 < h) ImageFilters.advanceColumnSums(src, colSum, w, h, blur / 2, nextBlur);
+            }
+        }
+
+        /** Считает |g|² и сектор строки y; возвращает максимум |g|² в строке. */
+        int sobel(int y) {
+            int[] m = mag[y % 3];
+            byte[] s = sector[y % 3];
+            Arrays.fill(m, 0);
+            if (y == 0 || y == h - 1) return 0;
+            blurUpTo(y + 1);
+            byte[] a = blurred[(y + 2) % 3], b = blurred[y % 3], c = blurred[(y + 1) % 3];
+            int max = 0;
+            for (int x = 1; x < w - 1; x++) {
+                int p = a[x - 1] & 0xFF, q = a[x] & 0xFF, r = a[x + 1] & 0xFF;
+                int d = b[x - 1] & 0xFF,                  f = b[x + 1] & 0xFF;
+                int g = c[x - 1] & 0xFF, hh = c[x] & 0xFF, k = c[x + 1] & 0xFF;
+                int gx = (r + 2 * f + k) - (p + 2 * d + g);
+                int gy = (p + 2 * q + r) - (g + 2 * hh + k);
+                int m2 = gx * gx + gy * gy;
+                m[x] = m2;
+                s[x] = (byte) StreamingCanny.sector(gx, gy);
+                if (m2 > max) max = m2;
+            }
+            return max;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Параллельное выполнение фильтров полосами строк на ForkJoinPool.
+ *
+ * Изображение режется на полосы по tileRows строк результата; каждая полоса знает свой
+ * «ореол» (halo) — сколько строк сверху и снизу ей нужно прочитать из источника: 1 для
+ * ядер 3×3 Собеля/Лапласиана, size/2 для SE морфологии. Полосы пишут только свои строки,
+ * поэтому результат совпадает с последовательным. Маленькие изображения (меньше
+ * sequentialCutoff пикселей) считаются одной полосой в вызывающем потоке.
+ *
+ * Значения по умолчанию задаются свойствами -Dimage.parallelism, -Dimage.tileRows,
+ * -Dimage.sequentialCutoff.
+ *
+ * Код, запущенный через {@link #monitored}, сообщает {@link Monitor} о каждой готовой
+ * полосе и прерывается CancellationException перед следующей полосой, если монитор
+ * отменён. Сигнатуры фильтров при этом не меняются: монитор привязан к вызывающему потоку.
+ */
+public final class TileScheduler {
+
+    /** Полоса строк результата [y0, y1) и строки источника [top, bottom), которые она читает. */
+    public static final class Band {
+        public final int y0, y1, top, bottom;
+
+        Band(int y0, int y1, int halo, int h) {
+            this.y0 = y0;
+            this.y1 = y1;
+            this.top = Math.max(0, y0 - halo);
+            this.bottom = Math.min(h, y1 + halo);
+        }
+    }
+
+    public interface BandKernel {
+        void run(Band band);
+    }
+
+    public interface IntBandKernel {
+        int run(Band band);
+    }
+
+    /**
+     * Наблюдатель за фильтром. progress вызывается из рабочих потоков после каждой полосы:
+     * pass — номер прохода (forBands/reduce) с 1, rowsDone из rows строк этого прохода готовы.
+     */
+    public interface Monitor {
+        boolean isCancelled();
+
+        void progress(int pass, int rowsDone, int rows);
+    }
+
+    private static final class Context {
+        final Monitor monitor;
+        int passes;
+
+        Context(Monitor monitor) {
+            this.monitor = monitor;
+        }
+    }
+
+    private static final ThreadLocal<Context> CONTEXT = new ThreadLocal<>();
+
+    /** Умолчание, переопределённое для текущего потока через {@link #using}. */
+    private static final ThreadLocal<TileScheduler> SCOPED = new ThreadLocal<>();
+
+    /**
+     * Пулы по параллельности, общие для всех планировщиков: планировщик можно создавать на
+     * каждый запуск (как в {@link BatchProcessor}) — потоков от этого не прибавляется, а
+     * закрывать нечего. Потоки ForkJoinPool — демоны и завершаются сами после простоя.
+     */
+    private static final ConcurrentHashMap<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+
+    // после POOLS: конструктор берёт пул оттуда
+    private static volatile TileScheduler defaultScheduler = new TileScheduler(
+            Integer.getInteger("image.parallelism", Runtime.getRuntime().availableProcessors()),
+            Integer.getInteger("image.tileRows", 64),
+            Integer.getInteger("image.sequentialCutoff", 256 * 256));
+
+    private final ForkJoinPool pool;
+    private final int parallelism;
+    private final int tileRows;
+    private final int sequentialCutoff;
+
+    public TileScheduler(int parallelism, int tileRows, int sequentialCutoff) {
+        if (parallelism < 1 || tileRows < 1) throw new IllegalArgumentException("parallelism и tileRows должны быть ≥ 1");
+        this.parallelism = parallelism;
+        this.tileRows = tileRows;
+        this.sequentialCutoff = sequentialCutoff;
+        this.pool = parallelism == ForkJoinPool.commonPool().getParallelism()
+                ? ForkJoinPool.commonPool() : POOLS.computeIfAbsent(parallelism, ForkJoinPool::new);
+    }
+
+    /** Планировщик текущего потока, заданный {@link #using}, иначе общий. */
+    public static TileScheduler getDefault() {
+        TileScheduler s = SCOPED.get();
+        return s != null ? s : defaultScheduler;
+    }
+
+    public static void setDefault(TileScheduler scheduler) {
+        defaultScheduler = scheduler;
+    }
+
+    /**
+     * Выполняет body так, что {@link #getDefault()} в текущем потоке возвращает scheduler.
+     * Общее умолчание и другие потоки не затрагиваются — так потоки со своей долей ядер
+     * (обработчики {@link BatchProcessor}) не мешают остальному приложению. Полосы, которые
+     * scheduler отдаёт потокам своего пула, переопределения не видят.
+     */
+    public static void using(TileScheduler scheduler, Runnable body) {
+        TileScheduler saved = SCOPED.get();
+        SCOPED.set(scheduler);
+        try {
+            body.run();
+        } finally {
+            if (saved == null) SCOPED.remove();
+            else SCOPED.set(saved);
+        }
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public int getTileRows() {
+        return tileRows;
+    }
+
+    public int getSequentialCutoff() {
+        return sequentialCutoff;
+    }
+
+    /**
+     * Выполняет body в текущем потоке под наблюдением monitor. Если монитор отменён,
+     * body прерывается CancellationException на границе полосы.
+     */
+    public static <T> T monitored(Monitor monitor, Callable<T> body) throws Exception {
+        Context saved = CONTEXT.get();
+        CONTEXT.set(new Context(monitor));
+        try {
+            return body.call();
+        } finally {
+            if (saved == null) CONTEXT.remove();
+            else CONTEXT.set(saved);
+        }
+    }
+
+    /** Для длинных последовательных участков без полос: CancellationException, если отменено. */
+    public static void checkCancelled() {
+        Context c = CONTEXT.get();
+        if (c != null && c.monitor.isCancelled()) throw new CancellationException();
+    }
+
+    /** Выполняет kernel для всех полос изображения w×h с ореолом halo строк. */
+    public void forBands(int w, int h, int halo, BandKernel kernel) {
+        if (h <= 0) return;
+        kernel = watch(kernel, h);
+        int rows = bandRows(w, h, halo);
+        if (rows >= h) {
+            kernel.run(new Band(0, h, halo, h));
+            return;
+        }
+        pool.invoke(new BandAction(0, h, rows, halo, h, kernel));
+    }
+
+    /** Как {@link #forBands}, но результаты полос сворачиваются через combine. */
+    public int reduce(int w, int h, int halo, int identity, IntBinaryOperator combine, IntBandKernel kernel) {
+        if (h <= 0) return identity;
+        kernel = watchInt(kernel, h);
+        int rows = bandRows(w, h, halo);
+        if (rows >= h) return combine.applyAsInt(identity, kernel.run(new Band(0, h, halo, h)));
+        return combine.applyAsInt(identity, pool.invoke(new BandTask(0, h, rows, halo, h, combine, kernel)));
+    }
+
+    private static BandKernel watch(BandKernel kernel, int h) {
+        Context c = CONTEXT.get();
+        if (c == null) return kernel;
+        IntBandKernel watched = watchInt(band -> {
+            kernel.run(band);
+            return 0;
+        }, h);
+        return watched::run;
+    }
+
+    private static IntBandKernel watchInt(IntBandKernel kernel, int h) {
+        Context c = CONTEXT.get();
+        if (c == null) return kernel;
+        Monitor monitor = c.monitor;
+        int pass = ++c.passes;
+        AtomicInteger done = new AtomicInteger();
+        return band -> {
+            if (monitor.isCancelled()) throw new CancellationException();
+            int r = kernel.run(band);
+            monitor.progress(pass, done.addAndGet(band.y1 - band.y0), h);
+            return r;
+        };
+    }
+
+    private int bandRows(int w, int h, int halo) {
+        if ((long) w * h < sequentialCutoff) return h;
+        // под монитором режем и при одном потоке — ради прогресса и отмены
+        if (parallelism == 1 && CONTEXT.get() == null) return h;
+        // полоса не тоньше ореола, иначе перекрытие съедает выигрыш
+        return Math.max(tileRows, 2 * halo);
+    }
+
+    /**
+     * Перед тем как исключение полосы (в том числе отмена) уйдёт вызывающему, соседняя ветка
+     * должна закончиться: иначе она ещё пишет в буферы, которые вызывающий уже вернул в пул.
+     * Не начатая ветка снимается с очереди, начатая — дожидается (её полосы при отмене
+     * выходят на первой же проверке).
+     */
+    private static void settle(ForkJoinTask<?> sibling) {
+        if (!sibling.tryUnfork()) sibling.quietlyJoin();
+    }
+
+    private static final class BandAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int y0, y1, rows, halo, h;
+        private final BandKernel kernel;
+
+        BandAction(int y0, int y1, int rows, int halo, int h, BandKernel kernel) {
+            this.y0 = y0;
+            this.y1 = y1;
+            this.rows = rows;
+            this.halo = halo;
+            this.h = h;
+            this.kernel = kernel;
+        }
+
+        @Override
+        protected void compute() {
+            if (y1 - y0 <= rows) {
+                kernel.run(new Band(y0, y1, halo, h));
+                return;
+            }
+            int mid = y0 + ((y1 - y0 + rows - 1) / rows / 2) * rows;
+            BandAction top = new BandAction(y0, mid, rows, halo, h, kernel);
+            top.fork();
+            try {
+                new BandAction(mid, y1, rows, halo, h, kernel).compute();
+            } catch (RuntimeException | Error e) {
+                settle(top);
+                throw e;
+            }
+            top.join();
+        }
+    }
+
+    private static final class BandTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final int y0, y1, rows, halo, h;
+        private final IntBinaryOperator combine;
+        private final IntBandKernel kernel;
+
+        BandTask(int y0, int y1, int rows, int halo, int h, IntBinaryOperator combine, IntBandKernel kernel) {
+            this.y0 = y0;
+            this.y1 = y1;
+            this.rows = rows;
+            this.halo = halo;
+            this.h = h;
+            this.combine = combine;
+            this.kernel = kernel;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (y1 - y0 <= rows) return kernel.run(new Band(y0, y1, halo, h));
+            int mid = y0 + ((y1 - y0 + rows - 1) / rows / 2) * rows;
+            BandTask top = new BandTask(y0, mid, rows, halo, h, combine, kernel);
+            top.fork();
+            int bottom;
+            try {
+                bottom = new BandTask(mid, y1, rows, halo, h, combine, kernel).compute();
+            } catch (RuntimeException | Error e) {
+                settle(top);
+                throw e;
+            }
+            return combine.applyAsInt(top.join(), bottom);
+        }
+    }
+}